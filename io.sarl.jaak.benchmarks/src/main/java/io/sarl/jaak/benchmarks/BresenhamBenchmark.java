@@ -0,0 +1,98 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.benchmarks;
+
+import io.sarl.jaak.util.Bresenham;
+import io.sarl.jaak.util.RandomNumber;
+import io.sarl.jaak.util.RandomStream;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.arakhne.afc.math.continous.object2d.Point2f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmark of the iteration on the cells of a segment with {@link Bresenham#line(float, float, float, float)}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BresenhamBenchmark {
+
+	private static final int SEGMENTS = 1024;
+
+	/** Length of the segments, in cells.
+	 */
+	@Param({"8", "64", "512"})
+	public int length;
+
+	private float[] x1;
+	private float[] y1;
+	private int index;
+
+	/** Build segments with random orientations.
+	 */
+	@Setup
+	public void setUp() {
+		RandomStream random = RandomNumber.getStream(BresenhamBenchmark.class.getName());
+		this.x1 = new float[SEGMENTS];
+		this.y1 = new float[SEGMENTS];
+		double angle;
+		for (int i = 0; i < SEGMENTS; ++i) {
+			angle = random.nextDouble() * 2. * Math.PI;
+			this.x1[i] = Math.round(Math.cos(angle) * this.length);
+			this.y1[i] = Math.round(Math.sin(angle) * this.length);
+		}
+	}
+
+	/** Iterate on the cells of a segment.
+	 *
+	 * @param blackhole - the consumer of the cells.
+	 */
+	@Benchmark
+	public void line(Blackhole blackhole) {
+		int i = this.index;
+		this.index = (i + 1) % SEGMENTS;
+		Iterator<Point2f> iterator = Bresenham.line(0, 0, this.x1[i], this.y1[i]);
+		while (iterator.hasNext()) {
+			blackhole.consume(iterator.next());
+		}
+	}
+
+}
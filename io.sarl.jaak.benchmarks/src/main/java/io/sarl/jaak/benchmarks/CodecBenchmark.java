@@ -0,0 +1,159 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.benchmarks;
+
+import io.sarl.jaak.environment.external.body.TurtleBody;
+import io.sarl.jaak.environment.external.body.TurtleBodyFactory;
+import io.sarl.jaak.environment.external.perception.EnvironmentalObject;
+import io.sarl.jaak.environment.internal.model.JaakEnvironment;
+import io.sarl.jaak.environment.internal.model.JaakGridStorage;
+import io.sarl.jaak.kernel.internal.DefaultJaakTimeManager;
+import io.sarl.jaak.util.CompactOutput;
+import io.sarl.jaak.util.RandomNumber;
+import io.sarl.jaak.util.RandomStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmark of the compact serialization of the bodies with their
+ * perceptions, as they are sent over the network in the perception events.
+ * The bodies are written in one stream, and read back from memory,
+ * so that only the cost of the codec is measured.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see CompactOutput
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class CodecBenchmark {
+
+	/** Ratio of the cells that contain a body.
+	 */
+	private static final float BODY_DENSITY = .1f;
+
+	/** Ratio of the cells that contain an object.
+	 */
+	private static final float OBJECT_DENSITY = .05f;
+
+	/** Number of bodies.
+	 */
+	@Param({"1000", "10000"})
+	public int bodyCount;
+
+	private JaakEnvironment environment;
+
+	private TurtleBody[] bodies;
+
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+	private byte[] written;
+
+	/** Create the environment with bodies and objects at random positions,
+	 * and compute the perceptions of the bodies.
+	 *
+	 * @throws IOException
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		RandomStream random = RandomNumber.getStream(CodecBenchmark.class.getName());
+		int size = (int) Math.ceil(Math.sqrt(this.bodyCount / BODY_DENSITY));
+		this.environment = new JaakEnvironment(size, size, new DefaultJaakTimeManager(), JaakGridStorage.TILES);
+		TurtleBodyFactory factory = this.environment.getTurtleBodyFactory();
+		this.bodies = new TurtleBody[this.bodyCount];
+		for (int i = 0; i < this.bodyCount; ++i) {
+			this.bodies[i] = factory.createTurtleBody(new UUID(0, i));
+		}
+		int objectCount = (int) (size * size * OBJECT_DENSITY);
+		for (int i = 0; i < objectCount; ++i) {
+			this.environment.getActionApplier().putObject(
+					random.nextInt(size), random.nextInt(size),
+					new EnvironmentalObject("object")); //$NON-NLS-1$
+		}
+		this.environment.runPreTurtles();
+		write();
+		this.written = this.buffer.toByteArray();
+	}
+
+	/** Release the pool of threads of the environment.
+	 */
+	@TearDown
+	public void tearDown() {
+		this.environment.close();
+	}
+
+	/** Write the bodies in a stream.
+	 *
+	 * @return the number of written bytes.
+	 * @throws IOException
+	 */
+	@Benchmark
+	public int write() throws IOException {
+		this.buffer.reset();
+		try (ObjectOutputStream stream = new ObjectOutputStream(this.buffer)) {
+			for (TurtleBody body : this.bodies) {
+				stream.writeObject(body);
+			}
+		}
+		return this.buffer.size();
+	}
+
+	/** Read the bodies from a stream.
+	 *
+	 * @return the last read body.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@Benchmark
+	public Object read() throws IOException, ClassNotFoundException {
+		Object body = null;
+		try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(this.written))) {
+			for (int i = 0; i < this.bodyCount; ++i) {
+				body = stream.readObject();
+			}
+		}
+		return body;
+	}
+
+}
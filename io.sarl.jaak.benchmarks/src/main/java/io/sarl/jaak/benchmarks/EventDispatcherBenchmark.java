@@ -0,0 +1,207 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.benchmarks;
+
+import io.sarl.jaak.kernel.internal.EventDispatcher;
+import io.sarl.lang.core.Event;
+import io.sarl.lang.core.EventListener;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmark of the delivery of the events to the agents by the
+ * {@link EventDispatcher} of the physic spaces.
+ * <p>
+ * An operation is a simulation step: each agent receives a given number
+ * of events, and the operation ends when all the events are delivered.
+ * The events are sent one by one, as the influences, or in a single call,
+ * as the perceptions. The executor is a pool with one thread per processor.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class EventDispatcherBenchmark {
+
+	/** Number of agents.
+	 */
+	@Param({"1000", "100000"})
+	public int agentCount;
+
+	/** Number of events received by each agent in a step.
+	 */
+	@Param({"1", "8"})
+	public int eventsPerAgent;
+
+	private ExecutorService executor;
+
+	private EventDispatcher dispatcher;
+
+	private Agent[] agents;
+
+	private EventListener[] receivers;
+
+	private Event[] events;
+
+	private final AtomicInteger remaining = new AtomicInteger();
+
+	private volatile Thread waiter;
+
+	/** Create the agents and the dispatcher.
+	 */
+	@Setup
+	public void setUp() {
+		this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		this.dispatcher = new EventDispatcher(this.executor) {
+			@Override
+			protected void deliveryFailed(EventListener agent, Event event, RuntimeException exception) {
+				throw exception;
+			}
+		};
+		this.agents = new Agent[this.agentCount];
+		for (int i = 0; i < this.agentCount; ++i) {
+			this.agents[i] = new Agent(new UUID(0, i));
+		}
+		int count = this.agentCount * this.eventsPerAgent;
+		this.receivers = new EventListener[count];
+		this.events = new Event[count];
+		Event event = new Step();
+		for (int i = 0; i < count; ++i) {
+			this.receivers[i] = this.agents[i % this.agentCount];
+			this.events[i] = event;
+		}
+	}
+
+	/** Stop the executor.
+	 *
+	 * @throws InterruptedException
+	 */
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		this.executor.shutdown();
+		this.executor.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	private void awaitDelivery() {
+		while (this.remaining.get() > 0) {
+			LockSupport.park(this);
+		}
+		this.waiter = null;
+	}
+
+	private void startStep() {
+		this.waiter = Thread.currentThread();
+		this.remaining.set(this.events.length);
+	}
+
+	/** Send the events one by one.
+	 */
+	@Benchmark
+	public void fireOneByOne() {
+		startStep();
+		for (int i = 0; i < this.events.length; ++i) {
+			this.dispatcher.fireAsync(this.receivers[i], this.events[i]);
+		}
+		awaitDelivery();
+	}
+
+	/** Send all the events in a single call.
+	 */
+	@Benchmark
+	public void fireAll() {
+		startStep();
+		this.dispatcher.fireAsync(this.receivers, this.events, this.events.length);
+		awaitDelivery();
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class Step extends Event {
+
+		private static final long serialVersionUID = -7409374128561203465L;
+
+		/**
+		 */
+		public Step() {
+			//
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class Agent implements EventListener {
+
+		private final UUID id;
+
+		/**
+		 * @param id - the identifier of the agent.
+		 */
+		public Agent(UUID id) {
+			this.id = id;
+		}
+
+		@Override
+		public UUID getID() {
+			return this.id;
+		}
+
+		@Override
+		public void receiveEvent(Event event) {
+			if (EventDispatcherBenchmark.this.remaining.decrementAndGet() == 0) {
+				LockSupport.unpark(EventDispatcherBenchmark.this.waiter);
+			}
+		}
+
+	}
+
+}
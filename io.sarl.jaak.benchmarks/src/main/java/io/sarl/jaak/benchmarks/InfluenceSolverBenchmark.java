@@ -0,0 +1,149 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.benchmarks;
+
+import io.sarl.jaak.environment.external.body.TurtleBody;
+import io.sarl.jaak.environment.external.body.TurtleBodyFactory;
+import io.sarl.jaak.environment.internal.model.JaakEnvironment;
+import io.sarl.jaak.environment.internal.model.JaakGridStorage;
+import io.sarl.jaak.environment.internal.model.RealTurtleBody;
+import io.sarl.jaak.environment.internal.solver.ActionApplier;
+import io.sarl.jaak.environment.internal.solver.PathBasedInfluenceSolver;
+import io.sarl.jaak.kernel.internal.DefaultJaakTimeManager;
+import io.sarl.jaak.util.RandomNumber;
+import io.sarl.jaak.util.RandomStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.arakhne.afc.math.continous.object2d.Vector2f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmark of {@link PathBasedInfluenceSolver#solve(java.util.Collection, java.util.Collection, ActionApplier)}.
+ * An invocation is a simulation step: every body is given a motion
+ * influence to a random neighbor cell, and the influences are solved.
+ * The cost of the emission of the influences alone is measured by
+ * {@link #influence()}, so that the cost of the solver is the difference.
+ * <p>
+ * The solver moves the bodies: the environment is created again before
+ * each iteration, so that all the iterations start from the same state.
+ * The positions of the bodies depend only on the seed of {@link RandomNumber}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class InfluenceSolverBenchmark {
+
+	/** Ratio of the cells that contain a body.
+	 */
+	private static final float BODY_DENSITY = .25f;
+
+	private static final int MOTIONS = 1 << 12;
+
+	/** Number of bodies.
+	 */
+	@Param({"1000", "10000", "100000", "1000000"})
+	public int bodyCount;
+
+	private JaakEnvironment environment;
+	private PathBasedInfluenceSolver solver;
+	private List<RealTurtleBody> bodies;
+	private Vector2f[] motions;
+	private int index;
+
+	/** Create the environment with bodies at random positions.
+	 */
+	@Setup(Level.Iteration)
+	public void setUp() {
+		RandomStream random = RandomNumber.getStream(InfluenceSolverBenchmark.class.getName());
+		int size = (int) Math.ceil(Math.sqrt(this.bodyCount / BODY_DENSITY));
+		this.environment = new JaakEnvironment(size, size, new DefaultJaakTimeManager(), JaakGridStorage.TILES);
+		this.environment.setWrapped(true);
+		this.solver = new PathBasedInfluenceSolver();
+		this.environment.setInfluenceSolver(this.solver);
+		this.solver.setWrapped(true);
+		TurtleBodyFactory factory = this.environment.getTurtleBodyFactory();
+		for (int i = 0; i < this.bodyCount; ++i) {
+			factory.createTurtleBody(new UUID(0, i));
+		}
+		this.bodies = new ArrayList<>(this.bodyCount);
+		this.environment.apply(new JaakEnvironment.Lambda<TurtleBody>() {
+			@Override
+			public void apply(TurtleBody body) {
+				InfluenceSolverBenchmark.this.bodies.add((RealTurtleBody) body);
+			}
+		});
+		this.index = 0;
+		this.motions = new Vector2f[MOTIONS];
+		for (int i = 0; i < MOTIONS; ++i) {
+			this.motions[i] = new Vector2f(random.nextInt(3) - 1, random.nextInt(3) - 1);
+		}
+	}
+
+	/** Release the environment of the iteration.
+	 */
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		this.environment.close();
+	}
+
+	/** Give a motion influence to each body.
+	 */
+	@Benchmark
+	public void influence() {
+		int i = this.index;
+		for (RealTurtleBody body : this.bodies) {
+			body.move(this.motions[i], false);
+			i = (i + 1) % MOTIONS;
+		}
+		this.index = (this.index + 1) % MOTIONS;
+	}
+
+	/** Give a motion influence to each body, and solve the influences.
+	 */
+	@Benchmark
+	public void solve() {
+		influence();
+		this.solver.solve(null, this.bodies, this.environment.getActionApplier());
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.benchmarks;
+
+import io.sarl.jaak.environment.external.body.TurtleBody;
+import io.sarl.jaak.environment.internal.model.JaakGridFactory;
+import io.sarl.jaak.environment.internal.model.JaakGridStorage;
+import io.sarl.jaak.environment.internal.solver.ActionApplier;
+import io.sarl.jaak.util.RandomNumber;
+import io.sarl.jaak.util.RandomStream;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmark of the put, move and remove operations of the grid
+ * of the environment on grids which are filled with bodies at
+ * various densities. The grid is created by {@link JaakGridFactory}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class JaakGridBenchmark {
+
+	private static final int SIZE = 1024;
+
+	private static final int POSITIONS = 1 << 16;
+
+	/** Ratio of the cells that contain a body.
+	 */
+	@Param({"0.01", "0.1", "0.5"})
+	public float density;
+
+	/** Storage of the cells.
+	 */
+	@Param({"TILES", "QUADTREE"})
+	public JaakGridStorage storage;
+
+	private ActionApplier grid;
+	private TurtleBody probe;
+	private TurtleBody[] bodies;
+	private int[] bodyX;
+	private int[] bodyY;
+	private int[] positionX;
+	private int[] positionY;
+	private int position;
+	private int body;
+
+	/** Fill the grid with bodies at random positions.
+	 */
+	@Setup
+	public void setUp() {
+		RandomStream random = RandomNumber.getStream(JaakGridBenchmark.class.getName());
+		this.grid = JaakGridFactory.createGrid(SIZE, SIZE, this.storage);
+		int count = (int) (SIZE * SIZE * this.density);
+		this.bodies = new TurtleBody[count];
+		this.bodyX = new int[count];
+		this.bodyY = new int[count];
+		int n = 0;
+		int x;
+		int y;
+		TurtleBody b;
+		while (n < count) {
+			x = random.nextInt(SIZE);
+			y = random.nextInt(SIZE);
+			b = JaakGridFactory.createBody(new UUID(0, n));
+			if (this.grid.putTurtle(x, y, b)) {
+				this.bodies[n] = b;
+				this.bodyX[n] = x;
+				this.bodyY[n] = y;
+				++n;
+			}
+		}
+		this.probe = JaakGridFactory.createBody(new UUID(1, 0));
+		this.positionX = new int[POSITIONS];
+		this.positionY = new int[POSITIONS];
+		for (int i = 0; i < POSITIONS; ++i) {
+			this.positionX[i] = random.nextInt(SIZE);
+			this.positionY[i] = random.nextInt(SIZE);
+		}
+	}
+
+	private int nextPosition() {
+		int i = this.position;
+		this.position = (i + 1) & (POSITIONS - 1);
+		return i;
+	}
+
+	/** Put a body on a random cell, and remove it if it was put.
+	 *
+	 * @return the success of the removal.
+	 */
+	@Benchmark
+	public boolean putRemove() {
+		int i = nextPosition();
+		int x = this.positionX[i];
+		int y = this.positionY[i];
+		if (this.grid.putTurtle(x, y, this.probe)) {
+			return this.grid.removeTurtle(x, y, this.probe);
+		}
+		return false;
+	}
+
+	/** Move a body of the grid to a neighbor cell, as the influence
+	 * solvers do: the body is put on the target cell, and removed
+	 * from its current cell.
+	 *
+	 * @return the success of the move.
+	 */
+	@Benchmark
+	public boolean move() {
+		int i = nextPosition();
+		int b = this.body;
+		this.body = (b + 1) % this.bodies.length;
+		int x = this.bodyX[b];
+		int y = this.bodyY[b];
+		int tx = (x + (this.positionX[i] % 3) - 1 + SIZE) % SIZE;
+		int ty = (y + (this.positionY[i] % 3) - 1 + SIZE) % SIZE;
+		if ((tx != x || ty != y) && this.grid.putTurtle(tx, ty, this.bodies[b])) {
+			this.grid.removeTurtle(x, y, this.bodies[b]);
+			this.bodyX[b] = tx;
+			this.bodyY[b] = ty;
+			return true;
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,157 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.benchmarks;
+
+import io.sarl.jaak.environment.external.frustum.CircleTurtleFrustum;
+import io.sarl.jaak.environment.external.frustum.CrossTurtleFrustum;
+import io.sarl.jaak.environment.external.frustum.PerceivedCellVisitor;
+import io.sarl.jaak.environment.external.frustum.PointTurtleFrustum;
+import io.sarl.jaak.environment.external.frustum.SquareTurtleFrustum;
+import io.sarl.jaak.environment.external.frustum.TurtleFrustum;
+import io.sarl.jaak.environment.internal.model.JaakEnvironment;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.arakhne.afc.math.continous.object2d.Point2f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmark of the iteration on the cells perceived through a {@link TurtleFrustum}.
+ * The cells are iterated with the iterator and with the visitor of the frustum.
+ * The size is ignored by the point frustum.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TurtleFrustumBenchmark {
+
+	private static final int ENVIRONMENT_SIZE = 256;
+
+	/** Type of the frustum.
+	 */
+	@Param({"CIRCLE", "CROSS", "POINT", "SQUARE"})
+	public String type;
+
+	/** Size of the frustum: radius, length of the branches, or side.
+	 */
+	@Param({"3", "7", "15"})
+	public int size;
+
+	private JaakEnvironment environment;
+	private TurtleFrustum frustum;
+	private Point2f origin;
+	private CellCollector collector;
+
+	/** Create the frustum in the middle of an environment.
+	 */
+	@Setup
+	public void setUp() {
+		this.environment = new JaakEnvironment(ENVIRONMENT_SIZE, ENVIRONMENT_SIZE);
+		switch (this.type) {
+		case "CIRCLE": //$NON-NLS-1$
+			this.frustum = new CircleTurtleFrustum(this.size);
+			break;
+		case "CROSS": //$NON-NLS-1$
+			this.frustum = new CrossTurtleFrustum(this.size);
+			break;
+		case "POINT": //$NON-NLS-1$
+			this.frustum = new PointTurtleFrustum();
+			break;
+		case "SQUARE": //$NON-NLS-1$
+			this.frustum = new SquareTurtleFrustum(this.size);
+			break;
+		default:
+			throw new IllegalArgumentException(this.type);
+		}
+		this.origin = new Point2f(ENVIRONMENT_SIZE / 2, ENVIRONMENT_SIZE / 2);
+		this.collector = new CellCollector();
+	}
+
+	/** Iterate on the perceived cells with the iterator of the frustum.
+	 *
+	 * @param blackhole - the consumer of the cells.
+	 */
+	@Benchmark
+	public void iterator(Blackhole blackhole) {
+		Iterator<Point2f> iterator = this.frustum.getPerceivedCells(this.origin, 0f, this.environment);
+		while (iterator.hasNext()) {
+			blackhole.consume(iterator.next());
+		}
+	}
+
+	/** Iterate on the perceived cells with the visitor of the frustum.
+	 *
+	 * @return a value computed from the cells.
+	 */
+	@Benchmark
+	public int visitor() {
+		this.collector.sum = 0;
+		this.frustum.visitPerceivedCells(
+				(int) this.origin.getX(), (int) this.origin.getY(), 0f,
+				this.environment, this.collector);
+		return this.collector.sum;
+	}
+
+	/** Visitor that is combining the coordinates of the cells.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class CellCollector implements PerceivedCellVisitor {
+
+		/** Combination of the coordinates of the visited cells.
+		 */
+		int sum;
+
+		/**
+		 */
+		public CellCollector() {
+			//
+		}
+
+		@Override
+		public void visitCell(int x, int y) {
+			this.sum += x ^ y;
+		}
+
+	}
+
+}
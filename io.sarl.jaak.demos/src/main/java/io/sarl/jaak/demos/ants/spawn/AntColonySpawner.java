@@ -5,7 +5,6 @@ import io.sarl.jaak.demos.ants.behaviors.Patroller;
 import io.sarl.jaak.environment.external.body.TurtleBody;
 import io.sarl.jaak.environment.external.time.TimeManager;
 import io.sarl.jaak.environment.internal.spawner.JaakPointSpawner;
-import io.sarl.jaak.util.RandomNumber;
 
 import java.util.UUID;
 
@@ -42,13 +41,13 @@ public class AntColonySpawner extends JaakPointSpawner {
 
 	@Override
 	protected float computeSpawnedTurtleOrientation(TimeManager timeManager) {
-		return RandomNumber.nextFloat() * MathConstants.TWO_PI;
+		return getRandom().nextFloat() * MathConstants.TWO_PI;
 	}
 
 	@Override
 	protected void turtleSpawned(UUID turtle, TurtleBody body, TimeManager timeManager) {
 		assert(this.patrollerBudget>0 || this.foragerBudget>0);
-		if (this.patrollerBudget>0 && (this.foragerBudget==0 || RandomNumber.nextBoolean())) {
+		if (this.patrollerBudget>0 && (this.foragerBudget==0 || getRandom().nextBoolean())) {
 			--this.patrollerBudget;
 			body.setSemantic(Patroller.class);
 		} else if (this.foragerBudget>0) {
@@ -20,6 +20,7 @@
 package io.sarl.jaak.environment.external.body;
 
 import io.sarl.jaak.environment.external.frustum.TurtleFrustum;
+import io.sarl.jaak.util.RandomStream;
 
 import java.io.Serializable;
 import java.util.UUID;
@@ -335,4 +336,17 @@ public interface TurtleBodyFactory {
 	 */
 	boolean isFreeCell(Point2f position);
 
+	/** Replies a cell randomly selected among the cells of the given
+	 * area which are able to receive the new turtle body.
+	 *
+	 * @param x - the lower coordinate of the area.
+	 * @param y - the lower coordinate of the area.
+	 * @param width - the width of the area.
+	 * @param height - the height of the area.
+	 * @param random - the random stream of the caller.
+	 * @return the position of a free cell, or <code>null</code> if
+	 * no cell is free in the area.
+	 */
+	Point2f getFreeRandomPosition(float x, float y, float width, float height, RandomStream random);
+
 }
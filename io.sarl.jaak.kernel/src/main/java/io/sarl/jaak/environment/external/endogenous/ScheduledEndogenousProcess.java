@@ -0,0 +1,48 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.external.endogenous;
+
+/** This interface defines an autonomous endogenous process which
+ * is not run at each simulation step.
+ * <p>
+ * After each run, the environment asks the process for the time of
+ * its next run, and does not run it before this time. The first run
+ * of the process is at the first simulation step after its registration
+ * in the environment.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public interface ScheduledEndogenousProcess extends AutonomousEndogenousProcess {
+
+	/** Replies the simulation time at which the process must be run again.
+	 * <p>
+	 * The simulation step duration which is given to the next run is the
+	 * time elapsed since the current run.
+	 *
+	 * @param currentTime is the current simulation time, in seconds.
+	 * @return the time of the next run, in seconds, or {@link Float#POSITIVE_INFINITY}
+	 * if the process must not be run anymore.
+	 */
+	float getNextActivationTime(float currentTime);
+
+}
@@ -21,7 +21,10 @@ package io.sarl.jaak.environment.external.frustum;
 
 import io.sarl.jaak.environment.external.EnvironmentArea;
 
+import java.io.Serializable;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.arakhne.afc.math.continous.object2d.Point2f;
 import org.arakhne.afc.math.discrete.object2d.Point2i;
@@ -35,15 +38,59 @@ import org.arakhne.afc.math.discrete.object2d.Point2i;
  * @mavengroupid $GroupId$
  * @mavenartifactid $ArtifactId$
  */
-public class CircleTurtleFrustum implements TurtleFrustum {
+public class CircleTurtleFrustum implements TurtleFrustum, Serializable {
+
+	private static final long serialVersionUID = 2490309412535928050L;
+
+	private static final ConcurrentMap<Integer, int[]> OFFSETS = new ConcurrentHashMap<>();
 
 	private final float radius;
+	private final int[] offsets;
 
 	/**
 	 * @param radius is the radius of the perception frustum.
 	 */
 	public CircleTurtleFrustum(int radius) {
 		this.radius = radius;
+		this.offsets = getOffsets(radius);
+	}
+
+	/** Replies the table of the offsets of the cells in a circle with the given radius.
+	 * The tables are computed once per radius and shared by the frustums.
+	 *
+	 * @param radius is the radius of the circle.
+	 * @return the offsets <code>{dx0, dy0, dx1, dy1, ...}</code>, row by row.
+	 */
+	private static int[] getOffsets(int radius) {
+		Integer key = Integer.valueOf(radius);
+		int[] table = OFFSETS.get(key);
+		if (table == null) {
+			int r = Math.max(0, radius);
+			int sr = r * r;
+			int count = 0;
+			for (int dy = -r; dy <= r; ++dy) {
+				for (int dx = -r; dx <= r; ++dx) {
+					if (dx * dx + dy * dy <= sr) {
+						++count;
+					}
+				}
+			}
+			table = new int[count * 2];
+			int i = 0;
+			for (int dy = -r; dy <= r; ++dy) {
+				for (int dx = -r; dx <= r; ++dx) {
+					if (dx * dx + dy * dy <= sr) {
+						table[i++] = dx;
+						table[i++] = dy;
+					}
+				}
+			}
+			int[] previous = OFFSETS.putIfAbsent(key, table);
+			if (previous != null) {
+				table = previous;
+			}
+		}
+		return table;
 	}
 
 	/**
@@ -51,7 +98,19 @@ public class CircleTurtleFrustum implements TurtleFrustum {
 	 */
 	@Override
 	public Iterator<Point2f> getPerceivedCells(Point2f origin, float direction, EnvironmentArea environment) {
-		return new PointIterator(origin);
+		return new OffsetIterator(this.offsets, origin);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void visitPerceivedCells(int x, int y, float direction, EnvironmentArea environment,
+			PerceivedCellVisitor visitor) {
+		int[] table = this.offsets;
+		for (int i = 0; i < table.length; i += 2) {
+			visitor.visitCell(x + table[i], y + table[i + 1]);
+		}
 	}
 
 	/** Replies the perception radius.
@@ -62,96 +121,4 @@ public class CircleTurtleFrustum implements TurtleFrustum {
 		return this.radius;
 	}
 
-	/** This class defines a frustum for for a turtle which is
-	 * restricted to a circle.
-	 *
-	 * @author $Author: sgalland$
-	 * @version $FullVersion$
-	 * @mavengroupid $GroupId$
-	 * @mavenartifactid $ArtifactId$
-	 */
-	private class PointIterator implements Iterator<Point2f> {
-
-		private final float cx;
-		private final float cy;
-		private final Point2f replied = new Point2f();
-		private final float sx;
-		private final float ex;
-		private final float ey;
-		private float x;
-		private float y;
-
-		/**
-		 * @param center
-		 */
-		public PointIterator(Point2f center) {
-			this.cx = center.x();
-			this.cy = center.y();
-
-			float r = getRadius();
-			this.sx = this.cx - r;
-			this.x = this.sx;
-			this.y = this.cy - r;
-
-			this.ex = this.cx + r;
-			this.ey = this.cy + r;
-
-			searchNext();
-		}
-
-		private void searchNext() {
-			float sr;
-			float dx;
-			float dy;
-
-			sr = getRadius();
-			sr = sr * sr;
-
-			while (this.x <= this.ex || this.y <= this.ey) {
-				dx = Math.abs(this.x - this.cx);
-				dy = Math.abs(this.y - this.cy);
-				if ((dx * dx + dy * dy) <= sr) {
-					return;
-				}
-				inc();
-			}
-		}
-
-		private void inc() {
-			++this.x;
-			if (this.x > this.ex) {
-				++this.y;
-				this.x = this.sx;
-			}
-		}
-
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public boolean hasNext() {
-			return this.x <= this.ex || this.y <= this.ey;
-		}
-
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public Point2f next() {
-			this.replied.set(this.x, this.y);
-			inc();
-			searchNext();
-			return this.replied;
-		}
-
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public void remove() {
-			//
-		}
-
-	}
-
 }
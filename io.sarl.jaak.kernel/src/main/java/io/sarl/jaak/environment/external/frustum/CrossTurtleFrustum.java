@@ -21,9 +21,11 @@ package io.sarl.jaak.environment.external.frustum;
 
 import io.sarl.jaak.environment.external.EnvironmentArea;
 
-import java.util.BitSet;
+import java.io.Serializable;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.arakhne.afc.math.continous.object2d.Point2f;
 import org.arakhne.afc.math.discrete.object2d.Point2i;
@@ -37,17 +39,67 @@ import org.arakhne.afc.math.discrete.object2d.Point2i;
  * @mavengroupid $GroupId$
  * @mavenartifactid $ArtifactId$
  */
-public class CrossTurtleFrustum implements TurtleFrustum {
+public class CrossTurtleFrustum implements TurtleFrustum, Serializable {
+
+	private static final long serialVersionUID = 6332372355895415821L;
 
 	private static final int SIDES = 4;
 
+	private static final int ALL_SIDES = (1 << SIDES) - 1;
+
+	private static final ConcurrentMap<Integer, int[]> OFFSETS = new ConcurrentHashMap<>();
+
 	private final int crossLength;
+	private final int[] offsets;
 
 	/**
 	 * @param crossLength is the length of the cross branches
 	 */
 	public CrossTurtleFrustum(int crossLength) {
 		this.crossLength = Math.max(1, crossLength);
+		this.offsets = getOffsets(this.crossLength);
+	}
+
+	/** Replies the table of the offsets of the cells in a cross with the given branch length.
+	 * The tables are computed once per length and shared by the frustums.
+	 * <p>
+	 * The first offset is the center. The other offsets are sorted by distance
+	 * to the center, and for each distance by branch: right, bottom, left, top.
+	 *
+	 * @param length is the length of the cross branches.
+	 * @return the offsets <code>{dx0, dy0, dx1, dy1, ...}</code>.
+	 */
+	private static int[] getOffsets(int length) {
+		Integer key = Integer.valueOf(length);
+		int[] table = OFFSETS.get(key);
+		if (table == null) {
+			table = new int[(1 + SIDES * length) * 2];
+			int i = 2;
+			for (int level = 1; level <= length; ++level) {
+				table[i++] = level;
+				table[i++] = 0;
+				table[i++] = 0;
+				table[i++] = level;
+				table[i++] = -level;
+				table[i++] = 0;
+				table[i++] = 0;
+				table[i++] = -level;
+			}
+			int[] previous = OFFSETS.putIfAbsent(key, table);
+			if (previous != null) {
+				table = previous;
+			}
+		}
+		return table;
+	}
+
+	/** Replies the branch of the offset at the given index in the table.
+	 *
+	 * @param index is the index of the offset in the table.
+	 * @return the mask of the branch.
+	 */
+	private static int branch(int index) {
+		return 1 << (((index >> 1) - 1) % SIDES);
 	}
 
 	/** Replies the length of each cross branch.
@@ -63,7 +115,33 @@ public class CrossTurtleFrustum implements TurtleFrustum {
 	 */
 	@Override
 	public Iterator<Point2f> getPerceivedCells(Point2f origin, float direction, EnvironmentArea environment) {
-		return new CrossIterator(origin, this.crossLength, environment);
+		return new CrossIterator(origin, this.offsets, environment);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void visitPerceivedCells(int x, int y, float direction, EnvironmentArea environment,
+			PerceivedCellVisitor visitor) {
+		int[] table = this.offsets;
+		int blocked = 0;
+		int px;
+		int py;
+		int b;
+		visitor.visitCell(x, y);
+		for (int i = 2; i < table.length && blocked != ALL_SIDES; i += 2) {
+			b = branch(i);
+			if ((blocked & b) == 0) {
+				px = x + table[i];
+				py = y + table[i + 1];
+				// The cell with an obstacle is perceived, but not the cells behind
+				if (environment.hasObstacle(px, py)) {
+					blocked |= b;
+				}
+				visitor.visitCell(px, py);
+			}
+		}
 	}
 
 	/** This class defines a frustum for for a turtle which is
@@ -78,69 +156,42 @@ public class CrossTurtleFrustum implements TurtleFrustum {
 	private static class CrossIterator implements Iterator<Point2f> {
 
 		private final EnvironmentArea environment;
-		private final Point2f origin;
-		private final float length;
-		private final BitSet directions = new BitSet(4);
-		private int level = 1;
-		private int nextDirectionIndex;
+		private final int[] offsets;
+		private final int x;
+		private final int y;
+		private int index = 2;
+		private int blocked;
 		private Point2f next;
 
 		/**
 		 * @param origin
-		 * @param length
+		 * @param offsets
 		 * @param environment
 		 */
-		public CrossIterator(Point2f origin, int length, EnvironmentArea environment) {
-			this.origin = origin;
+		public CrossIterator(Point2f origin, int[] offsets, EnvironmentArea environment) {
+			this.offsets = offsets;
 			this.environment = environment;
-			this.length = length;
-			this.directions.set(0, SIDES);
-			this.nextDirectionIndex = 0;
-			this.next = new Point2f(this.origin);
+			this.x = origin.x();
+			this.y = origin.y();
+			this.next = new Point2f(this.x, this.y);
 		}
 
 		private void searchNext() {
 			this.next = null;
-			Point2f p = new Point2f();
+			int b;
 			while (this.next == null
-					&& !this.directions.isEmpty()
-					&& this.level <= this.length) {
-
-				while (this.next == null
-						&& !this.directions.isEmpty()
-						&& this.level <= this.length
-						&& this.nextDirectionIndex < SIDES) {
-					if (this.directions.get(this.nextDirectionIndex)) {
-						switch(this.nextDirectionIndex) {
-						case 0:
-							p.set(this.origin.x() + this.level, this.origin.y());
-							break;
-						case 1:
-							p.set(this.origin.x(), this.origin.y() + this.level);
-							break;
-						case 2:
-							p.set(this.origin.x() - this.level, this.origin.y());
-							break;
-						case 3:
-							p.set(this.origin.x(), this.origin.y() - this.level);
-							break;
-						default:
-							throw new IllegalStateException();
-						}
-
-						if (this.environment.hasObstacle(p.x(), p.y())) {
-							this.directions.set(this.nextDirectionIndex, false);
-						}
-
-						this.next = p;
+					&& this.index < this.offsets.length
+					&& this.blocked != ALL_SIDES) {
+				b = branch(this.index);
+				if ((this.blocked & b) == 0) {
+					int px = this.x + this.offsets[this.index];
+					int py = this.y + this.offsets[this.index + 1];
+					if (this.environment.hasObstacle(px, py)) {
+						this.blocked |= b;
 					}
-					++this.nextDirectionIndex;
-				}
-
-				if (this.nextDirectionIndex > 3) {
-					++this.level;
-					this.nextDirectionIndex = 0;
+					this.next = new Point2f(px, py);
 				}
+				this.index += 2;
 			}
 		}
 
@@ -0,0 +1,85 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.external.frustum;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.arakhne.afc.math.continous.object2d.Point2f;
+
+/** This class defines an iterator on the cells given by
+ * a table of offsets <code>{dx0, dy0, dx1, dy1, ...}</code>
+ * around an origin.
+ * <p>
+ * The replied point is the same instance at each call to {@link #next()}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+class OffsetIterator implements Iterator<Point2f> {
+
+	private final int[] offsets;
+	private final int x;
+	private final int y;
+	private final Point2f replied = new Point2f();
+	private int index;
+
+	/**
+	 * @param offsets is the table of offsets.
+	 * @param origin is the origin of the offsets.
+	 */
+	public OffsetIterator(int[] offsets, Point2f origin) {
+		this.offsets = offsets;
+		this.x = origin.x();
+		this.y = origin.y();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasNext() {
+		return this.index < this.offsets.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Point2f next() {
+		if (this.index >= this.offsets.length) {
+			throw new NoSuchElementException();
+		}
+		this.replied.set(this.x + this.offsets[this.index], this.y + this.offsets[this.index + 1]);
+		this.index += 2;
+		return this.replied;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.external.frustum;
+
+/** This interface defines a visitor of the cells perceived
+ * by a turtle frustum.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see TurtleFrustum#visitPerceivedCells(int, int, float, io.sarl.jaak.environment.external.EnvironmentArea,
+ * PerceivedCellVisitor)
+ */
+public interface PerceivedCellVisitor {
+
+	/** Invoked for each perceived cell.
+	 *
+	 * @param x is the coordinate of the perceived cell.
+	 * @param y is the coordinate of the perceived cell.
+	 */
+	void visitCell(int x, int y);
+
+}
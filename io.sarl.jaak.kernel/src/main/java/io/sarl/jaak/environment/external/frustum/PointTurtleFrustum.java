@@ -21,6 +21,7 @@ package io.sarl.jaak.environment.external.frustum;
 
 import io.sarl.jaak.environment.external.EnvironmentArea;
 
+import java.io.Serializable;
 import java.util.Collections;
 import java.util.Iterator;
 
@@ -36,7 +37,9 @@ import org.arakhne.afc.math.discrete.object2d.Point2i;
  * @mavengroupid $GroupId$
  * @mavenartifactid $ArtifactId$
  */
-public class PointTurtleFrustum implements TurtleFrustum {
+public class PointTurtleFrustum implements TurtleFrustum, Serializable {
+
+	private static final long serialVersionUID = 5398132708245135075L;
 
 	/**
 	 * {@inheritDoc}
@@ -46,4 +49,13 @@ public class PointTurtleFrustum implements TurtleFrustum {
 		return Collections.singleton(origin).iterator();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void visitPerceivedCells(int x, int y, float direction, EnvironmentArea environment,
+			PerceivedCellVisitor visitor) {
+		visitor.visitCell(x, y);
+	}
+
 }
@@ -21,7 +21,10 @@ package io.sarl.jaak.environment.external.frustum;
 
 import io.sarl.jaak.environment.external.EnvironmentArea;
 
+import java.io.Serializable;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.arakhne.afc.math.continous.object2d.Point2f;
 import org.arakhne.afc.math.discrete.object2d.Point2i;
@@ -35,15 +38,49 @@ import org.arakhne.afc.math.discrete.object2d.Point2i;
  * @mavengroupid $GroupId$
  * @mavenartifactid $ArtifactId$
  */
-public class SquareTurtleFrustum implements TurtleFrustum {
+public class SquareTurtleFrustum implements TurtleFrustum, Serializable {
+
+	private static final long serialVersionUID = 5320105896702783638L;
+
+	private static final ConcurrentMap<Integer, int[]> OFFSETS = new ConcurrentHashMap<>();
 
 	private final int side;
+	private final int[] offsets;
 
 	/**
 	 * @param side is the length of the square side
 	 */
 	public SquareTurtleFrustum(int side) {
 		this.side = side;
+		this.offsets = getOffsets(side);
+	}
+
+	/** Replies the table of the offsets of the cells in a square with the given side.
+	 * The tables are computed once per side and shared by the frustums.
+	 *
+	 * @param side is the length of the square side.
+	 * @return the offsets <code>{dx0, dy0, dx1, dy1, ...}</code>, row by row.
+	 */
+	private static int[] getOffsets(int side) {
+		Integer key = Integer.valueOf(side);
+		int[] table = OFFSETS.get(key);
+		if (table == null) {
+			int ds = side / 2;
+			int s = 2 * ds + 1;
+			table = new int[s * s * 2];
+			int i = 0;
+			for (int dy = -ds; dy <= ds; ++dy) {
+				for (int dx = -ds; dx <= ds; ++dx) {
+					table[i++] = dx;
+					table[i++] = dy;
+				}
+			}
+			int[] previous = OFFSETS.putIfAbsent(key, table);
+			if (previous != null) {
+				table = previous;
+			}
+		}
+		return table;
 	}
 
 	/** Replies the side of the square.
@@ -59,70 +96,19 @@ public class SquareTurtleFrustum implements TurtleFrustum {
 	 */
 	@Override
 	public Iterator<Point2f> getPerceivedCells(Point2f origin, float direction, EnvironmentArea environment) {
-		return new PointIterator(origin);
+		return new OffsetIterator(this.offsets, origin);
 	}
 
-	/** This class defines a frustum for for a turtle which is
-	 * restricted to a square.
-	 *
-	 * @author $Author: sgalland$
-	 * @version $FullVersion$
-	 * @mavengroupid $GroupId$
-	 * @mavenartifactid $ArtifactId$
+	/**
+	 * {@inheritDoc}
 	 */
-	private class PointIterator implements Iterator<Point2f> {
-
-		private final Point2f replied = new Point2f();
-		private final float sx;
-		private final float ex;
-		private final float ey;
-		private float x;
-		private float y;
-
-		/**
-		 * @param center
-		 */
-		public PointIterator(Point2f center) {
-			int s = getSideLength();
-			int ds = s / 2;
-			this.sx = center.x() - ds;
-			this.x = this.sx;
-			this.y = center.y() - ds;
-
-			this.ex = center.x() + ds;
-			this.ey = center.y() + ds;
-		}
-
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public boolean hasNext() {
-			return this.x <= this.ex && this.y <= this.ey;
-		}
-
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public Point2f next() {
-			this.replied.set(this.x, this.y);
-			++this.x;
-			if (this.x > this.ex) {
-				++this.y;
-				this.x = this.sx;
-			}
-			return this.replied;
-		}
-
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public void remove() {
-			//
+	@Override
+	public void visitPerceivedCells(int x, int y, float direction, EnvironmentArea environment,
+			PerceivedCellVisitor visitor) {
+		int[] table = this.offsets;
+		for (int i = 0; i < table.length; i += 2) {
+			visitor.visitCell(x + table[i], y + table[i + 1]);
 		}
-
 	}
 
 }
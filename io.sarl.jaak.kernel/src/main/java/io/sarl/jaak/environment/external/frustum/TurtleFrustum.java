@@ -45,4 +45,19 @@ public interface TurtleFrustum {
 	 */
 	Iterator<Point2f> getPerceivedCells(Point2f origin, float direction, EnvironmentArea environment);
 
+	/**
+	 * Invoke the given visitor on each perceived cell.
+	 * <p>
+	 * The cells are visited in the same order as they are replied by
+	 * {@link #getPerceivedCells(Point2f, float, EnvironmentArea)}, without
+	 * allocating any object.
+	 *
+	 * @param x is the origin perception point.
+	 * @param y is the origin perception point.
+	 * @param direction is the angle which is corresponding to the turtle head direction.
+	 * @param environment is the environment in which the frustum should perceive.
+	 * @param visitor is the visitor to invoke on each perceived cell.
+	 */
+	void visitPerceivedCells(int x, int y, float direction, EnvironmentArea environment, PerceivedCellVisitor visitor);
+
 }
@@ -32,6 +32,8 @@ import io.sarl.jaak.environment.external.perception.EnvironmentalObject;
  */
 public class DropDownInfluence extends Influence {
 
+	private static final long serialVersionUID = 251546636961147107L;
+
 	private final EnvironmentalObject object;
 
 	/**
@@ -31,6 +31,8 @@ import io.sarl.jaak.environment.external.perception.EnvironmentalObject;
  */
 public abstract class EnvironmentalObjectRemovalInfluence extends Influence {
 
+	private static final long serialVersionUID = -6343718103248863661L;
+
 	/**
 	 */
 	public EnvironmentalObjectRemovalInfluence() {
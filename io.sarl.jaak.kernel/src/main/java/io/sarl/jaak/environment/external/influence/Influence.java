@@ -20,17 +20,34 @@
 package io.sarl.jaak.environment.external.influence;
 
 import io.sarl.jaak.environment.external.body.TurtleObject;
+import io.sarl.jaak.util.CompactInput;
+import io.sarl.jaak.util.CompactOutput;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.UUID;
 
 /** This class defines an influence from turtle to environment.
+ * <p>
+ * When the influence is serialized, only the identifier of the
+ * emitter is written. After deserialization, the emitter is
+ * <code>null</code> until it is set with {@link #setEmitter(TurtleObject)}
+ * and the identifier is given by {@link #getEmitterId()}.
  *
  * @author $Author: sgalland$
  * @version $FullVersion$
  * @mavengroupid $GroupId$
  * @mavenartifactid $ArtifactId$
  */
-public abstract class Influence {
+public abstract class Influence implements Serializable {
+
+	private static final long serialVersionUID = 3100796434141713433L;
+
+	private transient TurtleObject emitter;
 
-	private TurtleObject emitter;
+	private transient UUID emitterId;
 
 	/**
 	 * @param emitter is the emitter of the influence.
@@ -55,6 +72,32 @@ public abstract class Influence {
 		this.emitter = emitter;
 	}
 
+	/** Replies the identifier of the influence emitter.
+	 *
+	 * @return the identifier of the influence emitter, or <code>null</code>
+	 * if the emitter is unknown.
+	 */
+	public UUID getEmitterId() {
+		TurtleObject e = this.emitter;
+		return e == null ? this.emitterId : e.getTurtleId();
+	}
+
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		stream.defaultWriteObject();
+		UUID id = getEmitterId();
+		stream.writeBoolean(id != null);
+		if (id != null) {
+			new CompactOutput(stream).writeUUID(id);
+		}
+	}
+
+	private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+		if (stream.readBoolean()) {
+			this.emitterId = new CompactInput(stream).readUUID();
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
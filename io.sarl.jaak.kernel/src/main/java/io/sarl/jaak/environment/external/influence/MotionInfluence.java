@@ -24,6 +24,10 @@ import io.sarl.jaak.environment.external.body.TurtleObject;
 import io.sarl.jaak.environment.external.perception.EnvironmentalObject;
 import io.sarl.jaak.environment.external.perception.JaakObject;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import org.arakhne.afc.math.continous.object2d.Vector2f;
 
 /** This class defines a motion influence.
@@ -35,9 +39,11 @@ import org.arakhne.afc.math.continous.object2d.Vector2f;
  */
 public class MotionInfluence extends Influence {
 
-	private final Vector2f linearMotion;
+	private static final long serialVersionUID = 5003037702201546691L;
+
+	private transient Vector2f linearMotion;
 	private float angularMotion;
-	private final JaakObject moveObject;
+	private transient JaakObject moveObject;
 
 	/**
 	 * @param emitter is the identifier of the influence emitter.
@@ -222,7 +228,38 @@ public class MotionInfluence extends Influence {
 	 * @return the moved object.
 	 */
 	public JaakObject getMovedObject() {
-		return this.moveObject;
+		JaakObject object = this.moveObject;
+		return object == null ? getEmitter() : object;
+	}
+
+	/** Write the motion as two floats, and the moved object
+	 * only when it is not the emitter.
+	 *
+	 * @param stream - the output stream.
+	 * @throws IOException
+	 */
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		stream.defaultWriteObject();
+		stream.writeFloat(this.linearMotion.getX());
+		stream.writeFloat(this.linearMotion.getY());
+		JaakObject object = this.moveObject;
+		stream.writeObject(object == getEmitter() ? null : object);
+	}
+
+	/** Read the motion written by {@link #writeObject(ObjectOutputStream)}.
+	 * When the moved object is the emitter, it is replied by
+	 * {@link #getMovedObject()} once the emitter is set.
+	 *
+	 * @param stream - the input stream.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+		float x = stream.readFloat();
+		float y = stream.readFloat();
+		this.linearMotion = new Vector2f(x, y);
+		this.moveObject = (JaakObject) stream.readObject();
 	}
 
 	/**
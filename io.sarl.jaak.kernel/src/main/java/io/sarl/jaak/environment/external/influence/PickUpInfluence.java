@@ -32,6 +32,8 @@ import io.sarl.jaak.environment.external.perception.EnvironmentalObject;
  */
 public class PickUpInfluence extends Influence {
 
+	private static final long serialVersionUID = -4589187868827309158L;
+
 	private final EnvironmentalObject object;
 
 	/**
@@ -19,6 +19,10 @@
  */
 package io.sarl.jaak.environment.external.influence;
 
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 /** This class defines an influence to change the semantic
@@ -31,7 +35,9 @@ import java.io.Serializable;
  */
 public class SemanticChangeInfluence extends Influence {
 
-	private final Serializable newSemantic;
+	private static final long serialVersionUID = 1579135750707049610L;
+
+	private transient Serializable newSemantic;
 
 	/**
 	 * @param semantic - the new semantic.
@@ -49,6 +55,16 @@ public class SemanticChangeInfluence extends Influence {
 		return this.newSemantic;
 	}
 
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		stream.defaultWriteObject();
+		stream.writeObject(this.newSemantic);
+	}
+
+	private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+		this.newSemantic = (Serializable) stream.readObject();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -20,7 +20,12 @@
 package io.sarl.jaak.environment.external.perception;
 
 import io.sarl.jaak.environment.external.body.TurtleBody;
+import io.sarl.jaak.util.CompactInput;
+import io.sarl.jaak.util.CompactOutput;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 import org.arakhne.afc.math.continous.object2d.Point2f;
@@ -39,11 +44,11 @@ public abstract class AbstractPerceivable implements Perceivable, Serializable {
 
 	/** Position of the perceived object.
 	 */
-	final Point2f position = new Point2f();
+	transient Point2f position = new Point2f();
 
 	/** Is the semantic associated to this perceived object.
 	 */
-	Serializable semantic;
+	transient Serializable semantic;
 
 	/**
 	 */
@@ -51,6 +56,35 @@ public abstract class AbstractPerceivable implements Perceivable, Serializable {
 		//
 	}
 
+	/** Write the position with a compact format.
+	 *
+	 * @param stream - the output stream.
+	 * @throws IOException
+	 * @see CompactOutput
+	 */
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		stream.defaultWriteObject();
+		CompactOutput output = new CompactOutput(stream);
+		output.writeCoordinate(0f, this.position.getX());
+		output.writeCoordinate(0f, this.position.getY());
+		stream.writeObject(this.semantic);
+	}
+
+	/** Read the position and the semantic written by {@link #writeObject(ObjectOutputStream)}.
+	 *
+	 * @param stream - the input stream.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+		CompactInput input = new CompactInput(stream);
+		float x = input.readCoordinate(0f);
+		float y = input.readCoordinate(0f);
+		this.position = new Point2f(x, y);
+		this.semantic = (Serializable) stream.readObject();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -79,6 +113,17 @@ public abstract class AbstractPerceivable implements Perceivable, Serializable {
 		return this.semantic;
 	}
 
+	/** {@inheritDoc}
+	 * <p>
+	 * The position of the copy is not shared with this object.
+	 */
+	@Override
+	protected Object clone() throws CloneNotSupportedException {
+		AbstractPerceivable copy = (AbstractPerceivable) super.clone();
+		copy.position = new Point2f(this.position.getX(), this.position.getY());
+		return copy;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -134,6 +134,8 @@ public class EnvironmentalObject extends AbstractPerceivable implements JaakObje
 	 */
 	private class RemoveItself extends EnvironmentalObjectRemovalInfluence {
 
+		private static final long serialVersionUID = 2217556317493866271L;
+
 		/**
 		 */
 		public RemoveItself() {
@@ -19,19 +19,37 @@
  */
 package io.sarl.jaak.environment.external.perception;
 
+import io.sarl.jaak.environment.external.time.TimeManager;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
 
 /** This class defines a substance with a single precision
  * floating point value as the internal substance value.
+ * <p>
+ * A float substance may be bound to a {@link FloatSubstanceStorage}
+ * by the environment. In this case, the substance is a view
+ * on the storage: its amount is read from and written into the storage.
+ * <p>
+ * A float substance may decay lazily: its amount is decreasing
+ * linearly with the simulation time, and it is computed from the
+ * time elapsed since the last change only when the amount is read.
+ * The lazy decay is applied when the substance is not bound to a
+ * storage, and when the environment has given it a clock.
+ * <p>
+ * A copy of a float substance has the current amount of the substance,
+ * and it is neither bound to a storage nor given a clock.
  *
  * @author $Author: sgalland$
  * @version $FullVersion$
  * @mavengroupid $GroupId$
  * @mavenartifactid $ArtifactId$
  */
-public abstract class FloatSubstance extends AbstractNumberSubstance {
+public abstract class FloatSubstance extends AbstractNumberSubstance implements Cloneable {
 
 	private static final long serialVersionUID = -6809995815683796406L;
 
@@ -39,6 +57,13 @@ public abstract class FloatSubstance extends AbstractNumberSubstance {
 	 */
 	protected float value;
 
+	private transient FloatSubstanceStorage storage;
+	private transient int storageIndex;
+
+	private float decay;
+	private transient TimeManager clock;
+	private transient float decayTime;
+
 	/**
 	 * @param semantic is the semantic associated to this environmental object.
 	 */
@@ -55,12 +80,111 @@ public abstract class FloatSubstance extends AbstractNumberSubstance {
 		this.value = initialValue;
 	}
 
+	/** Change the lazy decay of this substance.
+	 *
+	 * @param decayPerSecond is the amount of substance which is disappearing
+	 * during one second, or zero to disable the lazy decay.
+	 */
+	protected final void setLazyDecay(float decayPerSecond) {
+		settle();
+		this.decay = Math.max(0f, decayPerSecond);
+	}
+
+	/** Replies the amount of substance which is disappearing during one second
+	 * when the lazy decay is enabled.
+	 *
+	 * @return the decay per second, or zero if the lazy decay is disabled.
+	 */
+	public final float getLazyDecay() {
+		return this.decay;
+	}
+
+	/** Replies if this substance is decaying lazily.
+	 *
+	 * @return <code>true</code> if the lazy decay is enabled.
+	 */
+	public final boolean isLazyDecay() {
+		return this.decay > 0f;
+	}
+
+	/** Change the clock which is used to compute the lazy decay.
+	 * The amount is computed with the previous clock before the change.
+	 *
+	 * @param clock is the clock, or <code>null</code> to stop the decay.
+	 */
+	void setClock(TimeManager clock) {
+		settle();
+		this.clock = clock;
+		if (clock != null) {
+			this.decayTime = clock.getCurrentTime(TimeUnit.SECONDS);
+		}
+	}
+
+	/** Save the decayed amount in the value of this substance, and
+	 * restart the decay from the current time.
+	 */
+	private void settle() {
+		TimeManager c = this.clock;
+		if (c != null && this.storage == null) {
+			this.value = currentValue();
+			this.decayTime = c.getCurrentTime(TimeUnit.SECONDS);
+		}
+	}
+
+	/** Bind this substance to the given storage.
+	 *
+	 * @param storage is the storage of the amount of substance.
+	 * @param index is the index of the amount in the storage.
+	 */
+	void bind(FloatSubstanceStorage storage, int index) {
+		settle();
+		this.storage = storage;
+		this.storageIndex = index;
+	}
+
+	/** Unbind this substance from its storage, if any, and
+	 * change its amount.
+	 *
+	 * @param amount is the new amount of substance.
+	 */
+	void setAmount(float amount) {
+		this.storage = null;
+		this.value = amount;
+		TimeManager c = this.clock;
+		if (c != null) {
+			this.decayTime = c.getCurrentTime(TimeUnit.SECONDS);
+		}
+	}
+
+	/** Replies the current amount of substance.
+	 *
+	 * @return the amount of substance.
+	 */
+	private float currentValue() {
+		FloatSubstanceStorage s = this.storage;
+		if (s != null) {
+			return s.getValue(this.storageIndex);
+		}
+		TimeManager c = this.clock;
+		if (c != null && this.decay > 0f) {
+			float elapsed = c.getCurrentTime(TimeUnit.SECONDS) - this.decayTime;
+			return Math.max(0f, this.value - this.decay * elapsed);
+		}
+		return this.value;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	protected void increment(float a) {
-		this.value += a;
+		FloatSubstanceStorage s = this.storage;
+		if (s != null) {
+			s.setValue(this.storageIndex, s.getValue(this.storageIndex) + a);
+		} else {
+			settle();
+			this.value += a;
+		}
 	}
 
 	/**
@@ -68,18 +192,44 @@ public abstract class FloatSubstance extends AbstractNumberSubstance {
 	 */
 	@Override
 	protected void decrement(float a) {
-		this.value -= a;
-		if (this.value < 0f) {
-			this.value = 0f;
+		float v = Math.max(0f, currentValue() - a);
+		FloatSubstanceStorage s = this.storage;
+		if (s != null) {
+			s.setValue(this.storageIndex, v);
+		} else {
+			settle();
+			this.value = v;
 		}
 	}
 
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		if (this.storage != null) {
+			this.value = currentValue();
+		} else {
+			settle();
+		}
+		stream.defaultWriteObject();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Object clone() throws CloneNotSupportedException {
+		FloatSubstance copy = (FloatSubstance) super.clone();
+		copy.value = currentValue();
+		copy.storage = null;
+		copy.storageIndex = 0;
+		copy.clock = null;
+		return copy;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public final boolean isDisappeared() {
-		return this.value <= 0f;
+		return currentValue() <= 0f;
 	}
 
 	/**
@@ -87,7 +237,7 @@ public abstract class FloatSubstance extends AbstractNumberSubstance {
 	 */
 	@Override
 	public final Float getAmount() {
-		return Float.valueOf(this.value);
+		return Float.valueOf(currentValue());
 	}
 
 	/**
@@ -95,7 +245,7 @@ public abstract class FloatSubstance extends AbstractNumberSubstance {
 	 */
 	@Override
 	public final BigDecimal bigDecimalValue() {
-		return new BigDecimal(Float.toString(this.value));
+		return new BigDecimal(Float.toString(currentValue()));
 	}
 
 	/**
@@ -103,7 +253,7 @@ public abstract class FloatSubstance extends AbstractNumberSubstance {
 	 */
 	@Override
 	public final BigInteger bigIntegerValue() {
-		return new BigInteger(Float.toString(this.value));
+		return new BigInteger(Float.toString(currentValue()));
 	}
 
 	/**
@@ -111,7 +261,7 @@ public abstract class FloatSubstance extends AbstractNumberSubstance {
 	 */
 	@Override
 	public final byte byteValue() {
-		return (byte) this.value;
+		return (byte) currentValue();
 	}
 
 	/**
@@ -119,7 +269,7 @@ public abstract class FloatSubstance extends AbstractNumberSubstance {
 	 */
 	@Override
 	public final double doubleValue() {
-		return this.value;
+		return currentValue();
 	}
 
 	/**
@@ -127,7 +277,7 @@ public abstract class FloatSubstance extends AbstractNumberSubstance {
 	 */
 	@Override
 	public final float floatValue() {
-		return this.value;
+		return currentValue();
 	}
 
 	/**
@@ -135,7 +285,7 @@ public abstract class FloatSubstance extends AbstractNumberSubstance {
 	 */
 	@Override
 	public final int intValue() {
-		return (int) this.value;
+		return (int) currentValue();
 	}
 
 	/**
@@ -143,7 +293,7 @@ public abstract class FloatSubstance extends AbstractNumberSubstance {
 	 */
 	@Override
 	public final long longValue() {
-		return (long) this.value;
+		return (long) currentValue();
 	}
 
 	/**
@@ -151,7 +301,7 @@ public abstract class FloatSubstance extends AbstractNumberSubstance {
 	 */
 	@Override
 	public final short shortValue() {
-		return (short) this.value;
+		return (short) currentValue();
 	}
 
 }
@@ -0,0 +1,49 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.external.perception;
+
+/** This interface defines a primitive storage of substance amounts,
+ * on which a {@link FloatSubstance} may be bound.
+ * <p>
+ * When a substance is bound to a storage, its amount is read from
+ * and written into the storage instead of its own field.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public interface FloatSubstanceStorage {
+
+	/** Replies the amount of substance at the given index.
+	 *
+	 * @param index is the index of the amount in the storage.
+	 * @return the amount of substance.
+	 */
+	float getValue(int index);
+
+	/** Change the amount of substance at the given index.
+	 *
+	 * @param index is the index of the amount in the storage.
+	 * @param value is the new amount of substance.
+	 */
+	void setValue(int index, float value);
+
+}
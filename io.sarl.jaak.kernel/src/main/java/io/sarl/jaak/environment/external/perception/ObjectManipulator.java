@@ -19,6 +19,8 @@
  */
 package io.sarl.jaak.environment.external.perception;
 
+import io.sarl.jaak.environment.external.time.TimeManager;
+
 /** This interface permits to manipulate the environmental objects.
  *
  * @author $Author: sgalland$
@@ -50,4 +52,39 @@ public interface ObjectManipulator {
 	 */
 	Substance combine(Substance s1, Substance s2, boolean additionOperation);
 
+	/** Bind the given substance to a storage of amounts: the
+	 * substance becomes a view on the storage.
+	 *
+	 * @param substance is the substance to bind.
+	 * @param storage is the storage of the amount of substance.
+	 * @param index is the index of the amount in the storage.
+	 */
+	void bind(FloatSubstance substance, FloatSubstanceStorage storage, int index);
+
+	/** Unbind the given substance from its storage, if any, and
+	 * set its amount.
+	 *
+	 * @param substance is the substance to change.
+	 * @param amount is the new amount of substance.
+	 */
+	void setAmount(FloatSubstance substance, float amount);
+
+	/** Change the clock which is used to compute the lazy decay
+	 * of the given substance.
+	 *
+	 * @param substance is the substance to change.
+	 * @param clock is the clock, or <code>null</code> to stop the decay.
+	 * @see FloatSubstance#isLazyDecay()
+	 */
+	void setClock(FloatSubstance substance, TimeManager clock);
+
+	/** Create a copy of the given substance. The copy has the current
+	 * amount of the substance; it is neither bound to a storage, nor
+	 * given a clock.
+	 *
+	 * @param substance is the substance to copy.
+	 * @return the copy.
+	 */
+	FloatSubstance copy(FloatSubstance substance);
+
 }
@@ -19,6 +19,7 @@
  */
 package io.sarl.jaak.environment.external.perception;
 
+import io.sarl.jaak.environment.external.time.TimeManager;
 
 /** This class permits to manipulate the environmental objects.
  *
@@ -57,4 +58,44 @@ public class StandardObjectManipulator implements ObjectManipulator {
 		return s1.decrement(s2);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void bind(FloatSubstance substance, FloatSubstanceStorage storage, int index) {
+		assert (substance != null);
+		substance.bind(storage, index);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setAmount(FloatSubstance substance, float amount) {
+		assert (substance != null);
+		substance.setAmount(amount);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setClock(FloatSubstance substance, TimeManager clock) {
+		assert (substance != null);
+		substance.setClock(clock);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FloatSubstance copy(FloatSubstance substance) {
+		assert (substance != null);
+		try {
+			return (FloatSubstance) substance.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 }
@@ -21,8 +21,9 @@ package io.sarl.jaak.environment.internal;
 
 import io.sarl.jaak.environment.external.body.TurtleBody;
 import io.sarl.jaak.environment.external.perception.EnvironmentalObject;
+import io.sarl.jaak.environment.external.perception.FloatSubstance;
 
-import org.arakhne.afc.math.discrete.object2d.Point2i;
+import org.arakhne.afc.math.continous.object2d.Point2f;
 
 /** This interface defines a grid for the Jaak environment model.
  *
@@ -66,6 +67,28 @@ public interface GridModel {
 	 */
 	Iterable<? extends EnvironmentalObject> getObjects(int x, int y);
 
+	/** Replies the dense layer of the substances of the given type.
+	 *
+	 * @param type is the type of the substances.
+	 * @return the layer, or <code>null</code> if no layer is
+	 * registered for the given type.
+	 */
+	SubstanceLayerModel getSubstanceLayer(Class<? extends FloatSubstance> type);
+
+	/** Replace the amounts of the dense layer of the substances of the given type.
+	 * <p>
+	 * The amounts are copied into the layer region by region, under the
+	 * lock of each region. The cells which are receiving a first amount
+	 * of substance are given a substance object, and the substance objects
+	 * of the cells which are emptied are removed from the grid.
+	 *
+	 * @param type is the type of the substances.
+	 * @param values is the new amounts, with one value per cell.
+	 * @return <code>true</code> if the amounts were replaced, <code>false</code>
+	 * if no layer is registered for the given type.
+	 */
+	boolean setSubstanceValues(Class<? extends FloatSubstance> type, float[] values);
+
 	/** Validate the given position to be on the grid.
 	 * This function ensures that the given position is
 	 * updated to fit the bounds of the grid.
@@ -75,6 +98,6 @@ public interface GridModel {
 	 * @param position is the position to validate.
 	 * @return how the position has been changed.
 	 */
-	ValidationResult validatePosition(boolean isWrapped, boolean allowDiscard, Point2i position);
+	ValidationResult validatePosition(boolean isWrapped, boolean allowDiscard, Point2f position);
 
 }
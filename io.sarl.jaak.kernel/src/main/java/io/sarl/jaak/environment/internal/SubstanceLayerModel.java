@@ -0,0 +1,59 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal;
+
+import io.sarl.jaak.environment.external.perception.FloatSubstance;
+
+/** This interface defines a dense layer of substance amounts
+ * over the grid of the Jaak environment.
+ * <p>
+ * The amounts are stored in a primitive array with one value
+ * per cell; the value of the cell <code>(x, y)</code> is at
+ * the index <code>y * width + x</code>.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public interface SubstanceLayerModel {
+
+	/** Replies the type of the substance stored in the layer.
+	 *
+	 * @return the type of the substance.
+	 */
+	Class<? extends FloatSubstance> getType();
+
+	/** Replies the maximal amount of substance in a cell.
+	 *
+	 * @return the maximal amount.
+	 */
+	float getMaximum();
+
+	/** Replies the array of the amounts of substance.
+	 * The replied array is the storage of the layer, not a copy:
+	 * it must not be changed directly.
+	 *
+	 * @return the amounts of substance.
+	 * @see GridModel#setSubstanceValues(Class, float[])
+	 */
+	float[] getValues();
+
+}
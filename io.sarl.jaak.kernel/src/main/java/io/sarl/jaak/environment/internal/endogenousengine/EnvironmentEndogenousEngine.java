@@ -43,4 +43,9 @@ public interface EnvironmentEndogenousEngine {
 	 */
 	Collection<Influence> computeInfluences(GridModel grid, TimeManager timeManager);
 
+	/** Release the resources of the engine.
+	 * The engine may still be used after this call.
+	 */
+	void close();
+
 }
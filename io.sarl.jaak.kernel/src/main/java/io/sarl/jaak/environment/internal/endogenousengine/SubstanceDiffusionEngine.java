@@ -0,0 +1,327 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.endogenousengine;
+
+import io.sarl.jaak.environment.external.influence.Influence;
+import io.sarl.jaak.environment.external.perception.FloatSubstance;
+import io.sarl.jaak.environment.external.time.TimeManager;
+import io.sarl.jaak.environment.internal.GridModel;
+import io.sarl.jaak.environment.internal.SubstanceLayerModel;
+import io.sarl.jaak.environment.internal.model.JaakEnvironment;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/** This class defines an endogenous engine which is diffusing
+ * the substances stored in dense layers.
+ * <p>
+ * At each step, the new amounts of a layer are computed from its current
+ * amounts into a second buffer, which is then copied into the layer by
+ * {@link GridModel#setSubstanceValues(Class, float[])}, under the locks
+ * of the grid. The grid is creating the substance objects of the cells
+ * which are reached by the diffusion, and is removing the substance objects
+ * of the emptied cells.
+ * The amount of a cell is exchanged with its four neighbours according to
+ * the diffusion coefficient of the substance type. The evaporation is not
+ * computed by this engine: it is a property of the layer, which is changed
+ * with {@link JaakEnvironment#setSubstanceEvaporation(Class, float, float)}
+ * and applied by the grid. When the environment is wrapped the
+ * borders of the grid are exchanging with the opposite borders; otherwise
+ * nothing is leaving the grid by its borders.
+ * <p>
+ * The rows of the grid are computed in parallel by a fork-join pool. The
+ * amounts are written directly in the layers, so that this engine is not
+ * generating any influence. The layers must be registered with
+ * {@link JaakEnvironment#registerSubstanceLayer(Class, float)}, and must not
+ * be changed by another thread while the engine is running. The pool
+ * created by the engine is released by {@link #close()}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class SubstanceDiffusionEngine implements EnvironmentEndogenousEngine {
+
+	/** Default number of rows under which a part of the grid is computed
+	 * by a single task.
+	 */
+	public static final int DEFAULT_ROWS_PER_TASK = 32;
+
+	/** Maximal fraction of the amount of a cell which is given to each
+	 * neighbour during a step. Above this value the explicit diffusion
+	 * scheme becomes unstable.
+	 */
+	private static final float MAX_EXCHANGE_RATE = .25f;
+
+	/** Number of neighbours of a cell.
+	 */
+	private static final int NEIGHBOURS = 4;
+
+	private final JaakEnvironment environment;
+	private final Map<Class<? extends FloatSubstance>, Float> diffusions = new ConcurrentHashMap<>();
+	private final Map<Class<? extends FloatSubstance>, float[]> buffers = new HashMap<>();
+	private volatile int rowsPerTask = DEFAULT_ROWS_PER_TASK;
+	private volatile ForkJoinPool pool;
+	private boolean isPoolOwned;
+
+	/**
+	 * @param environment is the environment which is providing the wrapping flag.
+	 */
+	public SubstanceDiffusionEngine(JaakEnvironment environment) {
+		assert (environment != null);
+		this.environment = environment;
+	}
+
+	/** Change the diffusion of the substances of the given type.
+	 *
+	 * @param type is the type of the substances.
+	 * @param coefficient is the fraction of the amount of a cell which is
+	 * given to each of its neighbours during one second, or zero to
+	 * disable the diffusion.
+	 */
+	public void setDiffusion(Class<? extends FloatSubstance> type, float coefficient) {
+		assert (type != null);
+		if (coefficient <= 0f) {
+			this.diffusions.remove(type);
+		} else {
+			this.diffusions.put(type, coefficient);
+		}
+	}
+
+	/** Replies the diffusion coefficient of the substances of the given type.
+	 *
+	 * @param type is the type of the substances.
+	 * @return the fraction of the amount of a cell which is given to each
+	 * of its neighbours during one second.
+	 */
+	public float getDiffusionCoefficient(Class<? extends FloatSubstance> type) {
+		Float coefficient = this.diffusions.get(type);
+		return coefficient == null ? 0f : coefficient.floatValue();
+	}
+
+	/** Change the number of rows under which a part of the grid is
+	 * computed by a single task.
+	 *
+	 * @param rows is the number of rows per task.
+	 */
+	public void setRowsPerTask(int rows) {
+		this.rowsPerTask = Math.max(1, rows);
+	}
+
+	/** Replies the number of rows under which a part of the grid is
+	 * computed by a single task.
+	 *
+	 * @return the number of rows per task.
+	 */
+	public int getRowsPerTask() {
+		return this.rowsPerTask;
+	}
+
+	/** Change the pool of threads which is used to compute the layers.
+	 * The given pool is not shut down by the engine.
+	 *
+	 * @param pool is the pool to use, or <code>null</code> to use
+	 * a pool created by the engine.
+	 */
+	public synchronized void setPool(ForkJoinPool pool) {
+		shutdownPool();
+		this.pool = pool;
+	}
+
+	private ForkJoinPool getPool() {
+		ForkJoinPool p = this.pool;
+		if (p == null) {
+			p = new ForkJoinPool();
+			this.pool = p;
+			this.isPoolOwned = true;
+		}
+		return p;
+	}
+
+	private void shutdownPool() {
+		if (this.isPoolOwned) {
+			this.pool.shutdown();
+			this.isPoolOwned = false;
+		}
+		this.pool = null;
+	}
+
+	/** {@inheritDoc}
+	 * <p>
+	 * The pool of threads which was created by the engine is shut down.
+	 * A pool given to {@link #setPool(ForkJoinPool)} is not shut down.
+	 */
+	@Override
+	public synchronized void close() {
+		shutdownPool();
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public synchronized Collection<Influence> computeInfluences(GridModel grid, TimeManager timeManager) {
+		float duration = timeManager.getLastStepDuration(TimeUnit.SECONDS);
+		if (duration > 0f && !this.diffusions.isEmpty()) {
+			int width = grid.getWidth();
+			int height = grid.getHeight();
+			boolean wrapped = this.environment.isWrapped();
+			int rows = this.rowsPerTask;
+			for (Map.Entry<Class<? extends FloatSubstance>, Float> entry : this.diffusions.entrySet()) {
+				SubstanceLayerModel layer = grid.getSubstanceLayer(entry.getKey());
+				if (layer != null) {
+					float[] source = layer.getValues();
+					float[] target = this.buffers.get(entry.getKey());
+					if (target == null || target.length != source.length) {
+						target = new float[source.length];
+					}
+					DiffusionTask task = new DiffusionTask(source, target, width, height, wrapped,
+							Math.min(MAX_EXCHANGE_RATE, entry.getValue().floatValue() * duration),
+							layer.getMaximum(), 0, height, rows);
+					if (height <= rows) {
+						task.compute();
+					} else {
+						getPool().invoke(task);
+					}
+					grid.setSubstanceValues(entry.getKey(), target);
+					this.buffers.put(entry.getKey(), target);
+				}
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	/** Compute the new amounts of a row of cells.
+	 *
+	 * @param source is the current amounts.
+	 * @param target is the array to fill with the new amounts.
+	 * @param width is the width of the grid.
+	 * @param row is the index of the first cell of the row.
+	 * @param north is the index of the first cell of the row above.
+	 * @param south is the index of the first cell of the row below.
+	 * @param wrapped indicates if the first and last cells of the row are neighbours.
+	 * @param rate is the fraction of the amount given to each neighbour.
+	 * @param maximum is the maximal amount in a cell.
+	 */
+	static void diffuseRow(float[] source, float[] target, int width, int row, int north, int south,
+			boolean wrapped, float rate, float maximum) {
+		int last = width - 1;
+		float c;
+		float v;
+		for (int x = 0; x < width; ++x) {
+			c = source[row + x];
+			if (x > 0 && x < last) {
+				v = source[row + x - 1] + source[row + x + 1];
+			} else {
+				int west = x > 0 ? x - 1 : (wrapped ? last : x);
+				int east = x < last ? x + 1 : (wrapped ? 0 : x);
+				v = source[row + west] + source[row + east];
+			}
+			v += source[north + x] + source[south + x];
+			v = c + rate * (v - NEIGHBOURS * c);
+			target[row + x] = v < maximum ? v : maximum;
+		}
+	}
+
+	/** Task which is computing the new amounts of a range of rows.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static final class DiffusionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -6370315906581372184L;
+
+		private final float[] source;
+		private final float[] target;
+		private final int width;
+		private final int height;
+		private final boolean wrapped;
+		private final float rate;
+		private final float maximum;
+		private final int startRow;
+		private final int endRow;
+		private final int rowsPerTask;
+
+		/**
+		 * @param source is the current amounts.
+		 * @param target is the array to fill with the new amounts.
+		 * @param width is the width of the grid.
+		 * @param height is the height of the grid.
+		 * @param wrapped indicates if the grid is wrapped.
+		 * @param rate is the fraction of the amount given to each neighbour.
+		 * @param maximum is the maximal amount in a cell.
+		 * @param startRow is the first row to compute.
+		 * @param endRow is the index after the last row to compute.
+		 * @param rowsPerTask is the number of rows under which the task is not split.
+		 */
+		public DiffusionTask(float[] source, float[] target, int width, int height, boolean wrapped,
+				float rate, float maximum, int startRow, int endRow, int rowsPerTask) {
+			this.source = source;
+			this.target = target;
+			this.width = width;
+			this.height = height;
+			this.wrapped = wrapped;
+			this.rate = rate;
+			this.maximum = maximum;
+			this.startRow = startRow;
+			this.endRow = endRow;
+			this.rowsPerTask = rowsPerTask;
+		}
+
+		private DiffusionTask split(int start, int end) {
+			return new DiffusionTask(this.source, this.target, this.width, this.height, this.wrapped,
+					this.rate, this.maximum, start, end, this.rowsPerTask);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void compute() {
+			if (this.endRow - this.startRow > this.rowsPerTask) {
+				int middle = (this.startRow + this.endRow) >>> 1;
+				invokeAll(split(this.startRow, middle), split(middle, this.endRow));
+			} else {
+				int lastRow = this.height - 1;
+				int row;
+				int north;
+				int south;
+				for (int y = this.startRow; y < this.endRow; ++y) {
+					row = y * this.width;
+					north = y > 0 ? row - this.width : (this.wrapped ? lastRow * this.width : row);
+					south = y < lastRow ? row + this.width : (this.wrapped ? 0 : row);
+					diffuseRow(this.source, this.target, this.width, row, north, south,
+							this.wrapped, this.rate, this.maximum);
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+import java.util.Collection;
+
+/** This interface defines the storage of the cells of a {@link JaakGrid}.
+ * <p>
+ * The storage is not thread-safe; the grid is responsible
+ * of the synchronization of the accesses.
+ *
+ * @param <C> is the type of the cells.
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+interface CellStorage<C> {
+
+	/** Replies the binary logarithm of the side of the square regions
+	 * of the storage. The storage of the cells of a region is independent
+	 * of the other regions: the cells of different regions may be
+	 * accessed in parallel, each region under its own lock.
+	 *
+	 * @return the binary logarithm of the size of a region.
+	 */
+	int getRegionShift();
+
+	/** Replies the cell at the given position.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @return the cell, or <code>null</code> if no cell was stored
+	 * or if the position is outside the storage.
+	 */
+	C get(int x, int y);
+
+	/** Store the given cell at the given position.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @param cell is the cell to store.
+	 * @return <code>true</code> if the cell was stored, <code>false</code>
+	 * if the position is outside the storage.
+	 */
+	boolean put(int x, int y, C cell);
+
+	/** Remove the given cell from the given position.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @param cell is the cell to remove.
+	 */
+	void remove(int x, int y, C cell);
+
+	/** Add in the given collection the cells inside the
+	 * rectangle <code>[x1, x2[ x [y1, y2[</code>.
+	 *
+	 * @param x1 is the lower coordinate of the area.
+	 * @param y1 is the lower coordinate of the area.
+	 * @param x2 is the upper coordinate of the area, exclusive.
+	 * @param y2 is the upper coordinate of the area, exclusive.
+	 * @param result is the collection to fill.
+	 */
+	void find(float x1, float y1, float x2, float y2, Collection<? super C> result);
+
+}
@@ -0,0 +1,413 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.arakhne.afc.math.continous.object2d.Point2f;
+
+/** This class defines an index of the free cells of the grid.
+ * <p>
+ * The grid is split in square tiles of {@link TiledCellStorage#TILE_SIZE}
+ * cells of side. Each tile with at least one occupied cell has a compact
+ * array of its free cells, updated by swap-remove, the index of the slot
+ * of each of its cells in this array, and one bitmap word of free cells
+ * per row. The tiles without any occupied cell have no array: all their
+ * cells are implicitly free. A Fenwick tree over the number of free cells
+ * of the tiles permits to select the n-th free cell of the grid.
+ * <p>
+ * The index is sharded by tile: the data of a tile must be read and
+ * changed under the lock of the region of the grid which is containing
+ * the tile. The numbers of free cells in the Fenwick tree are updated
+ * atomically, without lock; they are only hints for selecting a tile,
+ * and the rank of a cell in a tile is always checked under the lock.
+ * <p>
+ * A free cell of the grid is selected in a time logarithmic to the number of
+ * tiles. The free cells of an area are counted from the numbers of free cells
+ * of the tiles inside the area and from the bitmap rows of the tiles on the
+ * border of the area.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+final class FreeCellIndex {
+
+	private static final int SHIFT = TiledCellStorage.TILE_SHIFT;
+	private static final int SIZE = TiledCellStorage.TILE_SIZE;
+	private static final int MASK = SIZE - 1;
+
+	private final int width;
+	private final int height;
+	private final int tileColumns;
+	private final int[] tileFree;
+	private final AtomicIntegerArray tree;
+	private final short[][] cells;
+	private final short[][] slots;
+	private final long[][] rows;
+	private final AtomicInteger freeCount;
+
+	/** Create an index in which all the cells are free.
+	 *
+	 * @param width is the width of the grid.
+	 * @param height is the height of the grid.
+	 */
+	public FreeCellIndex(int width, int height) {
+		assert (width > 0);
+		assert (height > 0);
+		this.width = width;
+		this.height = height;
+		this.tileColumns = ((width - 1) >> SHIFT) + 1;
+		int tileCount = this.tileColumns * (((height - 1) >> SHIFT) + 1);
+		this.tileFree = new int[tileCount];
+		this.cells = new short[tileCount][];
+		this.slots = new short[tileCount][];
+		this.rows = new long[tileCount][];
+		int[] t = new int[tileCount + 1];
+		for (int i = 0; i < tileCount; ++i) {
+			this.tileFree[i] = capacity(i);
+			t[i + 1] += this.tileFree[i];
+			int parent = (i + 1) + ((i + 1) & -(i + 1));
+			if (parent <= tileCount) {
+				t[parent] += t[i + 1];
+			}
+		}
+		this.tree = new AtomicIntegerArray(t);
+		this.freeCount = new AtomicInteger(width * height);
+	}
+
+	/** Replies the tile which is containing the given cell.
+	 *
+	 * @param x is the coordinate of the cell, inside the grid.
+	 * @param y is the coordinate of the cell, inside the grid.
+	 * @return the index of the tile.
+	 */
+	public int getTile(int x, int y) {
+		return (y >> SHIFT) * this.tileColumns + (x >> SHIFT);
+	}
+
+	/** Replies the lower x coordinate of the given tile.
+	 *
+	 * @param tile is the index of the tile.
+	 * @return the x coordinate of the first cell of the tile.
+	 */
+	public int getTileX(int tile) {
+		return (tile % this.tileColumns) << SHIFT;
+	}
+
+	/** Replies the lower y coordinate of the given tile.
+	 *
+	 * @param tile is the index of the tile.
+	 * @return the y coordinate of the first cell of the tile.
+	 */
+	public int getTileY(int tile) {
+		return (tile / this.tileColumns) << SHIFT;
+	}
+
+	private int tileWidth(int tile) {
+		return Math.min(SIZE, this.width - getTileX(tile));
+	}
+
+	private int tileHeight(int tile) {
+		return Math.min(SIZE, this.height - getTileY(tile));
+	}
+
+	private int capacity(int tile) {
+		return tileWidth(tile) * tileHeight(tile);
+	}
+
+	private void updateTree(int tile, int delta) {
+		for (int i = tile + 1; i < this.tree.length(); i += i & -i) {
+			this.tree.addAndGet(i, delta);
+		}
+	}
+
+	/** Replies the number of free cells.
+	 * This function does not need any lock.
+	 *
+	 * @return the number of free cells.
+	 */
+	public int getFreeCount() {
+		return this.freeCount.get();
+	}
+
+	/** Replies if the given cell is free.
+	 * The lock of the region of the cell must be owned by the caller.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @return <code>true</code> if the cell is free, otherwise <code>false</code>.
+	 */
+	public boolean isFree(int x, int y) {
+		if (x < 0 || y < 0 || x >= this.width || y >= this.height) {
+			return false;
+		}
+		long[] r = this.rows[getTile(x, y)];
+		return r == null || (r[y & MASK] & (1L << (x & MASK))) != 0;
+	}
+
+	/** Change the free state of the given cell.
+	 * The lock of the region of the cell must be owned by the caller.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @param free indicates if the cell is free.
+	 */
+	public void setFree(int x, int y, boolean free) {
+		if (x < 0 || y < 0 || x >= this.width || y >= this.height) {
+			return;
+		}
+		int t = getTile(x, y);
+		int l = ((y & MASK) << SHIFT) | (x & MASK);
+		if (free) {
+			addFreeCell(t, l);
+		} else {
+			removeFreeCell(t, l);
+		}
+	}
+
+	private void addFreeCell(int tile, int local) {
+		short[] s = this.slots[tile];
+		if (s == null || s[local] >= 0) {
+			return;
+		}
+		int n = this.tileFree[tile];
+		this.cells[tile][n] = (short) local;
+		s[local] = (short) n;
+		this.rows[tile][local >> SHIFT] |= 1L << (local & MASK);
+		++this.tileFree[tile];
+		this.freeCount.incrementAndGet();
+		updateTree(tile, 1);
+		if (this.tileFree[tile] == capacity(tile)) {
+			// All the cells are free: go back to the implicit representation
+			this.cells[tile] = null;
+			this.slots[tile] = null;
+			this.rows[tile] = null;
+		}
+	}
+
+	private void removeFreeCell(int tile, int local) {
+		if (this.slots[tile] == null) {
+			materialize(tile);
+		}
+		short[] s = this.slots[tile];
+		int slot = s[local];
+		if (slot < 0) {
+			return;
+		}
+		short[] c = this.cells[tile];
+		int last = this.tileFree[tile] - 1;
+		short moved = c[last];
+		c[slot] = moved;
+		s[moved] = (short) slot;
+		s[local] = -1;
+		this.rows[tile][local >> SHIFT] &= ~(1L << (local & MASK));
+		--this.tileFree[tile];
+		this.freeCount.decrementAndGet();
+		updateTree(tile, -1);
+	}
+
+	private void materialize(int tile) {
+		short[] c = new short[SIZE * SIZE];
+		short[] s = new short[SIZE * SIZE];
+		long[] r = new long[SIZE];
+		Arrays.fill(s, (short) -1);
+		int tw = tileWidth(tile);
+		int th = tileHeight(tile);
+		long row = tw == Long.SIZE ? -1L : (1L << tw) - 1;
+		int n = 0;
+		int l;
+		for (int ly = 0; ly < th; ++ly) {
+			r[ly] = row;
+			for (int lx = 0; lx < tw; ++lx) {
+				l = (ly << SHIFT) | lx;
+				c[n] = (short) l;
+				s[l] = (short) n;
+				++n;
+			}
+		}
+		this.cells[tile] = c;
+		this.slots[tile] = s;
+		this.rows[tile] = r;
+	}
+
+	/** Replies the tile which is containing the n-th free cell of the grid,
+	 * according to the numbers of free cells in the Fenwick tree.
+	 * This function does not need any lock.
+	 *
+	 * @param rank is the rank of the free cell in the grid.
+	 * @return the index of the tile.
+	 * @see #getFreeCountBefore(int)
+	 */
+	public int findTile(int rank) {
+		int tile = 0;
+		int remaining = rank;
+		int length = this.tree.length();
+		int value;
+		for (int step = Integer.highestOneBit(length - 1); step > 0; step >>= 1) {
+			int next = tile + step;
+			if (next < length) {
+				value = this.tree.get(next);
+				if (value <= remaining) {
+					tile = next;
+					remaining -= value;
+				}
+			}
+		}
+		return Math.min(tile, this.tileFree.length - 1);
+	}
+
+	/** Replies the number of free cells in the tiles before the given tile,
+	 * according to the Fenwick tree.
+	 * This function does not need any lock.
+	 *
+	 * @param tile is the index of the tile.
+	 * @return the number of free cells before the tile.
+	 */
+	public int getFreeCountBefore(int tile) {
+		int count = 0;
+		for (int i = tile; i > 0; i -= i & -i) {
+			count += this.tree.get(i);
+		}
+		return count;
+	}
+
+	/** Replies the position of the n-th free cell of the given tile.
+	 * The lock of the region of the tile must be owned by the caller.
+	 *
+	 * @param tile is the index of the tile.
+	 * @param rank is the rank of the free cell in the tile.
+	 * @return the position of the cell, or <code>null</code> if the tile
+	 * has not enough free cells.
+	 */
+	public Point2f getFreeCell(int tile, int rank) {
+		if (rank < 0 || rank >= this.tileFree[tile]) {
+			return null;
+		}
+		short[] c = this.cells[tile];
+		int lx;
+		int ly;
+		if (c == null) {
+			int tw = tileWidth(tile);
+			lx = rank % tw;
+			ly = rank / tw;
+		} else {
+			lx = c[rank] & MASK;
+			ly = c[rank] >> SHIFT;
+		}
+		return new Point2f(getTileX(tile) + lx, getTileY(tile) + ly);
+	}
+
+	/** Replies the number of free cells of the given tile which are inside the
+	 * area <code>[x1, x2[ x [y1, y2[</code>.
+	 * The lock of the region of the tile must be owned by the caller.
+	 * <p>
+	 * The area must be inside the grid. The cost is constant when the area
+	 * covers the whole tile, and linear to the number of rows of the tile
+	 * otherwise.
+	 *
+	 * @param tile is the index of the tile.
+	 * @param x1 is the lower coordinate of the area.
+	 * @param y1 is the lower coordinate of the area.
+	 * @param x2 is the upper coordinate of the area, exclusive.
+	 * @param y2 is the upper coordinate of the area, exclusive.
+	 * @return the number of free cells.
+	 */
+	public int countFreeCells(int tile, int x1, int y1, int x2, int y2) {
+		int tx = getTileX(tile);
+		int ty = getTileY(tile);
+		int sx = Math.max(x1, tx);
+		int sy = Math.max(y1, ty);
+		int ex = Math.min(x2, tx + tileWidth(tile));
+		int ey = Math.min(y2, ty + tileHeight(tile));
+		if (sx >= ex || sy >= ey) {
+			return 0;
+		}
+		long[] r = this.rows[tile];
+		if (r == null) {
+			return (ex - sx) * (ey - sy);
+		}
+		if (sx == tx && sy == ty && ex - sx == tileWidth(tile) && ey - sy == tileHeight(tile)) {
+			return this.tileFree[tile];
+		}
+		long mask = rowMask(sx - tx, ex - tx);
+		int n = 0;
+		for (int y = sy - ty; y < ey - ty; ++y) {
+			n += Long.bitCount(r[y] & mask);
+		}
+		return n;
+	}
+
+	/** Replies the position of the n-th free cell of the given tile which is inside
+	 * the area <code>[x1, x2[ x [y1, y2[</code>.
+	 * The lock of the region of the tile must be owned by the caller.
+	 *
+	 * @param tile is the index of the tile.
+	 * @param x1 is the lower coordinate of the area.
+	 * @param y1 is the lower coordinate of the area.
+	 * @param x2 is the upper coordinate of the area, exclusive.
+	 * @param y2 is the upper coordinate of the area, exclusive.
+	 * @param rank is the rank of the free cell in the area of the tile.
+	 * @return the position of the free cell, or <code>null</code> if the
+	 * area of the tile has not enough free cells.
+	 * @see #countFreeCells(int, int, int, int, int)
+	 */
+	public Point2f getFreeCell(int tile, int x1, int y1, int x2, int y2, int rank) {
+		int tx = getTileX(tile);
+		int ty = getTileY(tile);
+		int sx = Math.max(x1, tx);
+		int sy = Math.max(y1, ty);
+		int ex = Math.min(x2, tx + tileWidth(tile));
+		int ey = Math.min(y2, ty + tileHeight(tile));
+		if (rank < 0 || sx >= ex || sy >= ey) {
+			return null;
+		}
+		long[] r = this.rows[tile];
+		if (r == null) {
+			int w = ex - sx;
+			return rank < w * (ey - sy) ? new Point2f(sx + rank % w, sy + rank / w) : null;
+		}
+		long mask = rowMask(sx - tx, ex - tx);
+		int remaining = rank;
+		long free;
+		int n;
+		for (int y = sy - ty; y < ey - ty; ++y) {
+			free = r[y] & mask;
+			n = Long.bitCount(free);
+			if (remaining < n) {
+				for (int i = 0; i < remaining; ++i) {
+					free &= free - 1;
+				}
+				return new Point2f(tx + Long.numberOfTrailingZeros(free), ty + y);
+			}
+			remaining -= n;
+		}
+		return null;
+	}
+
+	private static long rowMask(int from, int to) {
+		long upper = to == Long.SIZE ? -1L : (1L << to) - 1;
+		return upper & (-1L << from);
+	}
+
+}
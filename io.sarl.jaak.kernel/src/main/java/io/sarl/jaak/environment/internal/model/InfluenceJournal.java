@@ -0,0 +1,378 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+import io.sarl.jaak.environment.external.frustum.TurtleFrustum;
+import io.sarl.jaak.environment.external.influence.DropDownInfluence;
+import io.sarl.jaak.environment.external.influence.Influence;
+import io.sarl.jaak.environment.external.influence.MotionInfluence;
+import io.sarl.jaak.environment.external.influence.PickUpInfluence;
+import io.sarl.jaak.environment.external.influence.SemanticChangeInfluence;
+import io.sarl.jaak.environment.external.perception.EnvironmentalObject;
+import io.sarl.jaak.environment.external.perception.Substance;
+import io.sarl.jaak.environment.external.time.TimeManager;
+import io.sarl.jaak.util.CompactOutput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.arakhne.afc.math.continous.object2d.Point2f;
+
+/** This class defines an append-only journal of the influences which are
+ * given to the influence solver of a {@link JaakEnvironment}.
+ * <p>
+ * The journal is composed of a checkpoint of the environment, which is
+ * taken when the journal is opened, and of a file in which a frame is
+ * appended at each simulation step. A frame contains the bodies added to
+ * and removed from the environment since the previous step, the influences
+ * of the turtles that are given to the solver, and the time of the step.
+ * The endogenous influences are not recorded: they are computed again
+ * by the environment when the journal is replayed by {@link InfluenceReplay}.
+ * <p>
+ * The file is written in memory-mapped regions, which are mapped one
+ * after the other when the file is growing.
+ * <p>
+ * The journal is fed by the environment between the turtle executions
+ * and the solving of the conflicts. If the journal cannot be written,
+ * the recording is stopped, and the error is thrown by {@link #close()}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see InfluenceReplay
+ */
+public final class InfluenceJournal implements Closeable {
+
+	/** Magic number at the beginning of the journal files.
+	 */
+	public static final int MAGIC = 0x4A4A524E;
+
+	/** Version of the format of the journal files.
+	 */
+	public static final int VERSION = 1;
+
+	/** Size of the header of the journal files, in bytes.
+	 * The header contains the magic number, the version, and the
+	 * time in seconds at which the journal was opened.
+	 */
+	public static final int HEADER_SIZE = 12;
+
+	/** Size of the regions of the file which are mapped in memory.
+	 */
+	static final int REGION_SIZE = 1 << 24;
+
+	/** Record that ends a frame: the time of the step.
+	 */
+	static final byte STEP = 0;
+
+	/** Record of a body added in the environment.
+	 */
+	static final byte BODY_ADDITION = 1;
+
+	/** Record of a body removed from the environment.
+	 */
+	static final byte BODY_REMOVAL = 2;
+
+	/** Record of a motion influence.
+	 */
+	static final byte MOTION = 3;
+
+	/** Record of an influence to pick up an object of the grid,
+	 * which is identified by its position, its type and its semantic.
+	 */
+	static final byte PICK_UP = 4;
+
+	/** Record of an influence to pick up a copy of an object,
+	 * e.g. an amount of substance.
+	 */
+	static final byte PICK_UP_COPY = 5;
+
+	/** Record of an influence to drop off an object.
+	 */
+	static final byte DROP_DOWN = 6;
+
+	/** Record of an influence to change the semantic of a body.
+	 */
+	static final byte SEMANTIC_CHANGE = 7;
+
+	private final JaakEnvironment environment;
+	private final FileChannel channel;
+	private final FrameBuffer frame = new FrameBuffer();
+	private MappedByteBuffer region;
+	private long regionPosition;
+	private ObjectOutputStream stream;
+	private CompactOutput output;
+	private int stepCount;
+	private IOException error;
+
+	/**
+	 * @param file
+	 * @param environment
+	 * @throws IOException
+	 */
+	private InfluenceJournal(Path file, JaakEnvironment environment) throws IOException {
+		this.environment = environment;
+		this.channel = FileChannel.open(file,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.region = this.channel.map(MapMode.READ_WRITE, 0, REGION_SIZE);
+		this.region.putInt(MAGIC);
+		this.region.putInt(VERSION);
+		this.region.putFloat(environment.getTimeManager().getCurrentTime(TimeUnit.SECONDS));
+	}
+
+	/** Open a journal for the given environment, and start the recording.
+	 * The current state of the environment is written in the
+	 * {@link #getStateFile(Path) state file} of the journal.
+	 * The journal must be opened between two simulation steps.
+	 *
+	 * @param file - the file of the journal.
+	 * @param environment - the environment to record.
+	 * @return the journal.
+	 * @throws IOException
+	 */
+	public static InfluenceJournal open(Path file, JaakEnvironment environment) throws IOException {
+		synchronized (environment) {
+			JaakCheckpoint.snapshot(environment).write(getStateFile(file));
+			InfluenceJournal journal = new InfluenceJournal(file, environment);
+			environment.setInfluenceJournal(journal);
+			return journal;
+		}
+	}
+
+	/** Replies the file in which the initial state of the environment
+	 * is written for the given journal file.
+	 *
+	 * @param file - the file of the journal.
+	 * @return the file of the initial state.
+	 */
+	public static Path getStateFile(Path file) {
+		return file.resolveSibling(file.getFileName() + ".state"); //$NON-NLS-1$
+	}
+
+	/** Replies the number of steps in the journal.
+	 *
+	 * @return the number of steps.
+	 */
+	public synchronized int getStepCount() {
+		return this.stepCount;
+	}
+
+	/** Stop the recording and close the journal.
+	 *
+	 * @throws IOException if the journal cannot be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this.environment) {
+			this.environment.setInfluenceJournal(null);
+		}
+		synchronized (this) {
+			if (this.channel.isOpen()) {
+				this.region.force();
+				long size = this.regionPosition + this.region.position();
+				this.region = null;
+				try {
+					this.channel.truncate(size);
+				} finally {
+					this.channel.close();
+				}
+			}
+			if (this.error != null) {
+				throw this.error;
+			}
+		}
+	}
+
+	private CompactOutput getOutput() throws IOException {
+		if (this.output == null) {
+			this.stream = new ObjectOutputStream(this.frame);
+			this.output = new CompactOutput(this.stream);
+		}
+		return this.output;
+	}
+
+	private void fail(IOException exception) {
+		this.error = exception;
+		this.environment.setInfluenceJournal(null);
+	}
+
+	/** Record the addition of a body in the environment.
+	 *
+	 * @param body - the added body.
+	 */
+	synchronized void recordBodyAddition(RealTurtleBody body) {
+		if (this.error == null) {
+			try {
+				getOutput();
+				this.stream.writeByte(BODY_ADDITION);
+				this.stream.writeObject(body);
+				TurtleFrustum frustum = body.getPerceptionFrustum();
+				this.stream.writeObject(frustum instanceof Serializable ? frustum : null);
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	/** Record the removal of a body from the environment.
+	 *
+	 * @param turtle - the identifier of the removed body.
+	 */
+	synchronized void recordBodyRemoval(UUID turtle) {
+		if (this.error == null) {
+			try {
+				CompactOutput out = getOutput();
+				this.stream.writeByte(BODY_REMOVAL);
+				out.writeUUID(turtle);
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	/** Record the influences of the given bodies, and the time
+	 * of the step. The influences are not removed from the bodies.
+	 *
+	 * @param timeManager - the time manager of the environment.
+	 * @param bodies - the bodies.
+	 */
+	synchronized void recordStep(TimeManager timeManager, Collection<RealTurtleBody> bodies) {
+		if (this.error == null) {
+			try {
+				CompactOutput out = getOutput();
+				MotionInfluence motion;
+				List<Influence> influences;
+				for (RealTurtleBody body : bodies) {
+					motion = body.getMotionInfluence();
+					if (motion != null) {
+						this.stream.writeByte(MOTION);
+						out.writeUUID(body.getTurtleId());
+						this.stream.writeFloat(motion.getLinearMotionX());
+						this.stream.writeFloat(motion.getLinearMotionY());
+						this.stream.writeFloat(motion.getAngularMotion());
+					}
+					influences = body.getOtherInfluences();
+					if (influences != null) {
+						for (Influence influence : influences) {
+							writeInfluence(out, body, influence);
+						}
+					}
+				}
+				this.stream.writeByte(STEP);
+				this.stream.writeFloat(timeManager.getCurrentTime());
+				this.stream.writeFloat(timeManager.getCurrentTime(TimeUnit.SECONDS));
+				this.stream.writeFloat(timeManager.getLastStepDuration());
+				this.stream.writeFloat(timeManager.getLastStepDuration(TimeUnit.SECONDS));
+				writeFrame();
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	private void writeInfluence(CompactOutput out, RealTurtleBody body, Influence influence) throws IOException {
+		if (influence instanceof PickUpInfluence) {
+			EnvironmentalObject object = ((PickUpInfluence) influence).getPickUpObject();
+			Point2f position = object.getPosition();
+			if (!(object instanceof Substance)
+				&& this.environment.getEnvironmentalObjects(position.getX(), position.getY()).contains(object)) {
+				// The objects are identified by their identity in the grid.
+				this.stream.writeByte(PICK_UP);
+				out.writeUUID(body.getTurtleId());
+				this.stream.writeFloat(position.getX());
+				this.stream.writeFloat(position.getY());
+				out.writeInterned(object.getClass().getName());
+				out.writeInterned(object.getSemantic());
+			} else {
+				this.stream.writeByte(PICK_UP_COPY);
+				out.writeUUID(body.getTurtleId());
+				this.stream.writeObject(object);
+			}
+		} else if (influence instanceof DropDownInfluence) {
+			this.stream.writeByte(DROP_DOWN);
+			out.writeUUID(body.getTurtleId());
+			this.stream.writeObject(((DropDownInfluence) influence).getDropOffObject());
+		} else if (influence instanceof SemanticChangeInfluence) {
+			this.stream.writeByte(SEMANTIC_CHANGE);
+			out.writeUUID(body.getTurtleId());
+			out.writeInterned(((SemanticChangeInfluence) influence).getSemantic());
+		} else {
+			throw new NotSerializableException(influence.getClass().getName());
+		}
+	}
+
+	private void writeFrame() throws IOException {
+		this.stream.close();
+		int size = this.frame.size();
+		if (this.region.remaining() < size + 4) {
+			this.region.force();
+			this.regionPosition += this.region.position();
+			this.region = this.channel.map(MapMode.READ_WRITE, this.regionPosition,
+					Math.max(REGION_SIZE, size + 4));
+		}
+		this.region.putInt(size);
+		this.region.put(this.frame.getBuffer(), 0, size);
+		this.frame.reset();
+		this.stream = null;
+		this.output = null;
+		++this.stepCount;
+	}
+
+	/** Output stream that gives access to its buffer.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class FrameBuffer extends ByteArrayOutputStream {
+
+		/**
+		 */
+		public FrameBuffer() {
+			//
+		}
+
+		/** Replies the buffer.
+		 *
+		 * @return the buffer.
+		 */
+		public byte[] getBuffer() {
+			return this.buf;
+		}
+
+	}
+
+}
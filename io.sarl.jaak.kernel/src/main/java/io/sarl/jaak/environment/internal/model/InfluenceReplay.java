@@ -0,0 +1,454 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+import io.sarl.jaak.environment.external.frustum.TurtleFrustum;
+import io.sarl.jaak.environment.external.influence.DropDownInfluence;
+import io.sarl.jaak.environment.external.influence.MotionInfluence;
+import io.sarl.jaak.environment.external.influence.PickUpInfluence;
+import io.sarl.jaak.environment.external.influence.SemanticChangeInfluence;
+import io.sarl.jaak.environment.external.perception.EnvironmentalObject;
+import io.sarl.jaak.environment.external.time.TimeManager;
+import io.sarl.jaak.util.CompactInput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.arakhne.afc.math.continous.object2d.Vector2f;
+
+/** This class replays an {@link InfluenceJournal} in an environment.
+ * <p>
+ * The initial state of the journal is restored in the environment,
+ * and the recorded influences are given, step after step, to the
+ * influence solver of the environment. No agent and no perception
+ * is involved in the replay. The time manager of the environment
+ * is replaced by a time manager that is replying the recorded time
+ * of each step.
+ * <p>
+ * The environment must be created as the recorded environment, with
+ * the same size, the same substance layers, the same solver and the
+ * same endogenous engine. The replay is moving forward only: for
+ * going back to a previous step, a new replay must be created with
+ * a new environment.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see InfluenceJournal
+ */
+public final class InfluenceReplay implements Closeable {
+
+	private final JaakEnvironment environment;
+	private final FileChannel channel;
+	private final ReplayTimeManager timeManager;
+	private final float startTime;
+	private final long[] frames;
+	private MappedByteBuffer region;
+	private long regionPosition;
+	private int step;
+
+	/**
+	 * @param file - the file of the journal.
+	 * @param environment - the environment in which the journal is replayed.
+	 * It must contain no body.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public InfluenceReplay(Path file, JaakEnvironment environment) throws IOException, ClassNotFoundException {
+		this.environment = environment;
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(InfluenceJournal.HEADER_SIZE);
+			readFully(this.channel, header, 0);
+			if (header.getInt(0) != InfluenceJournal.MAGIC || header.getInt(4) != InfluenceJournal.VERSION) {
+				throw new StreamCorruptedException();
+			}
+			this.frames = indexFrames(this.channel);
+			float time = JaakCheckpoint.restore(InfluenceJournal.getStateFile(file), environment);
+			this.startTime = time;
+			this.timeManager = new ReplayTimeManager(time, header.getFloat(8));
+			environment.setTimeManager(this.timeManager);
+		} catch (IOException | ClassNotFoundException | RuntimeException e) {
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/** Replies the positions of the frames in the journal.
+	 * A frame which was not completely written is ignored.
+	 *
+	 * @param channel - the channel on the journal.
+	 * @return the positions of the frames.
+	 * @throws IOException
+	 */
+	private static long[] indexFrames(FileChannel channel) throws IOException {
+		long size = channel.size();
+		long[] frames = new long[64];
+		int count = 0;
+		long position = InfluenceJournal.HEADER_SIZE;
+		int length;
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		while (position + 4 <= size) {
+			buffer.clear();
+			readFully(channel, buffer, position);
+			length = buffer.getInt(0);
+			if (length <= 0 || position + 4 + length > size) {
+				break;
+			}
+			if (count == frames.length) {
+				frames = Arrays.copyOf(frames, count * 2);
+			}
+			frames[count] = position;
+			++count;
+			position += 4 + length;
+		}
+		return Arrays.copyOf(frames, count);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		long p = position;
+		int n;
+		while (buffer.hasRemaining()) {
+			n = channel.read(buffer, p);
+			if (n < 0) {
+				throw new StreamCorruptedException();
+			}
+			p += n;
+		}
+	}
+
+	/** Replies the environment in which the journal is replayed.
+	 *
+	 * @return the environment.
+	 */
+	public JaakEnvironment getEnvironment() {
+		return this.environment;
+	}
+
+	/** Replies the simulation time of the initial state of the journal.
+	 *
+	 * @return the simulation time.
+	 */
+	public float getStartTime() {
+		return this.startTime;
+	}
+
+	/** Replies the number of steps in the journal.
+	 *
+	 * @return the number of steps.
+	 */
+	public int getStepCount() {
+		return this.frames.length;
+	}
+
+	/** Replies the number of steps already replayed.
+	 *
+	 * @return the index of the next step to replay.
+	 */
+	public synchronized int getStep() {
+		return this.step;
+	}
+
+	/** Replay the next step of the journal.
+	 *
+	 * @return <code>true</code> if a step was replayed, <code>false</code>
+	 * if the end of the journal is reached.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public synchronized boolean step() throws IOException, ClassNotFoundException {
+		if (this.step >= this.frames.length) {
+			return false;
+		}
+		try (ObjectInputStream stream = new ObjectInputStream(new FrameInputStream(mapFrame(this.frames[this.step])))) {
+			replayFrame(stream);
+		}
+		++this.step;
+		return true;
+	}
+
+	/** Replay the steps of the journal until the given step is reached.
+	 *
+	 * @param targetStep - the index of the step to reach, between the
+	 * {@link #getStep() current step} and the {@link #getStepCount() number of steps}.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public synchronized void seek(int targetStep) throws IOException, ClassNotFoundException {
+		if (targetStep < this.step || targetStep > this.frames.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		while (this.step < targetStep) {
+			step();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		this.region = null;
+		this.channel.close();
+	}
+
+	private ByteBuffer mapFrame(long position) throws IOException {
+		ByteBuffer buffer = this.region;
+		if (buffer == null || position < this.regionPosition
+			|| position + 4 > this.regionPosition + buffer.limit()
+			|| position + 4 + buffer.getInt((int) (position - this.regionPosition))
+				> this.regionPosition + buffer.limit()) {
+			ByteBuffer length = ByteBuffer.allocate(4);
+			readFully(this.channel, length, position);
+			long size = Math.min(
+					Math.max(InfluenceJournal.REGION_SIZE, 4 + length.getInt(0)),
+					this.channel.size() - position);
+			this.region = this.channel.map(MapMode.READ_ONLY, position, size);
+			this.regionPosition = position;
+			buffer = this.region;
+		}
+		ByteBuffer frame = buffer.duplicate();
+		frame.position((int) (position - this.regionPosition));
+		int length = frame.getInt();
+		frame.limit(frame.position() + length);
+		return frame;
+	}
+
+	private RealTurtleBody getBody(UUID turtle) throws StreamCorruptedException {
+		RealTurtleBody body = (RealTurtleBody) this.environment.getBodyFor(turtle);
+		if (body == null) {
+			throw new StreamCorruptedException(turtle.toString());
+		}
+		return body;
+	}
+
+	private void replayFrame(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		CompactInput input = new CompactInput(stream);
+		Set<EnvironmentalObject> pickedObjects = Collections.newSetFromMap(
+				new IdentityHashMap<EnvironmentalObject, Boolean>());
+		RealTurtleBody body;
+		EnvironmentalObject object;
+		while (true) {
+			byte kind = stream.readByte();
+			switch (kind) {
+			case InfluenceJournal.STEP:
+				this.timeManager.set(stream.readFloat(), stream.readFloat(),
+						stream.readFloat(), stream.readFloat());
+				this.environment.runPostTurtles();
+				return;
+			case InfluenceJournal.BODY_ADDITION:
+				body = (RealTurtleBody) stream.readObject();
+				this.environment.restoreBody(body, (TurtleFrustum) stream.readObject());
+				break;
+			case InfluenceJournal.BODY_REMOVAL:
+				this.environment.removeBodyFor(input.readUUID());
+				break;
+			case InfluenceJournal.MOTION:
+				body = getBody(input.readUUID());
+				float dx = stream.readFloat();
+				float dy = stream.readFloat();
+				body.influence(new MotionInfluence(body, new Vector2f(dx, dy), stream.readFloat()));
+				break;
+			case InfluenceJournal.PICK_UP:
+				body = getBody(input.readUUID());
+				object = findObject(stream.readFloat(), stream.readFloat(),
+						(String) input.readInterned(), input.readInterned(), pickedObjects);
+				if (object != null) {
+					body.influence(new PickUpInfluence(body, object));
+				}
+				break;
+			case InfluenceJournal.PICK_UP_COPY:
+				body = getBody(input.readUUID());
+				body.influence(new PickUpInfluence(body, (EnvironmentalObject) stream.readObject()));
+				break;
+			case InfluenceJournal.DROP_DOWN:
+				body = getBody(input.readUUID());
+				body.influence(new DropDownInfluence(body, (EnvironmentalObject) stream.readObject()));
+				break;
+			case InfluenceJournal.SEMANTIC_CHANGE:
+				body = getBody(input.readUUID());
+				SemanticChangeInfluence influence = new SemanticChangeInfluence((Serializable) input.readInterned());
+				influence.setEmitter(body);
+				body.influence(influence);
+				break;
+			default:
+				throw new StreamCorruptedException();
+			}
+		}
+	}
+
+	/** Replies the object of the grid which corresponds to a recorded object.
+	 * The objects with the same type and the same semantic in a cell
+	 * cannot be distinguished; they are replied in turn.
+	 */
+	private EnvironmentalObject findObject(float x, float y, String type, Object semantic,
+			Set<EnvironmentalObject> pickedObjects) {
+		for (EnvironmentalObject candidate : this.environment.getEnvironmentalObjects(x, y)) {
+			if (candidate.getClass().getName().equals(type)
+				&& (semantic == null ? candidate.getSemantic() == null : semantic.equals(candidate.getSemantic()))
+				&& pickedObjects.add(candidate)) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	/** Input stream on a frame of the journal.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class FrameInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		/**
+		 * @param buffer - the content of the frame.
+		 */
+		public FrameInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			if (this.buffer.hasRemaining()) {
+				return this.buffer.get() & 0xFF;
+			}
+			return -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, this.buffer.remaining());
+			this.buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return this.buffer.remaining();
+		}
+
+	}
+
+	/** Time manager which is replying the recorded time of the steps.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ReplayTimeManager implements TimeManager {
+
+		private float time;
+		private float seconds;
+		private float stepDuration;
+		private float stepSeconds;
+		private long waitingDuration;
+
+		/**
+		 * @param time - the time of the initial state in the default unit.
+		 * @param seconds - the time of the initial state in seconds.
+		 */
+		public ReplayTimeManager(float time, float seconds) {
+			this.time = time;
+			this.seconds = seconds;
+		}
+
+		/** Set the recorded time of a step.
+		 *
+		 * @param time - the time in the default unit.
+		 * @param seconds - the time in seconds.
+		 * @param stepDuration - the duration of the step in the default unit.
+		 * @param stepSeconds - the duration of the step in seconds.
+		 */
+		public void set(float time, float seconds, float stepDuration, float stepSeconds) {
+			this.time = time;
+			this.seconds = seconds;
+			this.stepDuration = stepDuration;
+			this.stepSeconds = stepSeconds;
+		}
+
+		private static float fromSeconds(float value, TimeUnit unit) {
+			return value * (TimeUnit.SECONDS.toNanos(1) / (float) unit.toNanos(1));
+		}
+
+		@Override
+		public float getCurrentTime() {
+			return this.time;
+		}
+
+		@Override
+		public float getCurrentTime(TimeUnit unit) {
+			assert (unit != null);
+			return fromSeconds(this.seconds, unit);
+		}
+
+		@Override
+		public float getLastStepDuration() {
+			return this.stepDuration;
+		}
+
+		@Override
+		public float getLastStepDuration(TimeUnit unit) {
+			assert (unit != null);
+			return fromSeconds(this.stepSeconds, unit);
+		}
+
+		@Override
+		public void setWaitingDuration(long duration) {
+			this.waitingDuration = Math.max(0, duration);
+		}
+
+		@Override
+		public long getWaitingDuration() {
+			return this.waitingDuration;
+		}
+
+		@Override
+		public void increment() {
+			// The time is given by the journal
+		}
+
+	}
+
+}
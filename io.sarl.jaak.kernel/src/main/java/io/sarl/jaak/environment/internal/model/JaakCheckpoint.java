@@ -0,0 +1,488 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/** This class defines a checkpoint of a {@link JaakEnvironment}.
+ * <p>
+ * A checkpoint is a snapshot of the bodies, of the objects in the cells,
+ * including the substances and the schedule of the autonomous processes,
+ * of the time manager when it is serializable, and of the simulation time.
+ * The snapshot is taken in memory at a step boundary by
+ * {@link #snapshot(JaakEnvironment)}, and it may be written in a file
+ * by another thread while the simulation is running.
+ * The snapshot itself is not incremental: the whole state is serialized
+ * while the monitor of the environment is held, and the simulation
+ * is blocked during this time.
+ * <p>
+ * The bodies and the objects are serialized. The bitmap of the occupied
+ * cells and the amounts of the substance layers are not serialized: they
+ * are copied in bulk in direct buffers during the snapshot, and the buffers
+ * are written as they are in the file. The amounts of the cells without
+ * substance object are therefore saved too.
+ * <p>
+ * The file is composed of a fixed-size header, followed by the size of the
+ * serialized objects, the serialized objects and the arrays. The file is
+ * written and read through a {@link FileChannel}; the serialized objects
+ * are read from the channel as a stream, without being loaded in memory
+ * at once. A new file is written
+ * beside the target file, and moved in place when it is complete: a crash
+ * during the writing does not corrupt the previous checkpoint.
+ * <p>
+ * A checkpoint is restored in a new environment with the same size
+ * and the same substance layers as the checkpointed environment.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public final class JaakCheckpoint {
+
+	/** Magic number at the beginning of the checkpoint files.
+	 */
+	public static final int MAGIC = 0x4A41414B;
+
+	/** Version of the format of the checkpoint files.
+	 */
+	public static final int VERSION = 2;
+
+	/** Size of the header of the checkpoint files, in bytes.
+	 */
+	public static final int HEADER_SIZE = 32;
+
+	private static final int CHUNK_SIZE = 1 << 22;
+
+	private static final int WRAPPED_FLAG = 1;
+
+	private static final int LENGTH_SIZE = Long.SIZE / Byte.SIZE;
+
+	private final float width;
+	private final float height;
+	private final boolean wrapped;
+	private final float time;
+	private final List<ByteBuffer> chunks;
+	private final long objectSize;
+	private final List<ByteBuffer> arrays;
+	private final long size;
+
+	/**
+	 * @param width
+	 * @param height
+	 * @param wrapped
+	 * @param time
+	 * @param chunks
+	 * @param objectSize
+	 * @param arrays
+	 */
+	private JaakCheckpoint(float width, float height, boolean wrapped, float time,
+			List<ByteBuffer> chunks, long objectSize, List<ByteBuffer> arrays) {
+		this.width = width;
+		this.height = height;
+		this.wrapped = wrapped;
+		this.time = time;
+		this.chunks = chunks;
+		this.objectSize = objectSize;
+		this.arrays = arrays;
+		long total = LENGTH_SIZE + objectSize;
+		for (ByteBuffer array : arrays) {
+			total += array.remaining();
+		}
+		this.size = total;
+	}
+
+	/** Take a snapshot of the given environment.
+	 * The snapshot is taken between two simulation steps.
+	 * <p>
+	 * The state is serialized synchronously, in the calling thread, while
+	 * holding the monitor of the environment: the cost is proportional to
+	 * the size of the world, and the simulation cannot run a step meanwhile.
+	 * Only the writing of the file, with {@link #writeAsync(Path, ExecutorService)},
+	 * is done asynchronously.
+	 *
+	 * @param environment - the environment.
+	 * @return the checkpoint.
+	 * @throws IOException if an object in the environment cannot be serialized.
+	 */
+	public static JaakCheckpoint snapshot(JaakEnvironment environment) throws IOException {
+		ChunkedOutputStream buffer = new ChunkedOutputStream();
+		List<ByteBuffer> arrays = new ArrayList<>();
+		float time;
+		try (ObjectOutputStream stream = new ObjectOutputStream(buffer)) {
+			synchronized (environment) {
+				time = environment.getTimeManager().getCurrentTime();
+				environment.writeState(stream, arrays);
+			}
+		}
+		return new JaakCheckpoint(
+				environment.getWidth(), environment.getHeight(),
+				environment.isWrapped(), time,
+				buffer.getChunks(), buffer.getSize(), arrays);
+	}
+
+	/** Replies the width of the checkpointed environment.
+	 *
+	 * @return the width.
+	 */
+	public float getWidth() {
+		return this.width;
+	}
+
+	/** Replies the height of the checkpointed environment.
+	 *
+	 * @return the height.
+	 */
+	public float getHeight() {
+		return this.height;
+	}
+
+	/** Replies if the checkpointed environment is wrapped.
+	 *
+	 * @return <code>true</code> if the environment is wrapped.
+	 */
+	public boolean isWrapped() {
+		return this.wrapped;
+	}
+
+	/** Replies the simulation time at which the checkpoint was taken.
+	 *
+	 * @return the simulation time.
+	 */
+	public float getTime() {
+		return this.time;
+	}
+
+	/** Replies the size of the state of the environment in this checkpoint.
+	 *
+	 * @return the size in bytes, without the header.
+	 */
+	public long getSize() {
+		return this.size;
+	}
+
+	private ByteBuffer createHeader() {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(this.wrapped ? WRAPPED_FLAG : 0);
+		header.putFloat(this.width);
+		header.putFloat(this.height);
+		header.putFloat(this.time);
+		header.putLong(this.size);
+		header.flip();
+		return header;
+	}
+
+	/** Write this checkpoint in the given file.
+	 *
+	 * @param file - the file to write.
+	 * @throws IOException
+	 */
+	public void write(Path file) throws IOException {
+		Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp"); //$NON-NLS-1$
+		ByteBuffer[] buffers = new ByteBuffer[this.chunks.size() + this.arrays.size() + 2];
+		int i = 0;
+		buffers[i++] = createHeader();
+		ByteBuffer length = ByteBuffer.allocate(LENGTH_SIZE);
+		length.putLong(this.objectSize);
+		length.flip();
+		buffers[i++] = length;
+		for (ByteBuffer chunk : this.chunks) {
+			buffers[i++] = chunk.duplicate();
+		}
+		for (ByteBuffer array : this.arrays) {
+			buffers[i++] = array.duplicate();
+		}
+		try (FileChannel channel = FileChannel.open(tmpFile,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+			long remaining = HEADER_SIZE + this.size;
+			while (remaining > 0) {
+				remaining -= channel.write(buffers);
+			}
+			channel.force(true);
+		}
+		Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/** Write this checkpoint in the given file with the given executor.
+	 *
+	 * @param file - the file to write.
+	 * @param executor - the executor that is running the writing task.
+	 * @return the result of the writing task.
+	 */
+	public Future<Path> writeAsync(final Path file, ExecutorService executor) {
+		return executor.submit(new Callable<Path>() {
+			@Override
+			public Path call() throws Exception {
+				write(file);
+				return file;
+			}
+		});
+	}
+
+	/** Restore the checkpoint in the given file into the given environment.
+	 * The environment must contain no body, have the size of the
+	 * checkpointed environment, and have the same substance layers.
+	 * The time manager of the environment is replaced by the time manager
+	 * of the checkpoint when it was serializable; otherwise it is not
+	 * changed, and it is the responsability of the caller to restart the
+	 * time from the replied time.
+	 *
+	 * @param file - the file to read.
+	 * @param environment - the environment to fill.
+	 * @return the simulation time at which the checkpoint was taken.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public static float restore(Path file, JaakEnvironment environment) throws IOException, ClassNotFoundException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new StreamCorruptedException();
+			}
+			boolean wrapped = (header.getInt() & WRAPPED_FLAG) != 0;
+			float w = header.getFloat();
+			float h = header.getFloat();
+			float time = header.getFloat();
+			long size = header.getLong();
+			if (w != environment.getWidth() || h != environment.getHeight()
+				|| channel.size() != HEADER_SIZE + size) {
+				throw new IllegalArgumentException();
+			}
+			ByteBuffer length = ByteBuffer.allocate(LENGTH_SIZE);
+			readFully(channel, length);
+			long objectSize = length.getLong();
+			if (objectSize < 0 || LENGTH_SIZE + objectSize > size) {
+				throw new StreamCorruptedException();
+			}
+			// The objects are read with positional reads; the channel
+			// is positioned on the arrays, which are read in sequence.
+			long objectStart = channel.position();
+			channel.position(objectStart + objectSize);
+			environment.setWrapped(wrapped);
+			try (ObjectInputStream stream = new ObjectInputStream(
+					new SectionInputStream(channel, objectStart, objectStart + objectSize))) {
+				environment.readState(stream, channel);
+			}
+			return time;
+		}
+	}
+
+	/** Allocate a buffer for writing an array of primitive values
+	 * in a checkpoint.
+	 *
+	 * @param size - the size of the array in bytes.
+	 * @return the buffer.
+	 */
+	static ByteBuffer allocateArray(int size) {
+		return ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/** Fill the given buffer from the given channel. The buffer
+	 * is flipped, ready to be read.
+	 *
+	 * @param channel - the channel to read.
+	 * @param buffer - the buffer to fill.
+	 * @throws IOException
+	 */
+	static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new StreamCorruptedException();
+			}
+		}
+		buffer.flip();
+	}
+
+	/** Input stream on a section of a file channel. The data is read
+	 * with positional reads, so that the position of the channel is not changed.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class SectionInputStream extends InputStream {
+
+		private static final int BUFFER_SIZE = 1 << 16;
+
+		private final FileChannel channel;
+		private final long end;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		private long position;
+
+		/**
+		 * @param channel - the channel to read.
+		 * @param start - the position of the first byte of the section.
+		 * @param end - the position after the last byte of the section.
+		 */
+		public SectionInputStream(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.position = start;
+			this.end = end;
+			this.buffer.flip();
+		}
+
+		private boolean fill() throws IOException {
+			if (!this.buffer.hasRemaining()) {
+				long remaining = this.end - this.position;
+				if (remaining <= 0) {
+					return false;
+				}
+				this.buffer.clear();
+				if (remaining < BUFFER_SIZE) {
+					this.buffer.limit((int) remaining);
+				}
+				while (this.buffer.hasRemaining()) {
+					int n = this.channel.read(this.buffer, this.position);
+					if (n < 0) {
+						throw new StreamCorruptedException();
+					}
+					this.position += n;
+				}
+				this.buffer.flip();
+			}
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill()) {
+				return -1;
+			}
+			return this.buffer.get() & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!fill()) {
+				return -1;
+			}
+			int n = Math.min(len, this.buffer.remaining());
+			this.buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return this.buffer.remaining();
+		}
+
+	}
+
+	/** Output stream that is storing the data in a list of buffers.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ChunkedOutputStream extends OutputStream {
+
+		private final List<ByteBuffer> chunks = new ArrayList<>();
+		private ByteBuffer current;
+		private long size;
+
+		/**
+		 */
+		public ChunkedOutputStream() {
+			//
+		}
+
+		/** Replies the buffers, ready to be read.
+		 *
+		 * @return the buffers.
+		 */
+		public List<ByteBuffer> getChunks() {
+			if (this.current != null) {
+				this.current.flip();
+				this.current = null;
+			}
+			return this.chunks;
+		}
+
+		/** Replies the number of written bytes.
+		 *
+		 * @return the size.
+		 */
+		public long getSize() {
+			return this.size;
+		}
+
+		private ByteBuffer ensureCapacity() {
+			if (this.current == null || !this.current.hasRemaining()) {
+				if (this.current != null) {
+					this.current.flip();
+				}
+				this.current = ByteBuffer.allocate(CHUNK_SIZE);
+				this.chunks.add(this.current);
+			}
+			return this.current;
+		}
+
+		@Override
+		public void write(int b) {
+			ensureCapacity().put((byte) b);
+			++this.size;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			int offset = off;
+			int remaining = len;
+			ByteBuffer buffer;
+			int n;
+			while (remaining > 0) {
+				buffer = ensureCapacity();
+				n = Math.min(remaining, buffer.remaining());
+				buffer.put(b, offset, n);
+				offset += n;
+				remaining -= n;
+			}
+			this.size += len;
+		}
+
+	}
+
+}
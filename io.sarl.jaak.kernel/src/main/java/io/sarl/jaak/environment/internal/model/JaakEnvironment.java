@@ -22,10 +22,13 @@ package io.sarl.jaak.environment.internal.model;
 import io.sarl.jaak.environment.external.EnvironmentArea;
 import io.sarl.jaak.environment.external.body.TurtleBody;
 import io.sarl.jaak.environment.external.body.TurtleBodyFactory;
+import io.sarl.jaak.environment.external.endogenous.ScheduledEndogenousProcess;
+import io.sarl.jaak.environment.external.frustum.PerceivedCellVisitor;
 import io.sarl.jaak.environment.external.frustum.SquareTurtleFrustum;
 import io.sarl.jaak.environment.external.frustum.TurtleFrustum;
 import io.sarl.jaak.environment.external.influence.Influence;
 import io.sarl.jaak.environment.external.perception.EnvironmentalObject;
+import io.sarl.jaak.environment.external.perception.FloatSubstance;
 import io.sarl.jaak.environment.external.perception.PerceivedTurtle;
 import io.sarl.jaak.environment.external.perception.StandardObjectManipulator;
 import io.sarl.jaak.environment.external.time.TimeManager;
@@ -34,10 +37,19 @@ import io.sarl.jaak.environment.internal.endogenousengine.EnvironmentEndogenousE
 import io.sarl.jaak.environment.internal.solver.ActionApplier;
 import io.sarl.jaak.environment.internal.solver.InfluenceSolver;
 import io.sarl.jaak.environment.internal.solver.PathBasedInfluenceSolver;
+import io.sarl.jaak.util.CompactInput;
+import io.sarl.jaak.util.CompactOutput;
 import io.sarl.jaak.util.MultiCollection;
 import io.sarl.jaak.util.RandomNumber;
+import io.sarl.jaak.util.RandomStream;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -46,12 +58,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.arakhne.afc.math.continous.object2d.Point2f;
 import org.arakhne.afc.math.continous.object2d.Vector2f;
-import org.arakhne.afc.math.discrete.object2d.Point2i;
 
 /** This class defines the Jaak environment model.
  * <p>
@@ -66,6 +79,19 @@ import org.arakhne.afc.math.discrete.object2d.Point2i;
  * If the envrionment is not wrapped, when a turtle
  * is trying to move outside the grid, it is moved
  * until it reach the border of the grid.
+ * <p>
+ * The queries on the cells are delegated to the grid, which
+ * is synchronizing them on lock regions; they are not blocked
+ * by the simulation step.
+ * <p>
+ * The perceptions of the turtles are computed in parallel by a
+ * {@link ForkJoinPool} when the number of bodies is greater than
+ * {@link #getParallelPerceptionThreshold()}. The perception of each
+ * body depends only on the grid, which is only changed under the lock
+ * of the environment, and therefore not during this phase: the cells
+ * are read without the locks of the grid, and the parallel and the
+ * sequential computations are replying the same perceptions. The pool
+ * created by the environment is released by {@link #close()}.
  *
  * @author $Author: sgalland$
  * @version $FullVersion$
@@ -77,29 +103,66 @@ public class JaakEnvironment implements EnvironmentArea {
 	/** Defines the default perception distance for turtles.
 	 */
 	public static final int DEFAULT_PERCEPTION_DISTANCE = 7;
+
+	/** Defines the default number of bodies above which the perceptions
+	 * are computed in parallel. It is also the size of the smallest
+	 * batch of bodies given to a worker thread.
+	 */
+	public static final int DEFAULT_PARALLEL_PERCEPTION_THRESHOLD = 1024;
+
+	/** Number of objects written in a state stream before the
+	 * references to them are forgotten.
+	 */
+	private static final int STATE_RESET_INTERVAL = 4096;
+
+	/** Number of bytes in a <code>long</code>.
+	 */
+	private static final int LONG_BYTES = Long.SIZE / Byte.SIZE;
+
+	/** Number of bytes in a <code>float</code>.
+	 */
+	private static final int FLOAT_BYTES = Float.SIZE / Byte.SIZE;
 	
 	private final UUID id = UUID.randomUUID();
 	private final Map<UUID, RealTurtleBody> bodies = new TreeMap<>();
-	//TODO : replace grid by trees
-	private JaakGrid grid;
+	private final JaakGrid grid;
 	private TimeManager timeManager;
 	private final AtomicBoolean isWrapped = new AtomicBoolean(false);
 	private volatile EnvironmentEndogenousEngine endogenousEngine;
 	private volatile Collection<Influence> endogenousInfluences;
 	private volatile InfluenceSolver<RealTurtleBody> solver;
 	private float lastSimulationTime = Float.NaN;
+	private volatile int parallelPerceptionThreshold = DEFAULT_PARALLEL_PERCEPTION_THRESHOLD;
+	private volatile ForkJoinPool perceptionPool;
+	private boolean isPerceptionPoolOwned;
+	private volatile InfluenceJournal journal;
 
 	private final LinkedList<JaakEnvironmentListener> listeners = new LinkedList<>();
 
 	private final RealTurtleBodyFactory factory = new RealTurtleBodyFactory();
 
-	/**
+	/** Create an environment with the {@link JaakGridStorage#TILES tiled storage}.
+	 *
 	 * @param width is the width of the world grid.
 	 * @param height is the height of the world grid.
 	 * @param timeManager is the time manager used to run Jaak.
 	 */
 	public JaakEnvironment(float width, float height, TimeManager timeManager) {
-		//this.grid = new JaakGrid(width, height, new StandardObjectManipulator());
+		this(width, height, timeManager, JaakGridStorage.TILES);
+	}
+
+	/**
+	 * @param width is the width of the world grid.
+	 * @param height is the height of the world grid.
+	 * @param timeManager is the time manager used to run Jaak.
+	 * @param storage is the type of storage for the cells of the grid.
+	 */
+	public JaakEnvironment(float width, float height, TimeManager timeManager, JaakGridStorage storage) {
+		this.grid = new JaakGrid(
+				(int) Math.ceil(width), (int) Math.ceil(height),
+				new StandardObjectManipulator(),
+				storage);
+		this.grid.setTimeManager(timeManager);
 		this.timeManager = timeManager;
 	}
 
@@ -191,7 +254,20 @@ public class JaakEnvironment implements EnvironmentArea {
 	 */
 	public void setTimeManager(TimeManager timeManager) {
 		assert (timeManager != null);
+		this.grid.setTimeManager(timeManager);
 		this.timeManager = timeManager;
+		InfluenceSolver<RealTurtleBody> theSolver = this.solver;
+		if (theSolver != null) {
+			theSolver.setTimeManager(timeManager);
+		}
+	}
+
+	/** Replies the time manager used by the environment.
+	 *
+	 * @return the time manager.
+	 */
+	public TimeManager getTimeManager() {
+		return this.timeManager;
 	}
 
 	/** Replies the action applier for this environment.
@@ -229,6 +305,83 @@ public class JaakEnvironment implements EnvironmentArea {
 		return this.isWrapped.get();
 	}
 
+	/** Replies the number of bodies above which the perceptions
+	 * are computed in parallel.
+	 *
+	 * @return the threshold, or a value lower or equal to zero
+	 * if the perceptions are always computed sequentially.
+	 */
+	public int getParallelPerceptionThreshold() {
+		return this.parallelPerceptionThreshold;
+	}
+
+	/** Change the number of bodies above which the perceptions
+	 * are computed in parallel. It is also the size of the smallest
+	 * batch of bodies given to a worker thread.
+	 *
+	 * @param threshold is the threshold, or a value lower or equal to zero
+	 * to always compute the perceptions sequentially.
+	 */
+	public void setParallelPerceptionThreshold(int threshold) {
+		this.parallelPerceptionThreshold = threshold;
+	}
+
+	/** Change the pool of threads which is used to compute the
+	 * perceptions in parallel.
+	 * <p>
+	 * The given pool is not shut down by the environment. The pool
+	 * previously created by the environment, if any, is shut down.
+	 *
+	 * @param pool is the pool to use, or <code>null</code> to use
+	 * a pool created by the environment.
+	 */
+	public synchronized void setPerceptionPool(ForkJoinPool pool) {
+		shutdownPerceptionPool();
+		this.perceptionPool = pool;
+	}
+
+	private ForkJoinPool getPerceptionPool() {
+		ForkJoinPool pool = this.perceptionPool;
+		if (pool == null) {
+			pool = new ForkJoinPool();
+			this.perceptionPool = pool;
+			this.isPerceptionPoolOwned = true;
+		}
+		return pool;
+	}
+
+	private void shutdownPerceptionPool() {
+		if (this.isPerceptionPoolOwned) {
+			this.perceptionPool.shutdown();
+			this.isPerceptionPoolOwned = false;
+		}
+		this.perceptionPool = null;
+	}
+
+	/** Release the resources of the environment.
+	 * <p>
+	 * The pool of threads which was created by the environment for computing
+	 * the perceptions is shut down. A pool given to
+	 * {@link #setPerceptionPool(ForkJoinPool)} is not shut down.
+	 * The influence solver and the endogenous engine are closed too.
+	 * The environment may still be used after this call: a new pool is
+	 * created when needed.
+	 *
+	 * @see InfluenceSolver#close()
+	 * @see EnvironmentEndogenousEngine#close()
+	 */
+	public synchronized void close() {
+		shutdownPerceptionPool();
+		InfluenceSolver<RealTurtleBody> theSolver = this.solver;
+		if (theSolver != null) {
+			theSolver.close();
+		}
+		EnvironmentEndogenousEngine engine = this.endogenousEngine;
+		if (engine != null) {
+			engine.close();
+		}
+	}
+
 	/** Change the wrapping flag of the environment.
 	 *
 	 * @param wrapped indicates if the environment is
@@ -244,15 +397,13 @@ public class JaakEnvironment implements EnvironmentArea {
 	}
 
 	@Override
-	public synchronized boolean hasTurtle(int x, int y) {
+	public boolean hasTurtle(int x, int y) {
 		return this.grid.getTurtle(x, y) != null;
 	}
 
 	@Override
-	public synchronized float getTurtleSpeed(float x, float y) {
-		//TODO: get Turtle from tree data structure instead of grid
-		//TurtleBody body = this.grid.getTurtle(x, y);
-		TurtleBody body = null;
+	public float getTurtleSpeed(float x, float y) {
+		TurtleBody body = this.grid.getTurtle((int) x, (int) y);
 		if (body != null) {
 			return body.getSpeed();
 		}
@@ -265,10 +416,20 @@ public class JaakEnvironment implements EnvironmentArea {
 	 * @param y is the coordinate of the cell.
 	 * @return the turtles even if they are in a burrow.
 	 */
-	public synchronized Collection<TurtleBody> getTurtles(float x, float y) {
-		//TODO: get Turtle from tree data structure instead of grid
-		//return this.grid.getTurtles(x, y);
-		return null;
+	public Collection<TurtleBody> getTurtles(float x, float y) {
+		return this.grid.getTurtles((int) x, (int) y);
+	}
+
+	/** Replies the turtles (not burrowed) inside the given area.
+	 *
+	 * @param x is the lower coordinate of the area.
+	 * @param y is the lower coordinate of the area.
+	 * @param width is the width of the area.
+	 * @param height is the height of the area.
+	 * @return the turtles in the area.
+	 */
+	public Collection<TurtleBody> getTurtles(float x, float y, float width, float height) {
+		return this.grid.getTurtles(x, y, x + width, y + height);
 	}
 
 	/** Replies the instant orientation of the turtle at the given position.
@@ -278,10 +439,8 @@ public class JaakEnvironment implements EnvironmentArea {
 	 * @return the instant orientation of the turtle in radians,
 	 * or {@link Float#NaN} if no turtle.
 	 */
-	public synchronized float getTurtleOrientation(float x, float y) {
-		//TODO: get Turtle from tree data structure instead of grid
-		//TurtleBody body = this.grid.getTurtle(x, y);
-		TurtleBody body = null;
+	public float getTurtleOrientation(float x, float y) {
+		TurtleBody body = this.grid.getTurtle((int) x, (int) y);
 		if (body != null) {
 			return body.getHeadingAngle();
 		}
@@ -295,10 +454,8 @@ public class JaakEnvironment implements EnvironmentArea {
 	 * @return the instant direction of the turtle in radians,
 	 * or <code>null</code> if no turtle.
 	 */
-	public synchronized Vector2f getTurtleDirection(float x, float y) {
-		//TODO: get direction from tree
-		//TurtleBody body = this.grid.getTurtle(x, y);
-		TurtleBody body = null;
+	public Vector2f getTurtleDirection(float x, float y) {
+		TurtleBody body = this.grid.getTurtle((int) x, (int) y);
 		if (body != null) {
 			return body.getHeadingVector();
 		}
@@ -318,17 +475,81 @@ public class JaakEnvironment implements EnvironmentArea {
 	 * @param type is the type of the desired objects.
 	 * @return the environment objects in the given cell.
 	 */
-	public synchronized <T extends EnvironmentalObject> Iterable<T> getEnvironmentalObjects(float x, float y, Class<T> type) {
-		//TODO: get Turtle from tree data structure instead of grid
-		//return new FilteringIterable<>(type, this.grid.getObjects(x, y));
-		return new FilteringIterable<>(type, null);
+	public <T extends EnvironmentalObject> Iterable<T> getEnvironmentalObjects(float x, float y, Class<T> type) {
+		return new FilteringIterable<>(type, this.grid.getObjects((int) x, (int) y));
 	}
 
 	@Override
-	public synchronized Collection<EnvironmentalObject> getEnvironmentalObjects(float x, float y) {
-		//TODO: get Objects from tree data structure instead of grid
-		//return this.grid.getObjects(x, y);
-		return null;
+	public Collection<EnvironmentalObject> getEnvironmentalObjects(float x, float y) {
+		return this.grid.getObjects((int) x, (int) y);
+	}
+
+	/** Register a dense layer for the substances of the given type.
+	 * <p>
+	 * The amounts of the substances of the given type are stored in a
+	 * primitive array covering the grid, and the substance objects in
+	 * the environment are only views on this array. The layer should
+	 * be registered before any substance of the given type is put
+	 * in the environment.
+	 *
+	 * @param type is the type of the substances.
+	 * @param maximum is the maximal amount of substance in a cell.
+	 */
+	public void registerSubstanceLayer(Class<? extends FloatSubstance> type, float maximum) {
+		this.grid.registerSubstanceLayer(type, maximum);
+	}
+
+	/** Register a dense layer for the substances of the given type.
+	 *
+	 * @param type is the type of the substances.
+	 * @see #registerSubstanceLayer(Class, float)
+	 */
+	public void registerSubstanceLayer(Class<? extends FloatSubstance> type) {
+		this.grid.registerSubstanceLayer(type, Float.POSITIVE_INFINITY);
+	}
+
+	/** Change the evaporation of the substances of the given type.
+	 * <p>
+	 * The layer registered with {@link #registerSubstanceLayer(Class, float)}
+	 * is decreased at each simulation step in a single pass over its cells.
+	 * The cells going under the threshold are cleared in the same pass.
+	 * The substances of an evaporating layer are not run as autonomous
+	 * processes.
+	 *
+	 * @param type is the type of the substances.
+	 * @param evaporation is the amount of substance which is evaporating from
+	 * a cell during one second, or zero to disable the evaporation.
+	 * @param threshold is the amount under which a cell is cleared.
+	 * @return <code>true</code> if the evaporation was changed, <code>false</code>
+	 * if no layer is registered for the given type.
+	 */
+	public boolean setSubstanceEvaporation(Class<? extends FloatSubstance> type, float evaporation, float threshold) {
+		return this.grid.setSubstanceEvaporation(type, evaporation, threshold);
+	}
+
+	/** Replies the amount of substance of the given type in the cell at the given position.
+	 * <p>
+	 * This function is reading the amount from the layer registered with
+	 * {@link #registerSubstanceLayer(Class, float)} without any allocation.
+	 *
+	 * @param x is the position of the cell.
+	 * @param y is the position of the cell.
+	 * @param type is the type of the substance.
+	 * @return the amount of substance, or {@link Float#NaN} if no layer is
+	 * registered for the given type.
+	 */
+	public float getSubstanceAmount(float x, float y, Class<? extends FloatSubstance> type) {
+		return this.grid.getSubstanceAmount((int) x, (int) y, type);
+	}
+
+	/** Replies if the cell at the given position is able to receive a turtle.
+	 *
+	 * @param x is the position of the cell.
+	 * @param y is the position of the cell.
+	 * @return <code>true</code> if the cell is free, otherwise <code>false</code>.
+	 */
+	public boolean isFree(float x, float y) {
+		return this.grid.isFree((int) x, (int) y);
 	}
 
 	/** Set the endogenous engine to use.
@@ -340,31 +561,58 @@ public class JaakEnvironment implements EnvironmentArea {
 	}
 
 	/** Set the solver of influence conflicts.
+	 * <p>
+	 * The solver is connected to the grid and to the time manager of this environment.
 	 *
 	 * @param solver is the solver of influence conflicts to use.
+	 * @see io.sarl.jaak.environment.internal.solver.RegionPartitionedInfluenceSolver
 	 */
 	public void setInfluenceSolver(InfluenceSolver<RealTurtleBody> solver) {
+		if (solver != null) {
+			solver.setGridModel(this.grid);
+			solver.setTimeManager(this.timeManager);
+		}
 		this.solver = solver;
 	}
 
-	/** Replies a free cell near a random position.
+	/** Set the journal in which the influences and the changes
+	 * of the bodies are recorded.
+	 *
+	 * @param journal is the journal, or <code>null</code> to stop the recording.
+	 * @see InfluenceJournal
+	 */
+	synchronized void setInfluenceJournal(InfluenceJournal journal) {
+		this.journal = journal;
+	}
+
+	/** Replies a free cell randomly selected in the environment.
+	 * <p>
+	 * The free cells are indexed by the grid: this function is
+	 * not probing the cells.
 	 *
-	 * @return the position of the first free cell, or <code>null</code>
+	 * @param random is the random stream of the caller.
+	 * @return the position of the free cell, or <code>null</code>
 	 * if no more cell is free.
 	 */
-	Point2f getFreeRandomPosition() {
-		//TODO: get a free random position from the tree data structure/ consider whether method is still relevant.  
-		Point2f p = new Point2f();
-		int i = 0;
-		int max = this.grid.getWidth() * this.grid.getHeight();
-		do {
-			p.set(
-					RandomNumber.nextInt(this.grid.getWidth()),
-					RandomNumber.nextInt(this.grid.getHeight()));
-			++i;
-		}
-		while (!isFree(p.x(), p.y()) && i < max);
-		return (isFree(p.x(), p.y())) ? p : null;
+	Point2f getFreeRandomPosition(RandomStream random) {
+		return this.grid.getFreeRandomPosition(random);
+	}
+
+	/** Replies a free cell randomly selected in the given area.
+	 *
+	 * @param x is the lower coordinate of the area.
+	 * @param y is the lower coordinate of the area.
+	 * @param width is the width of the area.
+	 * @param height is the height of the area.
+	 * @param random is the random stream of the caller.
+	 * @return the position of the free cell, or <code>null</code>
+	 * if no cell is free in the area.
+	 */
+	Point2f getFreeRandomPosition(float x, float y, float width, float height, RandomStream random) {
+		return this.grid.getFreeRandomPosition(
+				(int) Math.floor(x), (int) Math.floor(y),
+				(int) Math.ceil(x + width), (int) Math.ceil(y + height),
+				random);
 	}
 
 	/** Add a body in the environment.
@@ -375,7 +623,6 @@ public class JaakEnvironment implements EnvironmentArea {
 	 * <code>false</code> otherwise.
 	 */
 	synchronized boolean addBody(RealTurtleBody body, Point2f position) {
-		//TODO: add in tree
 		assert (body != null);
 		assert (position != null);
 		if (!this.bodies.containsKey(body.getTurtleId())) {
@@ -385,6 +632,10 @@ public class JaakEnvironment implements EnvironmentArea {
 						position.x(), position.y(),
 						body.getHeadingAngle(),
 						0f);
+				InfluenceJournal theJournal = this.journal;
+				if (theJournal != null) {
+					theJournal.recordBodyAddition(body);
+				}
 				return true;
 			}
 		}
@@ -397,12 +648,15 @@ public class JaakEnvironment implements EnvironmentArea {
 	 * @return the success state of the removal action.
 	 */
 	public synchronized boolean removeBodyFor(UUID turtle) {
-		//TODO: remove from tree
 		if (turtle != null) {
 			RealTurtleBody body = this.bodies.remove(turtle);
 			if (body != null) {
 				Point2f position = body.getPosition();
 				this.grid.removeTurtle(position.x(), position.y(), body);
+				InfluenceJournal theJournal = this.journal;
+				if (theJournal != null) {
+					theJournal.recordBodyRemoval(turtle);
+				}
 				return true;
 			}
 		}
@@ -444,6 +698,190 @@ public class JaakEnvironment implements EnvironmentArea {
 		}
 	}
 
+	/** Write the state of the environment in the given stream:
+	 * the time manager when it is serializable, the bodies, the objects
+	 * in the cells with the schedule of the autonomous processes, and the
+	 * substance layers, and the time of the last simulation step.
+	 * <p>
+	 * The cells are not locked: the function is synchronized with the
+	 * simulation steps, and the state is taken at a step boundary.
+	 * The bitmap of the occupied cells and the amounts of the substance
+	 * layers are not serialized: they are copied in bulk in buffers which
+	 * are added to the given list, and which must be written after the stream.
+	 *
+	 * @param stream - the output stream.
+	 * @param arrays - the list to fill with the buffers of the arrays.
+	 * @throws IOException
+	 * @see JaakCheckpoint
+	 */
+	synchronized void writeState(ObjectOutputStream stream, List<ByteBuffer> arrays) throws IOException {
+		CompactOutput output = new CompactOutput(stream);
+		stream.writeFloat(this.lastSimulationTime);
+		stream.writeObject(this.timeManager instanceof Serializable ? this.timeManager : null);
+		output.writeVarInt(this.bodies.size());
+		TurtleFrustum frustum;
+		for (RealTurtleBody body : this.bodies.values()) {
+			stream.writeObject(body);
+			frustum = body.getPerceptionFrustum();
+			stream.writeObject(frustum instanceof Serializable ? frustum : null);
+		}
+		stream.reset();
+
+		List<EnvironmentalObject> objects = new ArrayList<>();
+		this.grid.getAllObjectsWithoutLock(objects);
+		int width = this.grid.getWidth();
+		int written = 0;
+		Point2f position;
+		ScheduledEndogenousProcess process;
+		output.writeVarInt(objects.size());
+		for (EnvironmentalObject object : objects) {
+			position = object.getPosition();
+			output.writeVarInt((int) position.getY() * width + (int) position.getX());
+			stream.writeObject(object);
+			if (object instanceof ScheduledEndogenousProcess) {
+				process = (ScheduledEndogenousProcess) object;
+				stream.writeLong(this.grid.getDueTick(process));
+				stream.writeFloat(this.grid.getLastActivation(process));
+			}
+			++written;
+			if (written >= STATE_RESET_INTERVAL) {
+				// Forget the already written objects for bounding the memory of the stream
+				stream.reset();
+				written = 0;
+			}
+		}
+
+		ByteBuffer occupancy = JaakCheckpoint.allocateArray(this.grid.getOccupancySize() * LONG_BYTES);
+		this.grid.getOccupancy(occupancy.asLongBuffer());
+		arrays.add(occupancy);
+
+		Collection<SubstanceLayer> layers = this.grid.getLayers();
+		output.writeVarInt(layers.size());
+		float[] values;
+		ByteBuffer amounts;
+		for (SubstanceLayer layer : layers) {
+			stream.writeUTF(layer.getType().getName());
+			stream.writeObject(layer.getPrototype());
+			stream.writeFloat(layer.getEvaporation());
+			stream.writeFloat(layer.getThreshold());
+			values = layer.getValues();
+			amounts = JaakCheckpoint.allocateArray(values.length * FLOAT_BYTES);
+			amounts.asFloatBuffer().put(values);
+			arrays.add(amounts);
+		}
+	}
+
+	/** Read the state of the environment from the given stream and
+	 * from the given channel.
+	 * The state must be written by {@link #writeState(ObjectOutputStream, List)}
+	 * with an environment of the same size, and with the same
+	 * substance layers; the buffers of the arrays must be in the channel.
+	 *
+	 * @param stream - the input stream.
+	 * @param channel - the channel from which the arrays are read.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @see JaakCheckpoint
+	 */
+	synchronized void readState(ObjectInputStream stream, ReadableByteChannel channel)
+			throws IOException, ClassNotFoundException {
+		if (!this.bodies.isEmpty()) {
+			throw new IllegalStateException();
+		}
+		CompactInput input = new CompactInput(stream);
+		this.lastSimulationTime = stream.readFloat();
+		TimeManager manager = (TimeManager) stream.readObject();
+		if (manager != null) {
+			setTimeManager(manager);
+		}
+		int count = input.readVarInt();
+		RealTurtleBody body;
+		for (int i = 0; i < count; ++i) {
+			body = (RealTurtleBody) stream.readObject();
+			restoreBody(body, (TurtleFrustum) stream.readObject());
+		}
+
+		int width = this.grid.getWidth();
+		int index;
+		EnvironmentalObject object;
+		long tick;
+		float lastActivation;
+		count = input.readVarInt();
+		for (int i = 0; i < count; ++i) {
+			index = input.readVarInt();
+			object = (EnvironmentalObject) stream.readObject();
+			if (object instanceof ScheduledEndogenousProcess) {
+				tick = stream.readLong();
+				lastActivation = stream.readFloat();
+				if (this.grid.putObject(index % width, index / width, object) == object) {
+					this.grid.setSchedule((ScheduledEndogenousProcess) object, tick, lastActivation);
+				}
+			} else {
+				this.grid.putObject(index % width, index / width, object);
+			}
+		}
+
+		ByteBuffer occupancy = JaakCheckpoint.allocateArray(this.grid.getOccupancySize() * LONG_BYTES);
+		JaakCheckpoint.readFully(channel, occupancy);
+		ByteBuffer restored = JaakCheckpoint.allocateArray(occupancy.capacity());
+		this.grid.getOccupancy(restored.asLongBuffer());
+		if (!occupancy.equals(restored)) {
+			throw new StreamCorruptedException();
+		}
+
+		count = input.readVarInt();
+		String type;
+		byte[] prototype;
+		float evaporation;
+		float threshold;
+		SubstanceLayer layer;
+		float[] values;
+		ByteBuffer amounts;
+		for (int i = 0; i < count; ++i) {
+			type = stream.readUTF();
+			prototype = (byte[]) stream.readObject();
+			evaporation = stream.readFloat();
+			threshold = stream.readFloat();
+			layer = null;
+			for (SubstanceLayer candidate : this.grid.getLayers()) {
+				if (candidate.getType().getName().equals(type)) {
+					layer = candidate;
+					break;
+				}
+			}
+			if (layer == null) {
+				throw new IllegalArgumentException(type);
+			}
+			values = new float[layer.getValues().length];
+			amounts = JaakCheckpoint.allocateArray(values.length * FLOAT_BYTES);
+			JaakCheckpoint.readFully(channel, amounts);
+			amounts.asFloatBuffer().get(values);
+			layer.setPrototype(prototype);
+			this.grid.setSubstanceEvaporation(layer.getType(), evaporation, threshold);
+			this.grid.setSubstanceValues(layer.getType(), values);
+		}
+	}
+
+	/** Put in this environment a body which was read from a stream.
+	 * The body keeps the position, the orientation and the speed
+	 * that were written in the stream.
+	 *
+	 * @param body - the body.
+	 * @param frustum - the perception frustum of the body.
+	 * @return <code>true</code> if the body was added,
+	 * <code>false</code> otherwise.
+	 */
+	synchronized boolean restoreBody(RealTurtleBody body, TurtleFrustum frustum) {
+		body.setPerceptionFrustum(frustum);
+		Point2f position = body.getPosition();
+		float speed = body.getSpeed();
+		if (addBody(body, position)) {
+			body.setPhysicalState(position.x(), position.y(), body.getHeadingAngle(), speed);
+			return true;
+		}
+		return false;
+	}
+
 	/** Run the environment behaviour before any turtle execution.
 	 */
 	public synchronized void runPreTurtles() {
@@ -492,45 +930,16 @@ public class JaakEnvironment implements EnvironmentArea {
 	}
 
 	private void computePerceptions() {
-		Point2f position;
-		TurtleFrustum frustum;
-		TurtleBody turtleBody;
-		Iterator<Point2f> iterator;
-		List<PerceivedTurtle> bodies;
-		MultiCollection<EnvironmentalObject> objects;
-		int x;
-		int y;
-		for (RealTurtleBody body : this.bodies.values()) {
-			bodies = new ArrayList<>();
-			objects = new MultiCollection<>();
-			if (body.isPerceptionEnable()) {
-				frustum = body.getPerceptionFrustum();
-				if (frustum != null) {
-					iterator = frustum.getPerceivedCells(body.getPosition(), body.getHeadingAngle(), this);
-					if (iterator != null) {
-						while (iterator.hasNext()) {
-							position = iterator.next();
-							//TODO: adapt function to tree 
-							if (true/*this.grid.validatePosition(isWrapped(), true, position) != ValidationResult.DISCARDED*/) {
-								x = position.x();
-								y = position.y();
-								turtleBody = this.grid.getTurtle(x, y);
-								if (turtleBody != null && turtleBody != body) {
-									bodies.add(new PerceivedTurtle(
-											turtleBody.getTurtleId(),
-											new Point2f(position),
-											turtleBody.getPosition(),
-											turtleBody.getSpeed(),
-											turtleBody.getHeadingAngle(),
-											turtleBody.getSemantic()));
-								}
-								objects.addCollection(this.grid.getObjects(x, y));
-							}
-						}
-					}
-				}
+		int threshold = this.parallelPerceptionThreshold;
+		if (threshold <= 0 || this.bodies.size() <= threshold) {
+			PerceptionCollector collector = new PerceptionCollector();
+			for (RealTurtleBody body : this.bodies.values()) {
+				collector.computePerception(body);
 			}
-			body.setPerceptions(bodies, objects);
+		} else {
+			RealTurtleBody[] array = new RealTurtleBody[this.bodies.size()];
+			this.bodies.values().toArray(array);
+			getPerceptionPool().invoke(new PerceptionTask(array, 0, array.length, threshold));
 		}
 	}
 
@@ -543,9 +952,137 @@ public class JaakEnvironment implements EnvironmentArea {
 			theSolver.setTimeManager(this.timeManager);
 		}
 		theSolver.setWrapped(isWrapped());
+		InfluenceJournal theJournal = this.journal;
+		if (theJournal != null) {
+			theJournal.recordStep(this.timeManager, this.bodies.values());
+		}
 		theSolver.solve(this.endogenousInfluences, this.bodies.values(), getActionApplier());
 	}
 
+	/** This class defines the collector of the objects in the cells
+	 * perceived by a body. A collector is reused for the bodies of
+	 * a batch, and it is visiting the cells of the frustums without
+	 * iterators.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class PerceptionCollector implements PerceivedCellVisitor {
+
+		private final Point2f position = new Point2f();
+		private RealTurtleBody body;
+		private List<PerceivedTurtle> perceivedBodies;
+		private MultiCollection<EnvironmentalObject> perceivedObjects;
+		private boolean wrapped;
+
+		/**
+		 */
+		public PerceptionCollector() {
+			//
+		}
+
+		/** Compute and set the perceptions of the given body.
+		 *
+		 * @param perceiver is the body for which the perceptions must be computed.
+		 */
+		public void computePerception(RealTurtleBody perceiver) {
+			this.body = perceiver;
+			this.perceivedBodies = new ArrayList<>();
+			this.perceivedObjects = new MultiCollection<>();
+			this.wrapped = isWrapped();
+			if (perceiver.isPerceptionEnable()) {
+				TurtleFrustum frustum = perceiver.getPerceptionFrustum();
+				if (frustum != null) {
+					Point2f origin = perceiver.getPosition();
+					frustum.visitPerceivedCells(origin.x(), origin.y(), perceiver.getHeadingAngle(),
+							JaakEnvironment.this, this);
+				}
+			}
+			perceiver.setPerceptions(this.perceivedBodies, this.perceivedObjects);
+			this.body = null;
+			this.perceivedBodies = null;
+			this.perceivedObjects = null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void visitCell(int x, int y) {
+			this.position.set(x, y);
+			if (JaakEnvironment.this.grid.validatePosition(this.wrapped, true, this.position)
+					!= ValidationResult.DISCARDED) {
+				int px = this.position.x();
+				int py = this.position.y();
+				TurtleBody turtleBody = JaakEnvironment.this.grid.getTurtleWithoutLock(px, py);
+				if (turtleBody != null && turtleBody != this.body) {
+					this.perceivedBodies.add(new PerceivedTurtle(
+							turtleBody.getTurtleId(),
+							new Point2f(this.position),
+							turtleBody.getPosition(),
+							turtleBody.getSpeed(),
+							turtleBody.getHeadingAngle(),
+							turtleBody.getSemantic()));
+				}
+				this.perceivedObjects.addCollection(JaakEnvironment.this.grid.getObjectsWithoutLock(px, py));
+			}
+		}
+
+	}
+
+	/** This class defines the computation of the perceptions
+	 * of a batch of bodies. The batch is split in two halves
+	 * while it is larger than the threshold.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class PerceptionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -3417735950218390573L;
+
+		private final RealTurtleBody[] bodies;
+		private final int start;
+		private final int end;
+		private final int threshold;
+
+		/**
+		 * @param bodies is the array of all the bodies.
+		 * @param start is the index of the first body of the batch.
+		 * @param end is the index after the last body of the batch.
+		 * @param threshold is the size of the smallest batch.
+		 */
+		public PerceptionTask(RealTurtleBody[] bodies, int start, int end, int threshold) {
+			this.bodies = bodies;
+			this.start = start;
+			this.end = end;
+			this.threshold = threshold;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void compute() {
+			if (this.end - this.start <= this.threshold) {
+				PerceptionCollector collector = new PerceptionCollector();
+				for (int i = this.start; i < this.end; ++i) {
+					collector.computePerception(this.bodies[i]);
+				}
+			} else {
+				int middle = (this.start + this.end) >>> 1;
+				invokeAll(
+						new PerceptionTask(this.bodies, this.start, middle, this.threshold),
+						new PerceptionTask(this.bodies, middle, this.end, this.threshold));
+			}
+		}
+
+	}
+
 	/** This class defines an iterable object which is able to filter
 	 * its content.
 	 *
@@ -763,8 +1300,10 @@ public class JaakEnvironment implements EnvironmentArea {
 			Point2f position = null;
 
 			if (desiredPosition == null) {
-				position = getFreeRandomPosition();
-			} else if (isFree(desiredPosition.x(), desiredPosition.y())) {
+				position = JaakEnvironment.this.getFreeRandomPosition(RandomNumber.getStream(
+						JaakEnvironment.class.getName(),
+						turtleId.getMostSignificantBits() ^ turtleId.getLeastSignificantBits()));
+			} else if (isFreeCell(desiredPosition)) {
 				position = desiredPosition;
 			}
 
@@ -845,6 +1384,22 @@ public class JaakEnvironment implements EnvironmentArea {
 					semantic, frustum);
 		}
 
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isFreeCell(Point2f position) {
+			return isFree(position.getX(), position.getY());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Point2f getFreeRandomPosition(float x, float y, float width, float height, RandomStream random) {
+			return JaakEnvironment.this.getFreeRandomPosition(x, y, width, height, random);
+		}
+
 	} /* class RealTurtleBodyFactory */
 
 	/** Definition of a function.
@@ -21,26 +21,66 @@ package io.sarl.jaak.environment.internal.model;
 
 import io.sarl.jaak.environment.external.body.TurtleBody;
 import io.sarl.jaak.environment.external.endogenous.AutonomousEndogenousProcess;
+import io.sarl.jaak.environment.external.endogenous.ScheduledEndogenousProcess;
 import io.sarl.jaak.environment.external.influence.Influence;
 import io.sarl.jaak.environment.external.perception.Burrow;
 import io.sarl.jaak.environment.external.perception.EnvironmentalObject;
+import io.sarl.jaak.environment.external.perception.FloatSubstance;
 import io.sarl.jaak.environment.external.perception.ObjectManipulator;
 import io.sarl.jaak.environment.external.perception.Obstacle;
 import io.sarl.jaak.environment.external.perception.Substance;
+import io.sarl.jaak.environment.external.time.TimeManager;
 import io.sarl.jaak.environment.internal.GridModel;
+import io.sarl.jaak.environment.internal.SubstanceLayerModel;
 import io.sarl.jaak.environment.internal.ValidationResult;
 import io.sarl.jaak.environment.internal.solver.ActionApplier;
+import io.sarl.jaak.util.RandomStream;
 
+import java.nio.LongBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 
-import org.arakhne.afc.math.discrete.object2d.Point2i;
+import org.arakhne.afc.math.continous.object2d.Point2f;
 
 /** This class defines grid for the Jaak environment model.
+ * <p>
+ * The cells of the grid are stored inside a {@link CellStorage}
+ * selected with {@link JaakGridStorage}: only the cells with a
+ * content are allocated, and they are removed from the storage
+ * as soon as they become empty.
+ * <p>
+ * The accesses to the cells are synchronized on lock regions.
+ * The regions are the independent parts of the {@link CellStorage}
+ * (the tiles, or the per-region quadtrees), and they are mapped on a
+ * fixed set of locks: the grid may be read and updated by several threads
+ * in parallel as soon as they are working on different regions.
+ * A move between two regions takes the two locks in a fixed order.
+ * <p>
+ * The free cells are indexed by a {@link FreeCellIndex}, which is
+ * updated after each change of a cell, under the lock of the region of
+ * the cell. A free cell is randomly selected without probing the grid,
+ * with the random stream of the caller.
+ * <p>
+ * The cells with a turtle (not burrowed) and the cells with an
+ * obstacle are also marked in two bitmaps, one bit per cell, with
+ * rows of 64-bit words. {@link #isFree(int, int)} and
+ * {@link #hasObstacle(int, int)} are reading these bitmaps
+ * without taking any lock. Because the tiles are aligned on the
+ * words, a word is always updated under the lock of its region.
+ * <p>
+ * The substances which are {@link FloatSubstance#isLazyDecay() decaying lazily}
+ * are not run as autonomous processes: they receive the time manager of the
+ * grid as clock, and compute their amounts only when they are read. At each
+ * step, a bounded number of them is checked, and the disappeared ones are
+ * removed from the grid.
  *
  * @author $Author: sgalland$
  * @version $FullVersion$
@@ -49,26 +89,236 @@ import org.arakhne.afc.math.discrete.object2d.Point2i;
  */
 class JaakGrid implements GridModel, ActionApplier {
 
+	/** Number of region locks per available processor.
+	 */
+	private static final int LOCKS_PER_PROCESSOR = 4;
+
+	/** Number of bits to shift a coordinate to obtain the index of a word in a bitmap row.
+	 */
+	private static final int WORD_SHIFT = 6;
+
+	/** Mask to apply on a coordinate to obtain the index of a bit in a bitmap word.
+	 */
+	private static final int WORD_MASK = Long.SIZE - 1;
+
+	/** Number of lazily decaying substances which are checked at each step.
+	 */
+	private static final int LAZY_SWEEP_SIZE = 256;
+
+	/** Number of random positions which are tested in an area
+	 * before the free cells of the area are counted.
+	 */
+	private static final int REJECTION_TRIES = 16;
+
 	private final int width;
 	private final int height;
-	private final GridCell[][] grid;
+	private final CellStorage<GridCell> cells;
+	private final FreeCellIndex freeCells;
+	private final int wordsPerRow;
+	private final AtomicLongArray occupancy;
+	private final AtomicLongArray obstacles;
 	private final ObjectManipulator objectManipulator;
-	private final Collection<AutonomousEndogenousProcess> autonomousProcesses = new LinkedList<>();
+	private final ProcessScheduler autonomousProcesses = new ProcessScheduler();
+	private final Map<Class<?>, SubstanceLayer> layers = new ConcurrentHashMap<>();
+	private final List<FloatSubstance> lazySubstances = new ArrayList<>();
+	private final Map<FloatSubstance, Integer> lazyIndexes = new IdentityHashMap<>();
+	private int lazyCursor;
+	private final FloatSubstance[] sweepBuffer = new FloatSubstance[LAZY_SWEEP_SIZE];
+	private volatile TimeManager timeManager;
+	private final int regionShift;
+	private final int regionColumns;
+	private final int regionRows;
+	private final Object[] locks;
 
-	/**
+	/** Create a grid with the {@link JaakGridStorage#TILES tiled storage}.
+	 *
 	 * @param width is the width of the grid.
 	 * @param height is the height of the grid.
 	 * @param objectManipulator is the object which is permitting to manipulate
 	 * the environmental objects.
 	 */
 	public JaakGrid(int width, int height, ObjectManipulator objectManipulator) {
+		this(width, height, objectManipulator, JaakGridStorage.TILES);
+	}
+
+	/**
+	 * @param width is the width of the grid.
+	 * @param height is the height of the grid.
+	 * @param objectManipulator is the object which is permitting to manipulate
+	 * the environmental objects.
+	 * @param storage is the type of storage for the cells.
+	 */
+	public JaakGrid(int width, int height, ObjectManipulator objectManipulator, JaakGridStorage storage) {
 		assert (width > 0);
 		assert (height > 0);
 		assert (objectManipulator != null);
+		assert (storage != null);
 		this.width = width;
 		this.height = height;
-		this.grid = new GridCell[width][height];
+		this.cells = storage.createStorage(width, height);
+		this.freeCells = new FreeCellIndex(width, height);
+		this.wordsPerRow = ((width - 1) >> WORD_SHIFT) + 1;
+		this.occupancy = new AtomicLongArray(this.wordsPerRow * height);
+		this.obstacles = new AtomicLongArray(this.wordsPerRow * height);
 		this.objectManipulator = objectManipulator;
+		this.regionShift = this.cells.getRegionShift();
+		this.regionColumns = ((width - 1) >> this.regionShift) + 1;
+		this.regionRows = ((height - 1) >> this.regionShift) + 1;
+		int count = Math.min(
+				this.regionColumns * this.regionRows,
+				LOCKS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors());
+		this.locks = new Object[count];
+		for (int i = 0; i < count; ++i) {
+			this.locks[i] = new Object();
+		}
+	}
+
+	/** Replies the index of the lock for the cell at the given position.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @return the index of the lock.
+	 */
+	private int lockIndex(int x, int y) {
+		if (x < 0 || y < 0 || x >= this.width || y >= this.height) {
+			return 0;
+		}
+		int region = (y >> this.regionShift) * this.regionColumns + (x >> this.regionShift);
+		return region % this.locks.length;
+	}
+
+	/** Replies the lock for the cell at the given position.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @return the lock.
+	 */
+	private Object lockFor(int x, int y) {
+		return this.locks[lockIndex(x, y)];
+	}
+
+	private void addAutonomousProcess(Object object) {
+		if (object instanceof FloatSubstance && ((FloatSubstance) object).isLazyDecay()) {
+			FloatSubstance substance = (FloatSubstance) object;
+			this.objectManipulator.setClock(substance, this.timeManager);
+			synchronized (this.lazySubstances) {
+				if (!this.lazyIndexes.containsKey(substance)) {
+					this.lazyIndexes.put(substance, this.lazySubstances.size());
+					this.lazySubstances.add(substance);
+				}
+			}
+		} else if (object instanceof AutonomousEndogenousProcess) {
+			this.autonomousProcesses.add((AutonomousEndogenousProcess) object);
+		}
+	}
+
+	private void removeAutonomousProcess(Object object) {
+		if (object instanceof FloatSubstance && ((FloatSubstance) object).isLazyDecay()) {
+			FloatSubstance substance = (FloatSubstance) object;
+			this.objectManipulator.setClock(substance, null);
+			synchronized (this.lazySubstances) {
+				Integer index = this.lazyIndexes.remove(substance);
+				if (index != null) {
+					FloatSubstance last = this.lazySubstances.remove(this.lazySubstances.size() - 1);
+					if (last != substance) {
+						this.lazySubstances.set(index.intValue(), last);
+						this.lazyIndexes.put(last, index);
+					}
+				}
+			}
+		} else if (object instanceof AutonomousEndogenousProcess) {
+			this.autonomousProcesses.remove((AutonomousEndogenousProcess) object);
+		}
+	}
+
+	/** Change the time manager which is used as clock by the
+	 * lazily decaying substances.
+	 *
+	 * @param timeManager is the time manager.
+	 */
+	public void setTimeManager(TimeManager timeManager) {
+		this.timeManager = timeManager;
+		synchronized (this.lazySubstances) {
+			for (FloatSubstance substance : this.lazySubstances) {
+				this.objectManipulator.setClock(substance, timeManager);
+			}
+		}
+	}
+
+	/** Remove from the grid the lazily decaying substances which have disappeared.
+	 * At most {@link #LAZY_SWEEP_SIZE} substances are checked, starting after
+	 * the last substance checked by the previous call. The disappeared
+	 * substances which are not checked yet are hidden by {@link #getObjects(int, int)}.
+	 */
+	private void sweepLazySubstances() {
+		FloatSubstance[] disappeared = this.sweepBuffer;
+		int count = 0;
+		synchronized (this.lazySubstances) {
+			int size = this.lazySubstances.size();
+			int n = Math.min(size, LAZY_SWEEP_SIZE);
+			FloatSubstance substance;
+			for (int i = 0; i < n; ++i) {
+				if (this.lazyCursor >= size) {
+					this.lazyCursor = 0;
+				}
+				substance = this.lazySubstances.get(this.lazyCursor);
+				++this.lazyCursor;
+				if (substance.isDisappeared()) {
+					disappeared[count] = substance;
+					++count;
+				}
+			}
+		}
+		for (int i = 0; i < count; ++i) {
+			removeDisappearedSubstance(disappeared[i]);
+			disappeared[i] = null;
+		}
+	}
+
+	/** Remove from its cell the given lazily decaying substance,
+	 * which has disappeared.
+	 * <p>
+	 * The substance is removed directly from the cell, without being
+	 * combined with another substance.
+	 *
+	 * @param substance is the substance to remove.
+	 */
+	private void removeDisappearedSubstance(FloatSubstance substance) {
+		Point2f position = substance.getPosition();
+		int x = (int) position.getX();
+		int y = (int) position.getY();
+		if (x < 0 || y < 0 || x >= this.width || y >= this.height) {
+			removeAutonomousProcess(substance);
+			return;
+		}
+		synchronized (lockFor(x, y)) {
+			GridCell cell = getCell(x, y, false);
+			if (cell != null) {
+				Map<String, EnvironmentalObject> objects = cell.getEnvironmentObjects();
+				String id = substance.getEnvironmentalObjectIdentifier();
+				if (objects.get(id) == substance) {
+					objects.remove(id);
+					this.objectManipulator.setPosition(substance, Integer.MIN_VALUE, Integer.MIN_VALUE);
+					removeCell(cell, x, y);
+				}
+			}
+			removeAutonomousProcess(substance);
+		}
+	}
+
+	/** Replies if the given object, located in a cell, is visible.
+	 * The lazily decaying substances are not visible when they have
+	 * disappeared, even if they are not yet removed from their cells.
+	 *
+	 * @param object is the object.
+	 * @return <code>true</code> if the object is visible.
+	 */
+	private static boolean isVisible(EnvironmentalObject object) {
+		if (object instanceof FloatSubstance) {
+			FloatSubstance substance = (FloatSubstance) object;
+			return !substance.isLazyDecay() || !substance.isDisappeared();
+		}
+		return true;
 	}
 
 	/** Replies the width of the grid.
@@ -89,43 +339,416 @@ class JaakGrid implements GridModel, ActionApplier {
 		return this.height;
 	}
 
-	private GridCell getCell(int x, int y, boolean createNew) {
-		try {
-			GridCell cell = this.grid[x][y];
-			if (cell == null && createNew) {
-				cell = new GridCell();
-				this.grid[x][y] = cell;
-			}
-			return cell;
-		} catch (Throwable _) {
+	/** Register a dense layer for the substances of the given type.
+	 * <p>
+	 * The substances of the given type which are put on the grid
+	 * after this call are stored in the layer; the substance objects
+	 * become views on the amounts in the layer.
+	 *
+	 * @param type is the type of the substances.
+	 * @param maximum is the maximal amount of substance in a cell.
+	 */
+	public void registerSubstanceLayer(Class<? extends FloatSubstance> type, float maximum) {
+		assert (type != null);
+		if (!this.layers.containsKey(type)) {
+			this.layers.put(type, new SubstanceLayer(type, this.width, this.height, maximum));
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public SubstanceLayerModel getSubstanceLayer(Class<? extends FloatSubstance> type) {
+		return this.layers.get(type);
+	}
+
+	/** {@inheritDoc}
+	 * <p>
+	 * The amounts under the threshold of the layer are cleared, and no
+	 * substance is put on the cells with an obstacle. The substance objects
+	 * which are created for the new cells are copies of the first substance
+	 * put on the layer.
+	 *
+	 * @see #setSubstanceEvaporation(Class, float, float)
+	 */
+	@Override
+	public boolean setSubstanceValues(Class<? extends FloatSubstance> type, float[] values) {
+		SubstanceLayer layer = this.layers.get(type);
+		if (layer == null) {
+			return false;
+		}
+		assert (values != null && values.length == this.width * this.height);
+		long size = 1L << this.regionShift;
+		float threshold = layer.getThreshold();
+		for (int r = 0; r < this.regionRows; ++r) {
+			for (int c = 0; c < this.regionColumns; ++c) {
+				int rx = c << this.regionShift;
+				int ry = r << this.regionShift;
+				int ex = (int) Math.min(this.width, rx + size);
+				int ey = (int) Math.min(this.height, ry + size);
+				synchronized (lockFor(rx, ry)) {
+					for (int y = ry; y < ey; ++y) {
+						setLayerRow(layer, values, y, rx, ex, threshold);
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private void setLayerRow(SubstanceLayer layer, float[] values, int y, int sx, int ex, float threshold) {
+		int index = y * this.width + sx;
+		float v;
+		FloatSubstance view;
+		for (int x = sx; x < ex; ++x, ++index) {
+			v = values[index];
+			view = layer.getView(index);
+			if (v > threshold && v > 0f && !hasObstacle(x, y)) {
+				layer.setValue(index, v);
+				if (view == null) {
+					view = layer.createView(this.objectManipulator);
+					if (view != null) {
+						bindLayeredSubstance(x, y, layer, index, view);
+					}
+				}
+			} else {
+				layer.setValue(index, 0f);
+				if (view != null) {
+					clearLayeredSubstance(layer, index);
+				}
+			}
+		}
+	}
+
+	/** Replies the amount of substance of the given type in the cell at the given position.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @param type is the type of the substance.
+	 * @return the amount of substance, or {@link Float#NaN} if no layer is
+	 * registered for the given type.
+	 */
+	public float getSubstanceAmount(int x, int y, Class<? extends FloatSubstance> type) {
+		synchronized (lockFor(x, y)) {
+			SubstanceLayer layer = this.layers.get(type);
+			if (layer != null) {
+				int index = layer.indexOf(x, y);
+				return index >= 0 ? layer.getValue(index) : 0f;
+			}
+			return Float.NaN;
+		}
+	}
+
+	/** Change the evaporation of the substances of the given type.
+	 * <p>
+	 * An evaporating layer is decreased at each step in a single pass over
+	 * its cells, and its cells under the threshold are cleared in the same
+	 * pass. The substances in the layer are not run as
+	 * {@link AutonomousEndogenousProcess autonomous processes}.
+	 *
+	 * @param type is the type of the substances.
+	 * @param evaporation is the amount of substance which is evaporating from
+	 * a cell during one second, or zero to disable the evaporation.
+	 * @param threshold is the amount under which a cell is cleared.
+	 * @return <code>true</code> if the evaporation was changed, <code>false</code>
+	 * if no layer is registered for the given type.
+	 * @see #registerSubstanceLayer(Class, float)
+	 */
+	public boolean setSubstanceEvaporation(Class<? extends FloatSubstance> type, float evaporation, float threshold) {
+		SubstanceLayer layer = this.layers.get(type);
+		if (layer == null) {
+			return false;
+		}
+		boolean wasEvaporating = layer.isEvaporating();
+		layer.setEvaporation(evaporation, threshold);
+		if (wasEvaporating != layer.isEvaporating()) {
+			// The views are run by the layer, or back as autonomous processes
+			long size = 1L << this.regionShift;
+			for (int r = 0; r < this.regionRows; ++r) {
+				for (int c = 0; c < this.regionColumns; ++c) {
+					int rx = c << this.regionShift;
+					int ry = r << this.regionShift;
+					int ex = (int) Math.min(this.width, rx + size);
+					int ey = (int) Math.min(this.height, ry + size);
+					synchronized (lockFor(rx, ry)) {
+						for (int y = ry; y < ey; ++y) {
+							for (int index = y * this.width + rx, end = y * this.width + ex; index < end; ++index) {
+								FloatSubstance view = layer.getView(index);
+								if (view != null) {
+									if (wasEvaporating) {
+										addAutonomousProcess(view);
+									} else {
+										removeAutonomousProcess(view);
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/** Evaporate the substances of the evaporating layers.
+	 * The layers are evaporated region by region, under the lock of each region.
+	 *
+	 * @param simulationStepDuration is the duration of the current simulation step.
+	 */
+	private void evaporateLayers(float simulationStepDuration) {
+		if (this.layers.isEmpty() || simulationStepDuration <= 0f) {
+			return;
+		}
+		long size = 1L << this.regionShift;
+		for (SubstanceLayer layer : this.layers.values()) {
+			if (layer.isEvaporating()) {
+				float amount = layer.getEvaporation() * simulationStepDuration;
+				float threshold = layer.getThreshold();
+				for (int r = 0; r < this.regionRows; ++r) {
+					for (int c = 0; c < this.regionColumns; ++c) {
+						int rx = c << this.regionShift;
+						int ry = r << this.regionShift;
+						int ex = (int) Math.min(this.width, rx + size);
+						int ey = (int) Math.min(this.height, ry + size);
+						synchronized (lockFor(rx, ry)) {
+							for (int y = ry; y < ey; ++y) {
+								layer.evaporate(y * this.width + rx, y * this.width + ex,
+										amount, threshold, this.objectManipulator);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private SubstanceLayer getLayer(EnvironmentalObject object) {
+		if (this.layers.isEmpty() || !(object instanceof FloatSubstance)) {
 			return null;
 		}
+		return this.layers.get(object.getClass());
+	}
+
+	private GridCell getCell(int x, int y, boolean createNew) {
+		GridCell cell = this.cells.get(x, y);
+		if (cell == null && createNew) {
+			cell = new GridCell();
+			if (!this.cells.put(x, y, cell)) {
+				return null;
+			}
+		}
+		return cell;
 	}
 
 	/** Run the autonomous environmental processes.
+	 * <p>
+	 * The {@link ScheduledEndogenousProcess scheduled processes} are run only
+	 * when they are due, with the time elapsed since their previous run as
+	 * step duration.
 	 *
 	 * @param currentTime is the current simulation time
 	 * @param simulationStepDuration is the duration of the current simulation step.
 	 * @return the influences generated by the autonomous processes.
 	 */
-	public synchronized Collection<Influence> runAutonomousProcesses(float currentTime, float simulationStepDuration) {
+	public Collection<Influence> runAutonomousProcesses(float currentTime, float simulationStepDuration) {
+		List<ProcessScheduler.Entry> processes = this.autonomousProcesses.getDueProcesses(currentTime);
+		evaporateLayers(simulationStepDuration);
 		Collection<Influence> influences = new LinkedList<>();
 		Influence influence;
-		for (AutonomousEndogenousProcess process : this.autonomousProcesses) {
-			influence = process.runAutonomousEndogenousProcess(currentTime, simulationStepDuration);
+		for (ProcessScheduler.Entry process : processes) {
+			influence = process.getProcess().runAutonomousEndogenousProcess(currentTime,
+					process.getStepDuration(currentTime, simulationStepDuration));
+			this.autonomousProcesses.activated(process, currentTime);
 			if (influence != null) {
 				influences.add(influence);
 			}
 		}
+		sweepLazySubstances();
 		return influences;
 	}
 
+	/** Update the bitmaps and the index of the free cells for the cell
+	 * at the given position. The lock of the cell must be owned by the caller.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 */
+	private void updateFreeCell(int x, int y) {
+		GridCell cell = getCell(x, y, false);
+		boolean obstacle = cell != null && cell.getObstacle() != null;
+		boolean occupied = cell != null && cell.getUnburrowedTurtle() != null;
+		setBit(this.obstacles, x, y, obstacle);
+		setBit(this.occupancy, x, y, occupied);
+		this.freeCells.setFree(x, y, !obstacle && !occupied);
+	}
+
+	private void setBit(AtomicLongArray bitmap, int x, int y, boolean value) {
+		if (x >= 0 && y >= 0 && x < this.width && y < this.height) {
+			int index = y * this.wordsPerRow + (x >> WORD_SHIFT);
+			long mask = 1L << (x & WORD_MASK);
+			long word = bitmap.get(index);
+			bitmap.set(index, value ? (word | mask) : (word & ~mask));
+		}
+	}
+
+	private boolean getBit(AtomicLongArray bitmap, int x, int y) {
+		return (bitmap.get(y * this.wordsPerRow + (x >> WORD_SHIFT)) & (1L << (x & WORD_MASK))) != 0;
+	}
+
+	/** Replies the first free cell on the row <var>y</var> between
+	 * <var>x1</var> (inclusive) and <var>x2</var> (exclusive).
+	 * <p>
+	 * The row is scanned 64 cells at a time in the bitmaps.
+	 *
+	 * @param y is the coordinate of the row.
+	 * @param x1 is the lower coordinate of the range.
+	 * @param x2 is the upper coordinate of the range, exclusive.
+	 * @return the coordinate of the first free cell, or <code>-1</code>
+	 * if no cell is free in the range.
+	 */
+	public int findFreeCell(int y, int x1, int x2) {
+		int sx = Math.max(0, x1);
+		int ex = Math.min(this.width, x2);
+		if (y < 0 || y >= this.height || sx >= ex) {
+			return -1;
+		}
+		int row = y * this.wordsPerRow;
+		int first = sx >> WORD_SHIFT;
+		long free;
+		for (int w = first; w <= ((ex - 1) >> WORD_SHIFT); ++w) {
+			free = ~(this.occupancy.get(row + w) | this.obstacles.get(row + w));
+			if (w == first) {
+				free &= -1L << (sx & WORD_MASK);
+			}
+			if (free != 0) {
+				int x = (w << WORD_SHIFT) + Long.numberOfTrailingZeros(free);
+				return x < ex ? x : -1;
+			}
+		}
+		return -1;
+	}
+
+	/** Replies a free cell randomly selected in the grid.
+	 * <p>
+	 * The tile of the cell is selected without lock in the index of the free
+	 * cells, and the cell is selected under the lock of the tile's region.
+	 * The selection is restarted if the tile was changed in the meantime.
+	 *
+	 * @param random is the random stream of the caller.
+	 * @return the position of the free cell, or <code>null</code> if no cell is free.
+	 */
+	public Point2f getFreeRandomPosition(RandomStream random) {
+		int total = this.freeCells.getFreeCount();
+		int rank;
+		int tile;
+		Point2f position;
+		while (total > 0) {
+			rank = random.nextInt(total);
+			tile = this.freeCells.findTile(rank);
+			synchronized (lockFor(this.freeCells.getTileX(tile), this.freeCells.getTileY(tile))) {
+				position = this.freeCells.getFreeCell(tile, rank - this.freeCells.getFreeCountBefore(tile));
+			}
+			if (position != null) {
+				return position;
+			}
+			total = this.freeCells.getFreeCount();
+		}
+		return null;
+	}
+
+	/** Replies a free cell randomly selected inside
+	 * the rectangle <code>[x1, x2[ x [y1, y2[</code>.
+	 * <p>
+	 * A few random cells of the area are tested first. Then the free cells
+	 * of the area are counted tile by tile, under the lock of each tile's
+	 * region, and the cell is selected by its rank in the area.
+	 *
+	 * @param x1 is the lower coordinate of the area.
+	 * @param y1 is the lower coordinate of the area.
+	 * @param x2 is the upper coordinate of the area, exclusive.
+	 * @param y2 is the upper coordinate of the area, exclusive.
+	 * @param random is the random stream of the caller.
+	 * @return the position of the free cell, or <code>null</code> if no cell is free.
+	 */
+	public Point2f getFreeRandomPosition(int x1, int y1, int x2, int y2, RandomStream random) {
+		int sx = Math.max(0, x1);
+		int sy = Math.max(0, y1);
+		int ex = Math.min(this.width, x2);
+		int ey = Math.min(this.height, y2);
+		if (sx >= ex || sy >= ey || this.freeCells.getFreeCount() <= 0) {
+			return null;
+		}
+		if (sx == 0 && sy == 0 && ex == this.width && ey == this.height) {
+			return getFreeRandomPosition(random);
+		}
+		int x;
+		int y;
+		for (int i = 0; i < REJECTION_TRIES; ++i) {
+			x = sx + random.nextInt(ex - sx);
+			y = sy + random.nextInt(ey - sy);
+			if (isFree(x, y)) {
+				return new Point2f(x, y);
+			}
+		}
+		int total = countFreeCells(sx, sy, ex, ey);
+		Point2f position;
+		while (total > 0) {
+			position = getFreeCell(sx, sy, ex, ey, random.nextInt(total));
+			if (position != null) {
+				return position;
+			}
+			total = countFreeCells(sx, sy, ex, ey);
+		}
+		return null;
+	}
+
+	private int countFreeCells(int sx, int sy, int ex, int ey) {
+		int count = 0;
+		int tile;
+		int cx;
+		int cy;
+		for (int ty = sy >> TiledCellStorage.TILE_SHIFT; ty <= (ey - 1) >> TiledCellStorage.TILE_SHIFT; ++ty) {
+			for (int tx = sx >> TiledCellStorage.TILE_SHIFT; tx <= (ex - 1) >> TiledCellStorage.TILE_SHIFT; ++tx) {
+				cx = tx << TiledCellStorage.TILE_SHIFT;
+				cy = ty << TiledCellStorage.TILE_SHIFT;
+				tile = this.freeCells.getTile(cx, cy);
+				synchronized (lockFor(cx, cy)) {
+					count += this.freeCells.countFreeCells(tile, sx, sy, ex, ey);
+				}
+			}
+		}
+		return count;
+	}
+
+	private Point2f getFreeCell(int sx, int sy, int ex, int ey, int rank) {
+		int remaining = rank;
+		int tile;
+		int cx;
+		int cy;
+		int n;
+		for (int ty = sy >> TiledCellStorage.TILE_SHIFT; ty <= (ey - 1) >> TiledCellStorage.TILE_SHIFT; ++ty) {
+			for (int tx = sx >> TiledCellStorage.TILE_SHIFT; tx <= (ex - 1) >> TiledCellStorage.TILE_SHIFT; ++tx) {
+				cx = tx << TiledCellStorage.TILE_SHIFT;
+				cy = ty << TiledCellStorage.TILE_SHIFT;
+				tile = this.freeCells.getTile(cx, cy);
+				synchronized (lockFor(cx, cy)) {
+					n = this.freeCells.countFreeCells(tile, sx, sy, ex, ey);
+					if (remaining < n) {
+						return this.freeCells.getFreeCell(tile, sx, sy, ex, ey, remaining);
+					}
+				}
+				remaining -= n;
+			}
+		}
+		return null;
+	}
+
 	private void removeCell(GridCell cell, int x, int y) {
 		assert (cell != null);
 		if (cell.getTurtleCount() == 0
 				&& cell.getEnvironmentObjects().isEmpty()
 				&& cell.getObstacle() == null) {
-			this.grid[x][y] = null;
+			this.cells.remove(x, y, cell);
 		}
 	}
 
@@ -139,7 +762,26 @@ class JaakGrid implements GridModel, ActionApplier {
 	 * the given position.
 	 */
 	@Override
-	public synchronized TurtleBody getTurtle(int x, int y) {
+	public TurtleBody getTurtle(int x, int y) {
+		synchronized (lockFor(x, y)) {
+			return getTurtleWithoutLock(x, y);
+		}
+	}
+
+	/** Replies the turtle body on the cell at the given
+	 * coordinate, without taking the lock of the cell.
+	 * <p>
+	 * This function must be invoked only when the grid is not
+	 * changed, e.g. during the computation of the perceptions.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @return the turtle body at the given position, or
+	 * <code>null</code> if no turtle body is located at
+	 * the given position.
+	 * @see #getTurtle(int, int)
+	 */
+	TurtleBody getTurtleWithoutLock(int x, int y) {
 		GridCell cell = getCell(x, y, false);
 		return (cell != null) ? cell.getUnburrowedTurtle() : null;
 	}
@@ -151,12 +793,55 @@ class JaakGrid implements GridModel, ActionApplier {
 	 * @param y is the coordinate of the cell.
 	 * @return the turtle bodies at the given position.
 	 */
-	public synchronized Collection<TurtleBody> getTurtles(int x, int y) {
-		GridCell cell = getCell(x, y, false);
-		if (cell != null) {
-			return cell.getTurtles();
+	public Collection<TurtleBody> getTurtles(int x, int y) {
+		synchronized (lockFor(x, y)) {
+			GridCell cell = getCell(x, y, false);
+			if (cell != null) {
+				return cell.getTurtles();
+			}
+			return Collections.emptyList();
 		}
-		return Collections.emptyList();
+	}
+
+	/** Replies the turtle bodies (not burrowed) on the cells inside
+	 * the rectangle <code>[x1, x2[ x [y1, y2[</code>.
+	 *
+	 * @param x1 is the lower coordinate of the area.
+	 * @param y1 is the lower coordinate of the area.
+	 * @param x2 is the upper coordinate of the area, exclusive.
+	 * @param y2 is the upper coordinate of the area, exclusive.
+	 * @return the turtle bodies in the area.
+	 */
+	public Collection<TurtleBody> getTurtles(float x1, float y1, float x2, float y2) {
+		Collection<GridCell> area = new ArrayList<>();
+		float size = 1L << this.regionShift;
+		int sc = Math.max(0, (int) Math.floor(x1)) >> this.regionShift;
+		int sr = Math.max(0, (int) Math.floor(y1)) >> this.regionShift;
+		int ec = Math.min(this.regionColumns - 1, Math.max(0, (int) Math.ceil(x2) - 1) >> this.regionShift);
+		int er = Math.min(this.regionRows - 1, Math.max(0, (int) Math.ceil(y2) - 1) >> this.regionShift);
+		int rx;
+		int ry;
+		for (int r = sr; r <= er; ++r) {
+			for (int c = sc; c <= ec; ++c) {
+				rx = c << this.regionShift;
+				ry = r << this.regionShift;
+				synchronized (lockFor(rx, ry)) {
+					this.cells.find(
+							Math.max(x1, rx), Math.max(y1, ry),
+							Math.min(x2, rx + size), Math.min(y2, ry + size),
+							area);
+				}
+			}
+		}
+		Collection<TurtleBody> turtles = new ArrayList<>(area.size());
+		TurtleBody body;
+		for (GridCell cell : area) {
+			body = cell.getUnburrowedTurtle();
+			if (body != null) {
+				turtles.add(body);
+			}
+		}
+		return turtles;
 	}
 
 	/** Replies if the cell at the given position is able to contains
@@ -171,12 +856,9 @@ class JaakGrid implements GridModel, ActionApplier {
 	 * <code>false</code> if a turtle is already on the cell or
 	 * if the cell is not traversable.
 	 */
-	public synchronized boolean isFree(int x, int y) {
+	public boolean isFree(int x, int y) {
 		if (x >= 0 && y >= 0 && x < this.width && y < this.height) {
-			GridCell cell = getCell(x, y, false);
-			return cell == null
-					|| (cell.getObstacle() == null
-					&& cell.getUnburrowedTurtle() == null);
+			return !getBit(this.occupancy, x, y) && !getBit(this.obstacles, x, y);
 		}
 		return false;
 	}
@@ -192,10 +874,9 @@ class JaakGrid implements GridModel, ActionApplier {
 	 * @return <code>true</code> if the cell contains an obstacle,
 	 * <code>false</code> otherwise.
 	 */
-	public synchronized boolean hasObstacle(int x, int y) {
+	public boolean hasObstacle(int x, int y) {
 		if (x >= 0 && y >= 0 && x < this.width && y < this.height) {
-			GridCell cell = getCell(x, y, false);
-			return cell != null && cell.getObstacle() != null;
+			return getBit(this.obstacles, x, y);
 		}
 		return true;
 	}
@@ -209,16 +890,151 @@ class JaakGrid implements GridModel, ActionApplier {
 	 * never {@link NullPointerException}.
 	 */
 	@Override
-	public synchronized Collection<EnvironmentalObject> getObjects(int x, int y) {
+	public Collection<EnvironmentalObject> getObjects(int x, int y) {
+		synchronized (lockFor(x, y)) {
+			return getObjectsWithoutLock(x, y);
+		}
+	}
+
+	/** Replies the environmental objects on the cell at the
+	 * given coordinate, without taking the lock of the cell.
+	 * <p>
+	 * This function must be invoked only when the grid is not
+	 * changed, e.g. during the computation of the perceptions.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @return the environmental objects at the given position,
+	 * never {@link NullPointerException}.
+	 * @see #getObjects(int, int)
+	 */
+	Collection<EnvironmentalObject> getObjectsWithoutLock(int x, int y) {
 		GridCell cell = getCell(x, y, false);
+		if (cell != null) {
+			Obstacle o = cell.getObstacle();
+			if (o != null) {
+				return Collections.<EnvironmentalObject>singleton(o);
+			}
+		}
+		if (!this.layers.isEmpty()) {
+			Collection<EnvironmentalObject> objects = new ArrayList<>();
+			if (cell != null) {
+				addVisibleObjects(cell, objects);
+			}
+			FloatSubstance view;
+			int index;
+			for (SubstanceLayer layer : this.layers.values()) {
+				index = layer.indexOf(x, y);
+				if (index >= 0) {
+					view = layer.getView(index);
+					if (view != null) {
+						objects.add(view);
+					}
+				}
+			}
+			return objects;
+		}
 		if (cell == null) {
 			return Collections.emptyList();
 		}
-		Obstacle o = cell.getObstacle();
-		if (o != null) {
-			return Collections.<EnvironmentalObject>singleton(o);
+		Collection<EnvironmentalObject> objects = cell.getEnvironmentObjects().values();
+		for (EnvironmentalObject object : objects) {
+			if (!isVisible(object)) {
+				Collection<EnvironmentalObject> visibleObjects = new ArrayList<>(objects.size());
+				addVisibleObjects(cell, visibleObjects);
+				return visibleObjects;
+			}
 		}
-		return Collections.unmodifiableCollection(cell.getEnvironmentObjects().values());
+		return Collections.unmodifiableCollection(objects);
+	}
+
+	private static void addVisibleObjects(GridCell cell, Collection<? super EnvironmentalObject> objects) {
+		for (EnvironmentalObject object : cell.getEnvironmentObjects().values()) {
+			if (isVisible(object)) {
+				objects.add(object);
+			}
+		}
+	}
+
+	/** Add in the given collection the objects of all the cells, without
+	 * the substances stored in the layers, and without taking the locks
+	 * of the cells.
+	 * <p>
+	 * This function must be invoked only when the grid is not
+	 * changed, e.g. during a checkpoint.
+	 *
+	 * @param objects is the collection to fill.
+	 */
+	void getAllObjectsWithoutLock(Collection<? super EnvironmentalObject> objects) {
+		Collection<GridCell> area = new ArrayList<>();
+		this.cells.find(0, 0, this.width, this.height, area);
+		Obstacle obstacle;
+		for (GridCell cell : area) {
+			obstacle = cell.getObstacle();
+			if (obstacle != null) {
+				objects.add(obstacle);
+			}
+			addVisibleObjects(cell, objects);
+		}
+	}
+
+	/** Replies the number of words in the bitmap of the occupied cells.
+	 *
+	 * @return the number of words.
+	 * @see #getOccupancy(LongBuffer)
+	 */
+	int getOccupancySize() {
+		return this.occupancy.length();
+	}
+
+	/** Copy in the given buffer the bitmap of the cells with a turtle
+	 * (not burrowed): one bit per cell, with rows of 64-bit words.
+	 *
+	 * @param buffer is the buffer to fill.
+	 */
+	void getOccupancy(LongBuffer buffer) {
+		int n = this.occupancy.length();
+		for (int i = 0; i < n; ++i) {
+			buffer.put(this.occupancy.get(i));
+		}
+	}
+
+	/** Replies the substance layers.
+	 *
+	 * @return the layers.
+	 */
+	Collection<SubstanceLayer> getLayers() {
+		return Collections.unmodifiableCollection(this.layers.values());
+	}
+
+	/** Replies the tick at which the given scheduled process is due.
+	 *
+	 * @param process is the process.
+	 * @return the tick, or {@link Long#MIN_VALUE} if the process is not scheduled.
+	 */
+	long getDueTick(ScheduledEndogenousProcess process) {
+		return this.autonomousProcesses.getDueTick(process);
+	}
+
+	/** Replies the time of the last run of the given process.
+	 *
+	 * @param process is the process.
+	 * @return the time of the last run, or {@link Float#NaN} if the
+	 * process was never run.
+	 */
+	float getLastActivation(ScheduledEndogenousProcess process) {
+		return this.autonomousProcesses.getLastActivation(process);
+	}
+
+	/** Change the schedule of the given process, which is on the grid.
+	 *
+	 * @param process is the process.
+	 * @param tick is the tick at which the process is due, or
+	 * {@link Long#MIN_VALUE} if the process is not scheduled.
+	 * @param lastActivation is the time of the last run of the process.
+	 */
+	void setSchedule(ScheduledEndogenousProcess process, long tick, float lastActivation) {
+		this.autonomousProcesses.setSchedule(process, tick, lastActivation);
 	}
 
 	/** Put the given turtle body inside the cell at the given position.
@@ -233,10 +1049,16 @@ class JaakGrid implements GridModel, ActionApplier {
 	 * <code>false</code> otherwise
 	 */
 	@Override
-	public synchronized boolean putTurtle(int x, int y, TurtleBody body) {
-		GridCell cell = getCell(x, y, true);
-		assert (cell != null);
-		return cell.addTurtle(body);
+	public boolean putTurtle(int x, int y, TurtleBody body) {
+		synchronized (lockFor(x, y)) {
+			GridCell cell = getCell(x, y, true);
+			assert (cell != null);
+			if (cell.addTurtle(body)) {
+				updateFreeCell(x, y);
+				return true;
+			}
+			return false;
+		}
 	}
 
 	/** Remove the given turtle body from the cell at the given position.
@@ -251,15 +1073,18 @@ class JaakGrid implements GridModel, ActionApplier {
 	 * <code>false</code> otherwise
 	 */
 	@Override
-	public synchronized boolean removeTurtle(int x, int y, TurtleBody body) {
-		GridCell cell = getCell(x, y, false);
-		if (cell != null) {
-			if (cell.removeTurtle(body)) {
-				removeCell(cell, x, y);
-				return true;
+	public boolean removeTurtle(int x, int y, TurtleBody body) {
+		synchronized (lockFor(x, y)) {
+			GridCell cell = getCell(x, y, false);
+			if (cell != null) {
+				if (cell.removeTurtle(body)) {
+					removeCell(cell, x, y);
+					updateFreeCell(x, y);
+					return true;
+				}
 			}
+			return false;
 		}
-		return false;
 	}
 
 	/** Move a turtle body from a cell to an other cell.
@@ -278,10 +1103,20 @@ class JaakGrid implements GridModel, ActionApplier {
 	 * @return <code>true</code> if the turtle body was successfully
 	 * moved, otherwise <code>false</code>
 	 */
-	public synchronized boolean moveTurtle(int fromx, int fromy, int tox, int toy, TurtleBody body) {
+	public boolean moveTurtle(int fromx, int fromy, int tox, int toy, TurtleBody body) {
 		if (fromx == tox && fromy == toy) {
 			return false;
 		}
+		int fromLock = lockIndex(fromx, fromy);
+		int toLock = lockIndex(tox, toy);
+		synchronized (this.locks[Math.min(fromLock, toLock)]) {
+			synchronized (this.locks[Math.max(fromLock, toLock)]) {
+				return moveTurtleInLockedRegions(fromx, fromy, tox, toy, body);
+			}
+		}
+	}
+
+	private boolean moveTurtleInLockedRegions(int fromx, int fromy, int tox, int toy, TurtleBody body) {
 		GridCell fromcell = getCell(fromx, fromy, false);
 		if (fromcell != null) {
 			GridCell tocell = getCell(tox, toy, false);
@@ -290,6 +1125,8 @@ class JaakGrid implements GridModel, ActionApplier {
 				if (fromcell.removeTurtle(body)) {
 					if (tocell.addTurtle(body)) {
 						removeCell(fromcell, fromx, fromy);
+						updateFreeCell(fromx, fromy);
+						updateFreeCell(tox, toy);
 						return true;
 					}
 					// Restore the previous cell state
@@ -313,45 +1150,50 @@ class JaakGrid implements GridModel, ActionApplier {
 	 * of substances.
 	 */
 	@Override
-	public synchronized EnvironmentalObject putObject(int x, int y, EnvironmentalObject object) {
-		assert (object != null);
-		EnvironmentalObject change = null;
-		GridCell cell = getCell(x, y, true);
-		if (cell != null) {
-			String id = object.getEnvironmentalObjectIdentifier();
-
-			Obstacle obs = cell.getObstacle();
-			if (obs != null) {
-				return null;
+	public EnvironmentalObject putObject(int x, int y, EnvironmentalObject object) {
+		synchronized (lockFor(x, y)) {
+			assert (object != null);
+			SubstanceLayer layer = getLayer(object);
+			if (layer != null) {
+				return putLayeredSubstance(x, y, layer, (FloatSubstance) object);
 			}
+			EnvironmentalObject change = null;
+			GridCell cell = getCell(x, y, true);
+			if (cell != null) {
+				String id = object.getEnvironmentalObjectIdentifier();
+
+				Obstacle obs = cell.getObstacle();
+				if (obs != null) {
+					return null;
+				}
 
-			if (object instanceof Substance) {
-				EnvironmentalObject currentObject = cell.getEnvironmentObjects().get(id);
-				if (currentObject instanceof Substance) {
-					Substance newObject = (Substance) object;
-					change = this.objectManipulator.combine((Substance) currentObject, newObject, true);
-					if (change != null) {
-						this.objectManipulator.setPosition(object, x, y);
+				if (object instanceof Substance) {
+					EnvironmentalObject currentObject = cell.getEnvironmentObjects().get(id);
+					if (currentObject instanceof Substance) {
+						Substance newObject = (Substance) object;
+						change = this.objectManipulator.combine((Substance) currentObject, newObject, true);
+						if (change != null) {
+							this.objectManipulator.setPosition(object, x, y);
+						}
+						return change;
 					}
-					return change;
+				} else if (object instanceof Burrow) {
+					cell.createBurrow();
 				}
-			} else if (object instanceof Burrow) {
-				cell.createBurrow();
-			}
 
 
-			if (object instanceof Obstacle) {
-				cell.createObstacle((Obstacle) object);
-			} else {
-				cell.getEnvironmentObjects().put(id, object);
-			}
-			this.objectManipulator.setPosition(object, x, y);
-			if (object instanceof AutonomousEndogenousProcess) {
-				this.autonomousProcesses.add((AutonomousEndogenousProcess) object);
+				if (object instanceof Obstacle) {
+					cell.createObstacle((Obstacle) object);
+				} else {
+					cell.getEnvironmentObjects().put(id, object);
+				}
+				this.objectManipulator.setPosition(object, x, y);
+				addAutonomousProcess(object);
+				updateFreeCell(x, y);
+				change = object;
 			}
-			change = object;
+			return change;
 		}
-		return change;
 	}
 
 	/** Remove the given environmental object from the cell at the given position.
@@ -366,53 +1208,140 @@ class JaakGrid implements GridModel, ActionApplier {
 	 * of substances.
 	 */
 	@Override
-	public synchronized EnvironmentalObject removeObject(int x, int y, EnvironmentalObject object) {
-		EnvironmentalObject change = null;
-		GridCell cell = getCell(x, y, false);
-		if (cell != null) {
-			String id = object.getEnvironmentalObjectIdentifier();
-			Obstacle obs = cell.getObstacle();
-			if (obs != null && obs != object) {
-				return null;
+	public EnvironmentalObject removeObject(int x, int y, EnvironmentalObject object) {
+		synchronized (lockFor(x, y)) {
+			SubstanceLayer layer = getLayer(object);
+			if (layer != null) {
+				return removeLayeredSubstance(x, y, layer, (FloatSubstance) object);
 			}
+			EnvironmentalObject change = null;
+			GridCell cell = getCell(x, y, false);
+			if (cell != null) {
+				String id = object.getEnvironmentalObjectIdentifier();
+				Obstacle obs = cell.getObstacle();
+				if (obs != null && obs != object) {
+					return null;
+				}
 
-			if (object instanceof Substance) {
-				Substance oldSubstance = (Substance) object;
+				if (object instanceof Substance) {
+					Substance oldSubstance = (Substance) object;
 
-				EnvironmentalObject oldObject = cell.getEnvironmentObjects().get(id);
-				if (oldObject instanceof Substance) {
-					Substance currentSubstance = (Substance) oldObject;
-					change = this.objectManipulator.combine(currentSubstance, oldSubstance, false);
-					if (change == null || !currentSubstance.isDisappeared()) {
-						return change;
+					EnvironmentalObject oldObject = cell.getEnvironmentObjects().get(id);
+					if (oldObject instanceof Substance) {
+						Substance currentSubstance = (Substance) oldObject;
+						change = this.objectManipulator.combine(currentSubstance, oldSubstance, false);
+						if (change == null || !currentSubstance.isDisappeared()) {
+							return change;
+						}
 					}
 				}
-			}
-
-			EnvironmentalObject obj;
 
-			if (obs != null) {
-				obj = obs;
-			} else  {
-				obj = cell.getEnvironmentObjects().remove(id);
-			}
+				EnvironmentalObject obj;
 
-			if (obj != null) {
-				if (change == null) {
-					change = obj;
-				}
-				if (obs == obj) {
-					cell.deleteObstacle();
-				} else if (obj instanceof Burrow) {
-					cell.deleteBurrow();
+				if (obs != null) {
+					obj = obs;
+				} else  {
+					obj = cell.getEnvironmentObjects().remove(id);
 				}
-				this.objectManipulator.setPosition(obj, Integer.MIN_VALUE, Integer.MIN_VALUE);
-				if (obj instanceof AutonomousEndogenousProcess) {
-					this.autonomousProcesses.remove(obj);
+
+				if (obj != null) {
+					if (change == null) {
+						change = obj;
+					}
+					if (obs == obj) {
+						cell.deleteObstacle();
+					} else if (obj instanceof Burrow) {
+						cell.deleteBurrow();
+					}
+					this.objectManipulator.setPosition(obj, Integer.MIN_VALUE, Integer.MIN_VALUE);
+					removeAutonomousProcess(obj);
+					updateFreeCell(x, y);
 				}
 			}
+			return change;
 		}
-		return change;
+	}
+
+	/** Put a substance in its layer.
+	 * <p>
+	 * If the cell has no substance of the same type, the given
+	 * substance becomes the view on the cell. Otherwise, its amount
+	 * is added to the layer and the current view is replied.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @param layer is the layer of the substance.
+	 * @param substance is the substance to put.
+	 * @return the view on the cell, or <code>null</code> if the substance
+	 * cannot be put on the cell.
+	 */
+	private FloatSubstance putLayeredSubstance(int x, int y, SubstanceLayer layer, FloatSubstance substance) {
+		int index = layer.indexOf(x, y);
+		if (index < 0 || hasObstacle(x, y)) {
+			return null;
+		}
+		float amount = substance.floatValue();
+		FloatSubstance view = layer.getView(index);
+		if (view == null) {
+			view = substance;
+			bindLayeredSubstance(x, y, layer, index, view);
+		}
+		layer.add(index, amount);
+		return view;
+	}
+
+	private void bindLayeredSubstance(int x, int y, SubstanceLayer layer, int index, FloatSubstance view) {
+		this.objectManipulator.bind(view, layer, index);
+		layer.setView(index, view);
+		this.objectManipulator.setPosition(view, x, y);
+		if (!layer.isEvaporating()) {
+			addAutonomousProcess(view);
+		}
+	}
+
+	/** Remove a substance from its layer.
+	 * <p>
+	 * If the given substance is the view on the cell, all the substance
+	 * is removed from the cell. Otherwise, the amount of the given
+	 * substance is removed from the layer, and the given substance
+	 * receives the amount which was really removed.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @param layer is the layer of the substance.
+	 * @param substance is the substance to remove.
+	 * @return the removed substance, or <code>null</code> if nothing was removed.
+	 */
+	private FloatSubstance removeLayeredSubstance(int x, int y, SubstanceLayer layer, FloatSubstance substance) {
+		int index = layer.indexOf(x, y);
+		FloatSubstance view = index >= 0 ? layer.getView(index) : null;
+		if (view == null) {
+			return null;
+		}
+		if (view == substance) {
+			clearLayeredSubstance(layer, index);
+			return view;
+		}
+		float removed = layer.remove(index, substance.floatValue());
+		if (layer.getValue(index) <= 0f) {
+			clearLayeredSubstance(layer, index);
+		}
+		this.objectManipulator.setAmount(substance, removed);
+		return substance;
+	}
+
+	private FloatSubstance clearLayeredSubstance(SubstanceLayer layer, int index) {
+		FloatSubstance view = layer.getView(index);
+		if (view != null) {
+			this.objectManipulator.setAmount(view, layer.getValue(index));
+			layer.setView(index, null);
+			layer.setValue(index, 0f);
+			this.objectManipulator.setPosition(view, Integer.MIN_VALUE, Integer.MIN_VALUE);
+			if (!layer.isEvaporating()) {
+				removeAutonomousProcess(view);
+			}
+		}
+		return view;
 	}
 
 	/** Remove all the environmental objects on the given cell.
@@ -422,30 +1351,42 @@ class JaakGrid implements GridModel, ActionApplier {
 	 * @return the removed objects.
 	 */
 	@Override
-	public synchronized Collection<EnvironmentalObject> removeObjects(int x, int y) {
-		Collection<EnvironmentalObject> removedObjects = new ArrayList<>();
-		GridCell cell = getCell(x, y, false);
-		if (cell != null) {
-			Obstacle obs = cell.getObstacle();
-			if (obs != null) {
-				removedObjects.add(obs);
-			}
-			cell.deleteObstacle();
+	public Collection<EnvironmentalObject> removeObjects(int x, int y) {
+		synchronized (lockFor(x, y)) {
+			Collection<EnvironmentalObject> removedObjects = new ArrayList<>();
+			GridCell cell = getCell(x, y, false);
+			if (cell != null) {
+				Obstacle obs = cell.getObstacle();
+				if (obs != null) {
+					removedObjects.add(obs);
+				}
+				cell.deleteObstacle();
 
-			removedObjects.addAll(cell.getEnvironmentObjects().values());
-			cell.getEnvironmentObjects().clear();
+				removedObjects.addAll(cell.getEnvironmentObjects().values());
+				cell.getEnvironmentObjects().clear();
 
-			for (EnvironmentalObject obj : removedObjects) {
-				if (obj instanceof Burrow) {
-					cell.deleteBurrow();
+				for (EnvironmentalObject obj : removedObjects) {
+					if (obj instanceof Burrow) {
+						cell.deleteBurrow();
+					}
+					this.objectManipulator.setPosition(obj, Integer.MIN_VALUE, Integer.MIN_VALUE);
+					removeAutonomousProcess(obj);
 				}
-				this.objectManipulator.setPosition(obj, Integer.MIN_VALUE, Integer.MIN_VALUE);
-				if (obj instanceof AutonomousEndogenousProcess) {
-					this.autonomousProcesses.remove(obj);
+				updateFreeCell(x, y);
+			}
+			FloatSubstance view;
+			int index;
+			for (SubstanceLayer layer : this.layers.values()) {
+				index = layer.indexOf(x, y);
+				if (index >= 0) {
+					view = clearLayeredSubstance(layer, index);
+					if (view != null) {
+						removedObjects.add(view);
+					}
 				}
 			}
+			return removedObjects;
 		}
-		return removedObjects;
 	}
 
 	/**
@@ -463,21 +1404,21 @@ class JaakGrid implements GridModel, ActionApplier {
 	/** {@inheritDoc}
 	 */
 	@Override
-	public ValidationResult validatePosition(boolean isWrapped, boolean allowDiscard, Point2i position) {
+	public ValidationResult validatePosition(boolean isWrapped, boolean allowDiscard, Point2f position) {
 		if (allowDiscard
-			&& (position.x() < 0
-				|| position.x() >= getWidth()
-				|| position.y() < 0
-				|| position.y() >= getHeight())) {
+			&& (position.getX() < 0
+				|| position.getX() >= getWidth()
+				|| position.getY() < 0
+				|| position.getY() >= getHeight())) {
 			return ValidationResult.DISCARDED;
 		}
 
 		ValidationResult change = ValidationResult.NO_CHANGE;
 
 		// Check X coordinate to be on grid
-		while (position.x() < 0) {
+		while (position.getX() < 0) {
 			if (isWrapped) {
-				int delta = -position.x();
+				float delta = -position.getX();
 				position.setX(getWidth() - delta);
 				change = ValidationResult.WRAPPED;
 			} else {
@@ -486,9 +1427,9 @@ class JaakGrid implements GridModel, ActionApplier {
 			}
 		}
 
-		while (position.x() >= getWidth()) {
+		while (position.getX() >= getWidth()) {
 			if (isWrapped) {
-				int delta = position.x() - getWidth();
+				float delta = position.getX() - getWidth();
 				position.setX(delta);
 				change = ValidationResult.WRAPPED;
 			} else {
@@ -498,9 +1439,9 @@ class JaakGrid implements GridModel, ActionApplier {
 		}
 
 		// Check Y coordinate to be on grid
-		while (position.y() < 0) {
+		while (position.getY() < 0) {
 			if (isWrapped) {
-				int delta = -position.y();
+				float delta = -position.getY();
 				position.setY(getHeight() - delta);
 				change = ValidationResult.WRAPPED;
 			} else {
@@ -509,9 +1450,9 @@ class JaakGrid implements GridModel, ActionApplier {
 			}
 		}
 
-		while (position.y() >= getHeight()) {
+		while (position.getY() >= getHeight()) {
 			if (isWrapped) {
-				int delta = position.y() - getHeight();
+				float delta = position.getY() - getHeight();
 				position.setY(delta);
 				change = ValidationResult.WRAPPED;
 			} else {
@@ -0,0 +1,64 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+import io.sarl.jaak.environment.external.body.TurtleBody;
+import io.sarl.jaak.environment.external.perception.StandardObjectManipulator;
+import io.sarl.jaak.environment.internal.solver.ActionApplier;
+
+import java.util.UUID;
+
+/** Factory of grids and bodies which are not attached to an environment.
+ * <p>
+ * The grid is not part of the public API of the environment. This factory
+ * gives access to it for the tests and the benchmarks.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public final class JaakGridFactory {
+
+	private JaakGridFactory() {
+		//
+	}
+
+	/** Create an empty grid.
+	 *
+	 * @param width - the number of cells on x.
+	 * @param height - the number of cells on y.
+	 * @param storage - the storage of the cells.
+	 * @return the operations on the grid.
+	 */
+	public static ActionApplier createGrid(int width, int height, JaakGridStorage storage) {
+		return new JaakGrid(width, height, new StandardObjectManipulator(), storage);
+	}
+
+	/** Create a body without perception frustum nor semantic.
+	 *
+	 * @param turtle - the identifier of the turtle which is owning the body.
+	 * @return the body.
+	 */
+	public static TurtleBody createBody(UUID turtle) {
+		return new RealTurtleBody(turtle, null, 0f, null);
+	}
+
+}
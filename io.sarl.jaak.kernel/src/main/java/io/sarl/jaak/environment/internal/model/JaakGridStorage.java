@@ -0,0 +1,67 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+/** This enumeration lists the strategies for storing the cells
+ * of the Jaak environment grid.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public enum JaakGridStorage {
+
+	/** The cells are stored in one quadtree per region of the world.
+	 * This storage may reduce the memory of large and mostly empty worlds.
+	 * It is not the default storage: the cells are indexed by their
+	 * integer coordinates, and a move of a turtle is a removal from its
+	 * cell followed by an insertion in the target cell.
+	 */
+	QUADTREE {
+		@Override
+		<C> CellStorage<C> createStorage(int width, int height) {
+			return new QuadTreeCellStorage<>(width, height);
+		}
+	},
+
+	/** The cells are stored in square tiles, allocated when a first cell
+	 * is put inside, and released when they become empty.
+	 * This storage provides constant-time accesses and is
+	 * recommended for worlds with dense occupied areas.
+	 * It is the default storage.
+	 */
+	TILES {
+		@Override
+		<C> CellStorage<C> createStorage(int width, int height) {
+			return new TiledCellStorage<>(width, height);
+		}
+	};
+
+	/** Create a storage of cells.
+	 *
+	 * @param <C> is the type of the cells.
+	 * @param width is the width of the grid.
+	 * @param height is the height of the grid.
+	 * @return the storage.
+	 */
+	abstract <C> CellStorage<C> createStorage(int width, int height);
+
+}
@@ -0,0 +1,264 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+import io.sarl.jaak.environment.external.endogenous.AutonomousEndogenousProcess;
+import io.sarl.jaak.environment.external.endogenous.ScheduledEndogenousProcess;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** This class defines the scheduler of the autonomous endogenous processes.
+ * <p>
+ * The processes which are not {@link ScheduledEndogenousProcess scheduled}
+ * are run at each step, in the order of their registration. The scheduled
+ * processes are stored in a {@link TimingWheel} keyed on their next activation
+ * time, so that only the processes which are due are touched at each step.
+ * The registration and the cancellation of a process are running in constant
+ * time.
+ * <p>
+ * The activation times are rounded to the resolution of the scheduler.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+final class ProcessScheduler {
+
+	/** Default duration of a tick of the scheduler, in seconds.
+	 */
+	public static final double DEFAULT_RESOLUTION = 1e-3;
+
+	private final double resolution;
+	private final TimingWheel wheel = new TimingWheel(0L);
+	private final Map<AutonomousEndogenousProcess, Entry> entries = new IdentityHashMap<>();
+	private final Entry everyStep = new Entry(null);
+
+	/**
+	 * @param resolution is the duration of a tick of the scheduler, in seconds.
+	 */
+	public ProcessScheduler(double resolution) {
+		assert (resolution > 0.);
+		this.resolution = resolution;
+		this.everyStep.previous = this.everyStep;
+		this.everyStep.next = this.everyStep;
+	}
+
+	/**
+	 */
+	public ProcessScheduler() {
+		this(DEFAULT_RESOLUTION);
+	}
+
+	private long toTick(float time) {
+		return Math.round(time / this.resolution);
+	}
+
+	/** Replies the number of registered processes.
+	 *
+	 * @return the number of processes.
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/** Register the given process. A scheduled process is due at the next step.
+	 *
+	 * @param process is the process to register.
+	 */
+	public synchronized void add(AutonomousEndogenousProcess process) {
+		if (!this.entries.containsKey(process)) {
+			Entry entry = new Entry(process);
+			this.entries.put(process, entry);
+			if (process instanceof ScheduledEndogenousProcess) {
+				this.wheel.schedule(entry, this.wheel.getCurrentTick());
+			} else {
+				Entry head = this.everyStep;
+				entry.previous = head.previous;
+				entry.next = head;
+				head.previous.next = entry;
+				head.previous = entry;
+			}
+		}
+	}
+
+	/** Unregister the given process.
+	 *
+	 * @param process is the process to unregister.
+	 */
+	public synchronized void remove(AutonomousEndogenousProcess process) {
+		Entry entry = this.entries.remove(process);
+		if (entry != null) {
+			entry.cancelled = true;
+			if (process instanceof ScheduledEndogenousProcess) {
+				this.wheel.cancel(entry);
+			} else {
+				entry.previous.next = entry.next;
+				entry.next.previous = entry.previous;
+				entry.previous = null;
+				entry.next = null;
+			}
+		}
+	}
+
+	/** Replies the tick at which the given scheduled process is due.
+	 *
+	 * @param process is the process.
+	 * @return the tick, or {@link Long#MIN_VALUE} if the process is not scheduled.
+	 */
+	public synchronized long getDueTick(AutonomousEndogenousProcess process) {
+		Entry entry = this.entries.get(process);
+		if (entry != null && entry.isScheduled()) {
+			return entry.getTick();
+		}
+		return Long.MIN_VALUE;
+	}
+
+	/** Replies the time of the last run of the given process.
+	 *
+	 * @param process is the process.
+	 * @return the time of the last run, or {@link Float#NaN} if the
+	 * process was never run.
+	 */
+	public synchronized float getLastActivation(AutonomousEndogenousProcess process) {
+		Entry entry = this.entries.get(process);
+		return entry == null ? Float.NaN : entry.lastActivation;
+	}
+
+	/** Change the schedule of the given scheduled process, e.g. when
+	 * it is restored from a checkpoint.
+	 *
+	 * @param process is the process, which must be registered.
+	 * @param tick is the tick at which the process is due, or
+	 * {@link Long#MIN_VALUE} if the process is not scheduled.
+	 * @param lastActivation is the time of the last run of the process.
+	 */
+	public synchronized void setSchedule(AutonomousEndogenousProcess process, long tick, float lastActivation) {
+		Entry entry = this.entries.get(process);
+		if (entry != null && process instanceof ScheduledEndogenousProcess) {
+			entry.lastActivation = lastActivation;
+			if (tick == Long.MIN_VALUE) {
+				this.wheel.cancel(entry);
+			} else {
+				this.wheel.schedule(entry, tick);
+			}
+		}
+	}
+
+	/** Replies the processes which must be run at the given time: the
+	 * processes which are run at each step, and the scheduled processes
+	 * which are due. The replied scheduled processes are removed from
+	 * the scheduler until {@link #activated(Entry, float)} is invoked.
+	 *
+	 * @param currentTime is the current simulation time.
+	 * @return the processes to run.
+	 */
+	public synchronized List<Entry> getDueProcesses(float currentTime) {
+		List<TimingWheel.Node> due = new ArrayList<>();
+		this.wheel.advance(toTick(currentTime), due);
+		List<Entry> result = new ArrayList<>(due.size());
+		for (Entry entry = (Entry) this.everyStep.next; entry != this.everyStep; entry = (Entry) entry.next) {
+			result.add(entry);
+		}
+		for (TimingWheel.Node node : due) {
+			result.add((Entry) node);
+		}
+		return result;
+	}
+
+	/** Notify the scheduler that the process of the given entry was run.
+	 * A scheduled process is put back in the scheduler at its next activation time.
+	 *
+	 * @param entry is the entry of the process.
+	 * @param currentTime is the current simulation time.
+	 */
+	public void activated(Entry entry, float currentTime) {
+		entry.lastActivation = currentTime;
+		if (entry.process instanceof ScheduledEndogenousProcess) {
+			float next = ((ScheduledEndogenousProcess) entry.process).getNextActivationTime(currentTime);
+			if (!Float.isNaN(next) && !Float.isInfinite(next)) {
+				long tick = toTick(next);
+				synchronized (this) {
+					if (!entry.cancelled) {
+						this.wheel.schedule(entry, tick);
+					}
+				}
+			}
+		}
+	}
+
+	/** Entry of a process in the scheduler.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	static final class Entry extends TimingWheel.Node {
+
+		/** Process.
+		 */
+		final AutonomousEndogenousProcess process;
+
+		/** Time of the last run of the process.
+		 */
+		float lastActivation = Float.NaN;
+
+		/** Indicates if the process was unregistered.
+		 */
+		volatile boolean cancelled;
+
+		/**
+		 * @param process
+		 */
+		Entry(AutonomousEndogenousProcess process) {
+			this.process = process;
+		}
+
+		/** Replies the process.
+		 *
+		 * @return the process.
+		 */
+		public AutonomousEndogenousProcess getProcess() {
+			return this.process;
+		}
+
+		/** Replies the simulation step duration to give to the process.
+		 *
+		 * @param currentTime is the current simulation time.
+		 * @param simulationStepDuration is the duration of the current simulation step.
+		 * @return the time elapsed since the last run of a scheduled process,
+		 * or the duration of the current step.
+		 */
+		public float getStepDuration(float currentTime, float simulationStepDuration) {
+			if (this.process instanceof ScheduledEndogenousProcess && !Float.isNaN(this.lastActivation)) {
+				return currentTime - this.lastActivation;
+			}
+			return simulationStepDuration;
+		}
+
+	}
+
+}
@@ -0,0 +1,446 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/** This class defines a region quadtree which is indexing
+ * data with float positions.
+ * <p>
+ * The tree covers the rectangle <code>[x, x+width[ x [y, y+height[</code>.
+ * A leaf is split in four quadrants when it contains more than
+ * {@link #NODE_CAPACITY} data, and the quadrants are merged back
+ * when the removals are making them small enough. Only the
+ * non-empty areas of the world are consuming memory, and the
+ * point and range queries are running in a time logarithmic to
+ * the size of the world.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @param <D> is the type of the data in the tree.
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+final class QuadTree<D> {
+
+	/** Maximal number of data in a leaf before it is split.
+	 */
+	public static final int NODE_CAPACITY = 8;
+
+	/** Maximal depth of the tree. The leaves at this depth
+	 * are never split, whatever the number of data inside.
+	 */
+	public static final int MAX_DEPTH = 24;
+
+	private final Node<D> root;
+
+	/**
+	 * @param x is the lower coordinate of the covered area.
+	 * @param y is the lower coordinate of the covered area.
+	 * @param width is the width of the covered area.
+	 * @param height is the height of the covered area.
+	 */
+	public QuadTree(float x, float y, float width, float height) {
+		assert (width > 0);
+		assert (height > 0);
+		this.root = new Node<>(x, y, x + width, y + height, 0);
+	}
+
+	/** Replies the number of data in the tree.
+	 *
+	 * @return the number of data in the tree.
+	 */
+	public int size() {
+		return this.root.count;
+	}
+
+	/** Replies if the tree contains no data.
+	 *
+	 * @return <code>true</code> if the tree is empty,
+	 * otherwise <code>false</code>.
+	 */
+	public boolean isEmpty() {
+		return this.root.count == 0;
+	}
+
+	/** Remove all the data from the tree.
+	 */
+	public void clear() {
+		this.root.entries = new ArrayList<>(NODE_CAPACITY);
+		this.root.children = null;
+		this.root.count = 0;
+	}
+
+	/** Replies if the given position is inside the area covered by the tree.
+	 *
+	 * @param x is the coordinate of the position.
+	 * @param y is the coordinate of the position.
+	 * @return <code>true</code> if the position is inside the tree,
+	 * otherwise <code>false</code>.
+	 */
+	public boolean contains(float x, float y) {
+		return this.root.contains(x, y);
+	}
+
+	/** Insert the given data at the given position.
+	 *
+	 * @param x is the position of the data.
+	 * @param y is the position of the data.
+	 * @param data is the data to insert.
+	 * @return <code>true</code> if the data was inserted, <code>false</code>
+	 * if the position is outside the tree.
+	 */
+	public boolean insert(float x, float y, D data) {
+		assert (data != null);
+		if (!this.root.contains(x, y)) {
+			return false;
+		}
+		Node<D> node = this.root;
+		while (node.children != null) {
+			++node.count;
+			node = node.getChild(x, y);
+		}
+		++node.count;
+		node.entries.add(new Entry<>(x, y, data));
+		if (node.entries.size() > NODE_CAPACITY) {
+			node.split();
+		}
+		return true;
+	}
+
+	/** Remove the given data from the given position.
+	 *
+	 * @param x is the position of the data.
+	 * @param y is the position of the data.
+	 * @param data is the data to remove.
+	 * @return <code>true</code> if the data was removed, <code>false</code>
+	 * if the data was not found at the given position.
+	 */
+	public boolean remove(float x, float y, D data) {
+		if (this.root.contains(x, y)) {
+			return this.root.remove(x, y, data);
+		}
+		return false;
+	}
+
+	/** Move the given data from a position to another.
+	 *
+	 * @param fromx is the current position of the data.
+	 * @param fromy is the current position of the data.
+	 * @param tox is the new position of the data.
+	 * @param toy is the new position of the data.
+	 * @param data is the data to move.
+	 * @return <code>true</code> if the data was moved, <code>false</code>
+	 * if the data was not found at the current position, or if the
+	 * new position is outside the tree.
+	 */
+	public boolean move(float fromx, float fromy, float tox, float toy, D data) {
+		if (this.root.contains(tox, toy) && remove(fromx, fromy, data)) {
+			return insert(tox, toy, data);
+		}
+		return false;
+	}
+
+	/** Replies the first data located exactly at the given position.
+	 *
+	 * @param x is the position to search for.
+	 * @param y is the position to search for.
+	 * @return the data, or <code>null</code> if none.
+	 */
+	public D get(float x, float y) {
+		if (this.root.contains(x, y)) {
+			Node<D> node = this.root;
+			while (node.children != null) {
+				node = node.getChild(x, y);
+			}
+			for (Entry<D> entry : node.entries) {
+				if (entry.x == x && entry.y == y) {
+					return entry.data;
+				}
+			}
+		}
+		return null;
+	}
+
+	/** Add in the given collection the data located exactly at the given position.
+	 *
+	 * @param x is the position to search for.
+	 * @param y is the position to search for.
+	 * @param result is the collection to fill.
+	 */
+	public void find(float x, float y, Collection<? super D> result) {
+		if (this.root.contains(x, y)) {
+			Node<D> node = this.root;
+			while (node.children != null) {
+				node = node.getChild(x, y);
+			}
+			for (Entry<D> entry : node.entries) {
+				if (entry.x == x && entry.y == y) {
+					result.add(entry.data);
+				}
+			}
+		}
+	}
+
+	/** Add in the given collection the data located inside the
+	 * rectangle <code>[minx, maxx[ x [miny, maxy[</code>.
+	 *
+	 * @param minx is the lower coordinate of the range.
+	 * @param miny is the lower coordinate of the range.
+	 * @param maxx is the upper coordinate of the range, exclusive.
+	 * @param maxy is the upper coordinate of the range, exclusive.
+	 * @param result is the collection to fill.
+	 */
+	public void find(float minx, float miny, float maxx, float maxy, Collection<? super D> result) {
+		if (minx < maxx && miny < maxy) {
+			this.root.find(minx, miny, maxx, maxy, result);
+		}
+	}
+
+	/** Entry in the quadtree.
+	 *
+	 * @param <D> is the type of the data in the tree.
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static final class Entry<D> {
+
+		/** Position of the data.
+		 */
+		final float x;
+
+		/** Position of the data.
+		 */
+		final float y;
+
+		/** Data.
+		 */
+		final D data;
+
+		/**
+		 * @param x
+		 * @param y
+		 * @param data
+		 */
+		public Entry(float x, float y, D data) {
+			this.x = x;
+			this.y = y;
+			this.data = data;
+		}
+
+	}
+
+	/** Node of the quadtree.
+	 *
+	 * @param <D> is the type of the data in the tree.
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static final class Node<D> {
+
+		/** Bounds of the node.
+		 */
+		final float minx;
+
+		/** Bounds of the node.
+		 */
+		final float miny;
+
+		/** Bounds of the node.
+		 */
+		final float maxx;
+
+		/** Bounds of the node.
+		 */
+		final float maxy;
+
+		/** Depth of the node.
+		 */
+		final int depth;
+
+		/** Number of data in the subtree.
+		 */
+		int count;
+
+		/** Children of the node; <code>null</code> for a leaf.
+		 */
+		Node<D>[] children;
+
+		/** Data in the node; <code>null</code> if not a leaf.
+		 */
+		List<Entry<D>> entries = new ArrayList<>(NODE_CAPACITY);
+
+		/**
+		 * @param minx
+		 * @param miny
+		 * @param maxx
+		 * @param maxy
+		 * @param depth
+		 */
+		public Node(float minx, float miny, float maxx, float maxy, int depth) {
+			this.minx = minx;
+			this.miny = miny;
+			this.maxx = maxx;
+			this.maxy = maxy;
+			this.depth = depth;
+		}
+
+		/** Replies if the given point is inside the node.
+		 *
+		 * @param x
+		 * @param y
+		 * @return <code>true</code> if the point is inside.
+		 */
+		public boolean contains(float x, float y) {
+			return x >= this.minx && x < this.maxx && y >= this.miny && y < this.maxy;
+		}
+
+		/** Replies the child which is containing the given point.
+		 *
+		 * @param x
+		 * @param y
+		 * @return the child.
+		 */
+		public Node<D> getChild(float x, float y) {
+			int index = 0;
+			if (x >= (this.minx + this.maxx) / 2f) {
+				index |= 1;
+			}
+			if (y >= (this.miny + this.maxy) / 2f) {
+				index |= 2;
+			}
+			return this.children[index];
+		}
+
+		/** Split this leaf in four quadrants.
+		 */
+		@SuppressWarnings("unchecked")
+		public void split() {
+			if (this.depth >= MAX_DEPTH) {
+				return;
+			}
+			float cx = (this.minx + this.maxx) / 2f;
+			float cy = (this.miny + this.maxy) / 2f;
+			int d = this.depth + 1;
+			this.children = new Node[] {
+				new Node<>(this.minx, this.miny, cx, cy, d),
+				new Node<>(cx, this.miny, this.maxx, cy, d),
+				new Node<>(this.minx, cy, cx, this.maxy, d),
+				new Node<>(cx, cy, this.maxx, this.maxy, d),
+			};
+			Node<D> child;
+			for (Entry<D> entry : this.entries) {
+				child = getChild(entry.x, entry.y);
+				++child.count;
+				child.entries.add(entry);
+			}
+			this.entries = null;
+			for (Node<D> c : this.children) {
+				if (c.entries.size() > NODE_CAPACITY) {
+					c.split();
+				}
+			}
+		}
+
+		/** Merge the children of this node if they are small enough.
+		 */
+		public void merge() {
+			if (this.count <= NODE_CAPACITY) {
+				List<Entry<D>> list = new ArrayList<>(NODE_CAPACITY);
+				collect(list);
+				this.children = null;
+				this.entries = list;
+			}
+		}
+
+		private void collect(List<Entry<D>> list) {
+			if (this.children == null) {
+				list.addAll(this.entries);
+			} else {
+				for (Node<D> child : this.children) {
+					child.collect(list);
+				}
+			}
+		}
+
+		/** Remove the data.
+		 *
+		 * @param x
+		 * @param y
+		 * @param data
+		 * @return <code>true</code> if removed.
+		 */
+		public boolean remove(float x, float y, D data) {
+			if (this.children == null) {
+				Entry<D> entry;
+				for (int i = 0; i < this.entries.size(); ++i) {
+					entry = this.entries.get(i);
+					if (entry.data == data && entry.x == x && entry.y == y) {
+						this.entries.remove(i);
+						--this.count;
+						return true;
+					}
+				}
+				return false;
+			}
+			if (getChild(x, y).remove(x, y, data)) {
+				--this.count;
+				merge();
+				return true;
+			}
+			return false;
+		}
+
+		/** Search for the data in the given range.
+		 *
+		 * @param x1
+		 * @param y1
+		 * @param x2
+		 * @param y2
+		 * @param result
+		 */
+		public void find(float x1, float y1, float x2, float y2, Collection<? super D> result) {
+			if (this.count == 0 || x1 >= this.maxx || y1 >= this.maxy || x2 <= this.minx || y2 <= this.miny) {
+				return;
+			}
+			if (this.children == null) {
+				for (Entry<D> entry : this.entries) {
+					if (entry.x >= x1 && entry.x < x2 && entry.y >= y1 && entry.y < y2) {
+						result.add(entry.data);
+					}
+				}
+			} else {
+				for (Node<D> child : this.children) {
+					child.find(x1, y1, x2, y2, result);
+				}
+			}
+		}
+
+	}
+
+}
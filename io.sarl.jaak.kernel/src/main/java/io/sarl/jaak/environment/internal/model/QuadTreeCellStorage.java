@@ -0,0 +1,155 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+import java.util.Collection;
+
+/** This class defines a storage of cells which is backed by {@link QuadTree quadtrees}.
+ * <p>
+ * The world is split in at most {@link #MAX_REGIONS_PER_SIDE} square
+ * regions per side, and each region has its own quadtree, allocated when
+ * a first cell is put inside and released when it becomes empty. The regions
+ * are never smaller than the tiles of the {@link TiledCellStorage}.
+ * <p>
+ * The memory consumption is proportional to the number of stored cells,
+ * and the accesses are logarithmic to the size of a region.
+ *
+ * @param <C> is the type of the cells.
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+final class QuadTreeCellStorage<C> implements CellStorage<C> {
+
+	/** Maximal number of regions on a side of the world.
+	 */
+	public static final int MAX_REGIONS_PER_SIDE = 16;
+
+	private final int width;
+	private final int height;
+	private final int regionShift;
+	private final int regionColumns;
+	private final QuadTree<C>[] trees;
+
+	/**
+	 * @param width is the width of the grid.
+	 * @param height is the height of the grid.
+	 */
+	@SuppressWarnings("unchecked")
+	public QuadTreeCellStorage(int width, int height) {
+		assert (width > 0);
+		assert (height > 0);
+		this.width = width;
+		this.height = height;
+		int side = Math.max(width, height) - 1;
+		int bits = Integer.SIZE - Integer.numberOfLeadingZeros(side);
+		this.regionShift = Math.max(TiledCellStorage.TILE_SHIFT,
+				bits - Integer.numberOfTrailingZeros(MAX_REGIONS_PER_SIDE));
+		this.regionColumns = ((width - 1) >> this.regionShift) + 1;
+		int regionRows = ((height - 1) >> this.regionShift) + 1;
+		this.trees = new QuadTree[this.regionColumns * regionRows];
+	}
+
+	private boolean isInside(int x, int y) {
+		return x >= 0 && y >= 0 && x < this.width && y < this.height;
+	}
+
+	private int regionIndex(int x, int y) {
+		return (y >> this.regionShift) * this.regionColumns + (x >> this.regionShift);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public int getRegionShift() {
+		return this.regionShift;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public C get(int x, int y) {
+		if (isInside(x, y)) {
+			QuadTree<C> tree = this.trees[regionIndex(x, y)];
+			if (tree != null) {
+				return tree.get(x, y);
+			}
+		}
+		return null;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public boolean put(int x, int y, C cell) {
+		if (!isInside(x, y)) {
+			return false;
+		}
+		int r = regionIndex(x, y);
+		QuadTree<C> tree = this.trees[r];
+		if (tree == null) {
+			int rx = (x >> this.regionShift) << this.regionShift;
+			int ry = (y >> this.regionShift) << this.regionShift;
+			int size = 1 << this.regionShift;
+			tree = new QuadTree<>(rx, ry,
+					Math.min(size, this.width - rx),
+					Math.min(size, this.height - ry));
+			this.trees[r] = tree;
+		}
+		return tree.insert(x, y, cell);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void remove(int x, int y, C cell) {
+		if (isInside(x, y)) {
+			int r = regionIndex(x, y);
+			QuadTree<C> tree = this.trees[r];
+			if (tree != null && tree.remove(x, y, cell) && tree.isEmpty()) {
+				this.trees[r] = null;
+			}
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void find(float x1, float y1, float x2, float y2, Collection<? super C> result) {
+		int sx = (int) Math.max(0f, x1);
+		int sy = (int) Math.max(0f, y1);
+		int ex = (int) Math.ceil(Math.min(x2, this.width));
+		int ey = (int) Math.ceil(Math.min(y2, this.height));
+		if (sx >= ex || sy >= ey) {
+			return;
+		}
+		QuadTree<C> tree;
+		for (int r = sy >> this.regionShift; r <= (ey - 1) >> this.regionShift; ++r) {
+			for (int c = sx >> this.regionShift; c <= (ex - 1) >> this.regionShift; ++c) {
+				tree = this.trees[r * this.regionColumns + c];
+				if (tree != null) {
+					tree.find(x1, y1, x2, y2, result);
+				}
+			}
+		}
+	}
+
+}
@@ -30,8 +30,13 @@ import io.sarl.jaak.environment.external.perception.EnvironmentalObject;
 import io.sarl.jaak.environment.external.perception.Perceivable;
 import io.sarl.jaak.environment.external.perception.PerceivedTurtle;
 import io.sarl.jaak.environment.external.perception.PickedObject;
+import io.sarl.jaak.util.CompactInput;
+import io.sarl.jaak.util.CompactOutput;
 import io.sarl.jaak.util.MultiCollection;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -58,10 +63,10 @@ public final class RealTurtleBody implements TurtleBody, Comparable<RealTurtleBo
 	private static final long serialVersionUID = 8419445126805542938L;
 
 	private final UUID turtle;
-	private final transient TurtleFrustum frustum;
+	private transient TurtleFrustum frustum;
 	private Serializable semantic;
-	private Collection<EnvironmentalObject> perceivedObjects;
-	private Collection<PerceivedTurtle> perceivedBodies;
+	private transient Collection<EnvironmentalObject> perceivedObjects;
+	private transient Collection<PerceivedTurtle> perceivedBodies;
 	private Collection<PickedObject> pickingResults;
 	private transient MotionInfluence lastMotionInfluence;
 	private MotionInfluenceStatus lastMotionInfluenceStatus;
@@ -69,7 +74,7 @@ public final class RealTurtleBody implements TurtleBody, Comparable<RealTurtleBo
 	private float x;
 	private float y;
 	private float heading;
-	private Vector2f headingVector;
+	private transient Vector2f headingVector;
 	private float speed;
 	private boolean isPerceptionEnable = true;
 
@@ -92,6 +97,83 @@ public final class RealTurtleBody implements TurtleBody, Comparable<RealTurtleBo
 		this.heading = headingAngle;
 	}
 
+	/** Write the perceptions with a compact format.
+	 * The positions of the perceived turtles are relative
+	 * to the position of this body, and their semantics are written
+	 * once per body.
+	 *
+	 * @param stream - the output stream.
+	 * @throws IOException
+	 */
+	private synchronized void writeObject(ObjectOutputStream stream) throws IOException {
+		stream.defaultWriteObject();
+		CompactOutput output = new CompactOutput(stream);
+		Collection<PerceivedTurtle> bodies = this.perceivedBodies;
+		if (bodies == null) {
+			output.writeVarInt(0);
+		} else {
+			output.writeVarInt(bodies.size() + 1);
+			Point2f position;
+			for (PerceivedTurtle body : bodies) {
+				position = body.getPosition();
+				output.writeUUID(body.getIdentity());
+				output.writeCoordinate(this.x, position.getX());
+				output.writeCoordinate(this.y, position.getY());
+				stream.writeFloat(body.getSpeed());
+				stream.writeFloat(body.getHeadingAngle());
+				output.writeInterned(body.getSemantic());
+			}
+		}
+		Collection<EnvironmentalObject> objects = this.perceivedObjects;
+		if (objects == null) {
+			output.writeVarInt(0);
+		} else {
+			output.writeVarInt(objects.size() + 1);
+			for (EnvironmentalObject object : objects) {
+				stream.writeObject(object);
+			}
+		}
+	}
+
+	/** Read the perceptions written by {@link #writeObject(ObjectOutputStream)}.
+	 *
+	 * @param stream - the input stream.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+		CompactInput input = new CompactInput(stream);
+		int size = input.readVarInt() - 1;
+		if (size >= 0) {
+			List<PerceivedTurtle> bodies = new ArrayList<>(size);
+			Point2f observer = new Point2f(this.x, this.y);
+			UUID id;
+			float px;
+			float py;
+			float speed;
+			float angle;
+			for (int i = 0; i < size; ++i) {
+				id = input.readUUID();
+				px = input.readCoordinate(this.x);
+				py = input.readCoordinate(this.y);
+				speed = stream.readFloat();
+				angle = stream.readFloat();
+				bodies.add(new PerceivedTurtle(id, observer, new Point2f(px, py),
+						speed, angle, (Serializable) input.readInterned()));
+			}
+			this.perceivedBodies = bodies;
+		}
+		size = input.readVarInt() - 1;
+		if (size >= 0) {
+			List<EnvironmentalObject> objects = new ArrayList<>(size);
+			for (int i = 0; i < size; ++i) {
+				objects.add((EnvironmentalObject) stream.readObject());
+			}
+			this.perceivedObjects = objects;
+		}
+	}
+
 	private void fireInfluenceReception() {
 		//
 	}
@@ -183,6 +265,24 @@ public final class RealTurtleBody implements TurtleBody, Comparable<RealTurtleBo
 		return infs;
 	}
 
+	/** Replies the last motion influence stored by the body, without
+	 * removing it from the body.
+	 *
+	 * @return the motion influence, or <code>null</code>.
+	 */
+	synchronized MotionInfluence getMotionInfluence() {
+		return this.lastMotionInfluence;
+	}
+
+	/** Replies the not-motion influences stored by the body, without
+	 * removing them from the body.
+	 *
+	 * @return the influences, or <code>null</code>.
+	 */
+	synchronized List<Influence> getOtherInfluences() {
+		return this.otherInfluences;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -621,6 +721,17 @@ public final class RealTurtleBody implements TurtleBody, Comparable<RealTurtleBo
 		return this.frustum;
 	}
 
+	/** Change the perception frustum of this body.
+	 * The frustum is not serialized with the body; this function
+	 * is used for restoring it.
+	 *
+	 * @param frustum is the perception frustum to be used by this body, or <code>null</code>
+	 * if this body is not able to perceive.
+	 */
+	void setPerceptionFrustum(TurtleFrustum frustum) {
+		this.frustum = frustum;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
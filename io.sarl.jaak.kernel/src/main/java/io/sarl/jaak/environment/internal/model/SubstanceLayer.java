@@ -0,0 +1,319 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+import io.sarl.jaak.environment.external.perception.FloatSubstance;
+import io.sarl.jaak.environment.external.perception.FloatSubstanceStorage;
+import io.sarl.jaak.environment.external.perception.ObjectManipulator;
+import io.sarl.jaak.environment.internal.SubstanceLayerModel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/** This class defines a dense layer of substance amounts
+ * over the grid of the Jaak environment.
+ * <p>
+ * The amount of substance of a given type is stored in a
+ * primitive array with one value per cell. The
+ * {@link FloatSubstance} objects which are located on the
+ * layer are only views bound to the values of their cells,
+ * so that the deposits and the pickups are only updating
+ * primitive values. The views are kept in a sparse index,
+ * with an entry for the occupied cells only, so that an empty
+ * cell costs one primitive value.
+ * <p>
+ * A layer may evaporate: the amounts of all its cells are decreased
+ * in a single loop over the primitive array, and the cells below
+ * a threshold are cleared in the same pass.
+ * <p>
+ * The first substance which is put on the layer is kept as a prototype:
+ * the cells which are receiving an amount without any substance object,
+ * e.g. by diffusion, are given a copy of it as view. The prototype is
+ * kept serialized, and deserialized once as a template which is copied
+ * with {@link ObjectManipulator#copy(FloatSubstance)}.
+ * <p>
+ * The index of the views may be updated concurrently from different
+ * cells; the amounts of a cell must be updated under the lock of its
+ * region.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+final class SubstanceLayer implements FloatSubstanceStorage, SubstanceLayerModel {
+
+	private final Class<? extends FloatSubstance> type;
+	private final int width;
+	private final int height;
+	private final float maximum;
+	private final float[] values;
+	private final ConcurrentMap<Integer, FloatSubstance> views = new ConcurrentHashMap<>();
+	private byte[] prototype;
+	private FloatSubstance template;
+	private volatile float evaporation;
+	private volatile float threshold;
+
+	/**
+	 * @param type is the type of the substance stored in the layer.
+	 * @param width is the width of the grid.
+	 * @param height is the height of the grid.
+	 * @param maximum is the maximal amount of substance in a cell.
+	 */
+	public SubstanceLayer(Class<? extends FloatSubstance> type, int width, int height, float maximum) {
+		assert (type != null);
+		assert (width > 0);
+		assert (height > 0);
+		this.type = type;
+		this.width = width;
+		this.height = height;
+		this.maximum = maximum;
+		this.values = new float[width * height];
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public Class<? extends FloatSubstance> getType() {
+		return this.type;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public float getMaximum() {
+		return this.maximum;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public float[] getValues() {
+		return this.values;
+	}
+
+	/** Replies the index of the given cell in the layer.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @return the index, or <code>-1</code> if the cell is outside the layer.
+	 */
+	public int indexOf(int x, int y) {
+		if (x >= 0 && y >= 0 && x < this.width && y < this.height) {
+			return y * this.width + x;
+		}
+		return -1;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public float getValue(int index) {
+		return this.values[index];
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void setValue(int index, float value) {
+		this.values[index] = Math.min(this.maximum, value);
+	}
+
+	/** Replies the view on the given cell.
+	 *
+	 * @param index is the index of the cell.
+	 * @return the substance which is bound to the cell, or <code>null</code>.
+	 */
+	public FloatSubstance getView(int index) {
+		if (this.views.isEmpty()) {
+			return null;
+		}
+		return this.views.get(index);
+	}
+
+	/** Set the view on the given cell.
+	 *
+	 * @param index is the index of the cell.
+	 * @param view is the substance which is bound to the cell, or <code>null</code>.
+	 */
+	public void setView(int index, FloatSubstance view) {
+		if (view != null && this.prototype == null) {
+			this.prototype = serialize(view);
+		}
+		if (view == null) {
+			this.views.remove(index);
+		} else {
+			this.views.put(index, view);
+		}
+	}
+
+	/** Create a new view for a cell which has received an amount of substance
+	 * without any substance object, e.g. by diffusion.
+	 * <p>
+	 * The view is a copy of the first substance which was put on the layer.
+	 * It is not bound to the layer.
+	 *
+	 * @param manipulator is the object which is copying the substances.
+	 * @return the new view, or <code>null</code> if no substance was put on
+	 * the layer yet.
+	 */
+	public FloatSubstance createView(ObjectManipulator manipulator) {
+		if (this.template == null) {
+			if (this.prototype == null) {
+				return null;
+			}
+			try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(this.prototype))) {
+				this.template = this.type.cast(stream.readObject());
+			} catch (IOException | ClassNotFoundException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return manipulator.copy(this.template);
+	}
+
+	/** Replies the serialized prototype of the views.
+	 *
+	 * @return the serialized prototype, or <code>null</code> if no substance
+	 * was put on the layer yet.
+	 * @see #createView(ObjectManipulator)
+	 */
+	public byte[] getPrototype() {
+		return this.prototype;
+	}
+
+	/** Change the serialized prototype of the views, e.g. when the layer
+	 * is restored from a checkpoint.
+	 *
+	 * @param prototype is the serialized prototype, or <code>null</code>.
+	 * @see #getPrototype()
+	 */
+	public void setPrototype(byte[] prototype) {
+		this.prototype = prototype;
+		this.template = null;
+	}
+
+	private static byte[] serialize(FloatSubstance substance) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(buffer)) {
+			stream.writeObject(substance);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return buffer.toByteArray();
+	}
+
+	/** Add an amount of substance in the given cell.
+	 *
+	 * @param index is the index of the cell.
+	 * @param amount is the amount to add.
+	 * @return the amount really added.
+	 */
+	public float add(int index, float amount) {
+		float old = this.values[index];
+		float v = Math.min(this.maximum, old + amount);
+		this.values[index] = v;
+		return v - old;
+	}
+
+	/** Remove an amount of substance from the given cell.
+	 *
+	 * @param index is the index of the cell.
+	 * @param amount is the amount to remove.
+	 * @return the amount really removed.
+	 */
+	public float remove(int index, float amount) {
+		float old = this.values[index];
+		float v = Math.max(0f, old - amount);
+		this.values[index] = v;
+		return old - v;
+	}
+
+	/** Change the evaporation of the layer.
+	 *
+	 * @param evaporation is the amount of substance which is evaporating from a cell
+	 * during one second, or zero to disable the evaporation.
+	 * @param threshold is the amount under which a cell is cleared.
+	 */
+	public void setEvaporation(float evaporation, float threshold) {
+		this.threshold = threshold;
+		this.evaporation = Math.max(0f, evaporation);
+	}
+
+	/** Replies the amount of substance which is evaporating from a cell during one second.
+	 *
+	 * @return the evaporation amount, or zero if the layer is not evaporating.
+	 */
+	public float getEvaporation() {
+		return this.evaporation;
+	}
+
+	/** Replies the amount under which a cell is cleared by the evaporation.
+	 *
+	 * @return the threshold.
+	 */
+	public float getThreshold() {
+		return this.threshold;
+	}
+
+	/** Replies if the layer is evaporating.
+	 *
+	 * @return <code>true</code> if the layer is evaporating.
+	 */
+	public boolean isEvaporating() {
+		return this.evaporation > 0f;
+	}
+
+	/** Remove the given amount from the cells in the range of indexes.
+	 * The cells which are going under the threshold are cleared, and
+	 * their views are unbound from the layer.
+	 *
+	 * @param start is the index of the first cell.
+	 * @param end is the index after the last cell.
+	 * @param amount is the amount to remove from each cell.
+	 * @param minimum is the amount under which a cell is cleared.
+	 * @param manipulator is the manipulator used to unbind the views.
+	 */
+	public void evaporate(int start, int end, float amount, float minimum, ObjectManipulator manipulator) {
+		float[] vals = this.values;
+		float v;
+		for (int i = start; i < end; ++i) {
+			v = vals[i];
+			if (v > 0f) {
+				v -= amount;
+				if (v <= minimum) {
+					vals[i] = 0f;
+					FloatSubstance view = this.views.isEmpty() ? null : this.views.remove(i);
+					if (view != null) {
+						manipulator.setAmount(view, 0f);
+						manipulator.setPosition(view, Integer.MIN_VALUE, Integer.MIN_VALUE);
+					}
+				} else {
+					vals[i] = v;
+				}
+			}
+		}
+	}
+
+}
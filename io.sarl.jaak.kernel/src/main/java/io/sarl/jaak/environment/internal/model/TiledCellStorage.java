@@ -0,0 +1,173 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+import java.util.Collection;
+
+/** This class defines a storage of cells which is split in
+ * square tiles of {@link #TILE_SIZE} cells of side.
+ * <p>
+ * A tile is allocated when a first cell is put inside,
+ * and it is released when its last cell is removed.
+ * The memory consumption is proportional to the
+ * occupied area of the world, and the accesses are
+ * done in constant time.
+ *
+ * @param <C> is the type of the cells.
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+final class TiledCellStorage<C> implements CellStorage<C> {
+
+	/** Binary logarithm of the size of a tile.
+	 */
+	public static final int TILE_SHIFT = 6;
+
+	/** Number of cells on a side of a tile.
+	 */
+	public static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+	private static final int TILE_MASK = TILE_SIZE - 1;
+
+	private final int width;
+	private final int height;
+	private final int tileColumns;
+	private final Object[][] tiles;
+	private final int[] tileCounts;
+
+	/**
+	 * @param width is the width of the grid.
+	 * @param height is the height of the grid.
+	 */
+	public TiledCellStorage(int width, int height) {
+		assert (width > 0);
+		assert (height > 0);
+		this.width = width;
+		this.height = height;
+		this.tileColumns = (width + TILE_MASK) >> TILE_SHIFT;
+		int tileRows = (height + TILE_MASK) >> TILE_SHIFT;
+		this.tiles = new Object[this.tileColumns * tileRows][];
+		this.tileCounts = new int[this.tiles.length];
+	}
+
+	private boolean isInside(int x, int y) {
+		return x >= 0 && y >= 0 && x < this.width && y < this.height;
+	}
+
+	private int tileIndex(int x, int y) {
+		return (y >> TILE_SHIFT) * this.tileColumns + (x >> TILE_SHIFT);
+	}
+
+	private static int cellIndex(int x, int y) {
+		return ((y & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public int getRegionShift() {
+		return TILE_SHIFT;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public C get(int x, int y) {
+		if (isInside(x, y)) {
+			Object[] tile = this.tiles[tileIndex(x, y)];
+			if (tile != null) {
+				return (C) tile[cellIndex(x, y)];
+			}
+		}
+		return null;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public boolean put(int x, int y, C cell) {
+		assert (cell != null);
+		if (!isInside(x, y)) {
+			return false;
+		}
+		int t = tileIndex(x, y);
+		Object[] tile = this.tiles[t];
+		if (tile == null) {
+			tile = new Object[TILE_SIZE * TILE_SIZE];
+			this.tiles[t] = tile;
+		}
+		int c = cellIndex(x, y);
+		if (tile[c] == null) {
+			++this.tileCounts[t];
+		}
+		tile[c] = cell;
+		return true;
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public void remove(int x, int y, C cell) {
+		if (isInside(x, y)) {
+			int t = tileIndex(x, y);
+			Object[] tile = this.tiles[t];
+			int c = cellIndex(x, y);
+			if (tile != null && tile[c] == cell) {
+				tile[c] = null;
+				--this.tileCounts[t];
+				if (this.tileCounts[t] <= 0) {
+					this.tileCounts[t] = 0;
+					this.tiles[t] = null;
+				}
+			}
+		}
+	}
+
+	/** {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void find(float x1, float y1, float x2, float y2, Collection<? super C> result) {
+		int sx = (int) Math.ceil(Math.max(x1, 0f));
+		int sy = (int) Math.ceil(Math.max(y1, 0f));
+		int ex = (int) Math.ceil(Math.min(x2, this.width));
+		int ey = (int) Math.ceil(Math.min(y2, this.height));
+		Object[] tile;
+		Object cell;
+		for (int y = sy; y < ey; ++y) {
+			for (int x = sx; x < ex; ++x) {
+				tile = this.tiles[tileIndex(x, y)];
+				if (tile == null) {
+					// Skip the rest of the empty tile on this row
+					x |= TILE_MASK;
+				} else {
+					cell = tile[cellIndex(x, y)];
+					if (cell != null) {
+						result.add((C) cell);
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,308 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+import java.util.Collection;
+
+/** This class defines a hierarchical timing wheel.
+ * <p>
+ * The time is discretized in ticks. The wheel has {@link #LEVELS} levels
+ * of {@link #SLOTS} slots; a slot of the level <var>l</var> covers
+ * <code>SLOTS<sup>l</sup></code> ticks. A node is put in the lowest level
+ * which is able to contain its tick, and is moved down to the lower levels
+ * when the time is reaching its slot. The nodes which are too far in the
+ * future are kept in an overflow list, which is examined each time the
+ * highest level is wrapping.
+ * <p>
+ * The nodes are stored in doubly-linked lists, so that the scheduling and
+ * the cancellation of a node are running in constant time. The occupied
+ * slots of each level are marked in a 64-bit word, so that the wheel
+ * jumps over the empty slots when the time is advanced.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+final class TimingWheel {
+
+	/** Number of bits of the index of a slot in a level.
+	 */
+	public static final int SLOT_BITS = 6;
+
+	/** Number of slots in a level.
+	 */
+	public static final int SLOTS = 1 << SLOT_BITS;
+
+	/** Number of levels in the wheel.
+	 */
+	public static final int LEVELS = 4;
+
+	private static final int SLOT_MASK = SLOTS - 1;
+	private static final int DUE = LEVELS * SLOTS;
+	private static final int OVERFLOW = DUE + 1;
+	private static final int NONE = -1;
+
+	private final Node[] heads = new Node[OVERFLOW + 1];
+	private final long[] occupied = new long[LEVELS];
+	private long currentTick;
+	private int size;
+
+	/**
+	 * @param currentTick is the initial tick of the wheel.
+	 */
+	public TimingWheel(long currentTick) {
+		this.currentTick = currentTick;
+		for (int i = 0; i < this.heads.length; ++i) {
+			Node head = new Node();
+			head.previous = head;
+			head.next = head;
+			this.heads[i] = head;
+		}
+	}
+
+	/** Replies the current tick of the wheel.
+	 *
+	 * @return the current tick.
+	 */
+	public long getCurrentTick() {
+		return this.currentTick;
+	}
+
+	/** Replies the number of nodes in the wheel.
+	 *
+	 * @return the number of nodes.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/** Schedule the given node at the given tick. If the node is already
+	 * in the wheel, it is moved.
+	 * A node which is scheduled at or before the current tick is replied
+	 * by the next call to {@link #advance(long, Collection)}.
+	 *
+	 * @param node is the node to schedule.
+	 * @param tick is the tick at which the node is due.
+	 */
+	public void schedule(Node node, long tick) {
+		if (node.list != NONE) {
+			cancel(node);
+		}
+		node.tick = tick;
+		insert(node);
+		++this.size;
+	}
+
+	/** Remove the given node from the wheel.
+	 *
+	 * @param node is the node to remove.
+	 * @return <code>true</code> if the node was in the wheel.
+	 */
+	public boolean cancel(Node node) {
+		if (node.list == NONE) {
+			return false;
+		}
+		unlink(node);
+		--this.size;
+		return true;
+	}
+
+	/** Advance the time of the wheel to the given tick, and add to the given
+	 * collection the nodes which are due. The replied nodes are removed from the wheel.
+	 *
+	 * @param targetTick is the new tick of the wheel.
+	 * @param due is the collection to fill with the nodes which are due.
+	 */
+	public void advance(long targetTick, Collection<? super Node> due) {
+		drain(DUE, due);
+		long next;
+		while (this.currentTick < targetTick && this.size > 0) {
+			next = nextEventTick();
+			if (next > targetTick) {
+				break;
+			}
+			this.currentTick = next;
+			// Move down the nodes of the slots which are starting at the new tick
+			if (((next >> (SLOT_BITS * LEVELS)) << (SLOT_BITS * LEVELS)) == next) {
+				reinsert(OVERFLOW);
+			}
+			for (int level = LEVELS - 1; level > 0; --level) {
+				int shift = SLOT_BITS * level;
+				if (((next >> shift) << shift) == next) {
+					reinsert(level * SLOTS + (int) ((next >> shift) & SLOT_MASK));
+				}
+			}
+			drain((int) (next & SLOT_MASK), due);
+			drain(DUE, due);
+		}
+		if (this.currentTick < targetTick) {
+			this.currentTick = targetTick;
+		}
+	}
+
+	/** Replies the next tick at which a slot must be examined.
+	 *
+	 * @return the next tick, or {@link Long#MAX_VALUE} if none.
+	 */
+	private long nextEventTick() {
+		long best = Long.MAX_VALUE;
+		for (int level = 0; level < LEVELS; ++level) {
+			long mask = this.occupied[level];
+			if (mask != 0L) {
+				int shift = SLOT_BITS * level;
+				long base = this.currentTick >> shift;
+				int index = (int) (base & SLOT_MASK);
+				long rotated = Long.rotateRight(mask, index + 1);
+				long tick = (base + Long.numberOfTrailingZeros(rotated) + 1) << shift;
+				if (tick < best) {
+					best = tick;
+				}
+			}
+		}
+		Node overflow = this.heads[OVERFLOW];
+		if (overflow.next != overflow) {
+			int shift = SLOT_BITS * LEVELS;
+			long tick = ((this.currentTick >> shift) + 1) << shift;
+			if (tick < best) {
+				best = tick;
+			}
+		}
+		return best;
+	}
+
+	private void insert(Node node) {
+		long delta = node.tick - this.currentTick;
+		int list;
+		if (delta <= 0) {
+			list = DUE;
+		} else {
+			list = OVERFLOW;
+			for (int level = 0; level < LEVELS; ++level) {
+				if (delta < (1L << (SLOT_BITS * (level + 1)))) {
+					list = level * SLOTS + (int) ((node.tick >> (SLOT_BITS * level)) & SLOT_MASK);
+					break;
+				}
+			}
+		}
+		Node head = this.heads[list];
+		node.list = list;
+		node.previous = head.previous;
+		node.next = head;
+		head.previous.next = node;
+		head.previous = node;
+		if (list < DUE) {
+			this.occupied[list >> SLOT_BITS] |= 1L << (list & SLOT_MASK);
+		}
+	}
+
+	private void unlink(Node node) {
+		int list = node.list;
+		node.previous.next = node.next;
+		node.next.previous = node.previous;
+		node.previous = null;
+		node.next = null;
+		node.list = NONE;
+		if (list < DUE) {
+			Node head = this.heads[list];
+			if (head.next == head) {
+				this.occupied[list >> SLOT_BITS] &= ~(1L << (list & SLOT_MASK));
+			}
+		}
+	}
+
+	private void reinsert(int list) {
+		Node head = this.heads[list];
+		Node node = head.next;
+		if (node == head) {
+			return;
+		}
+		// Detach the list, because the nodes may be inserted back in it
+		head.previous.next = null;
+		head.previous = head;
+		head.next = head;
+		if (list < DUE) {
+			this.occupied[list >> SLOT_BITS] &= ~(1L << (list & SLOT_MASK));
+		}
+		Node next;
+		while (node != null) {
+			next = node.next;
+			insert(node);
+			node = next;
+		}
+	}
+
+	private void drain(int list, Collection<? super Node> due) {
+		Node head = this.heads[list];
+		Node node;
+		while (head.next != head) {
+			node = head.next;
+			unlink(node);
+			--this.size;
+			due.add(node);
+		}
+	}
+
+	/** Node of a timing wheel.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	static class Node {
+
+		/** Tick at which the node is due.
+		 */
+		long tick;
+
+		/** Index of the list which is containing the node.
+		 */
+		int list = NONE;
+
+		/** Previous node in the list.
+		 */
+		Node previous;
+
+		/** Next node in the list.
+		 */
+		Node next;
+
+		/** Replies if the node is in a wheel.
+		 *
+		 * @return <code>true</code> if the node is scheduled.
+		 */
+		public boolean isScheduled() {
+			return this.list != NONE;
+		}
+
+		/** Replies the tick at which the node is due.
+		 *
+		 * @return the tick.
+		 */
+		public long getTick() {
+			return this.tick;
+		}
+
+	}
+
+}
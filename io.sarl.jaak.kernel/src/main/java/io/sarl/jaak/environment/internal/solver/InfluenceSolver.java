@@ -40,7 +40,6 @@ import java.util.Collection;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.arakhne.afc.math.continous.object2d.Point2f;
-import org.arakhne.afc.math.discrete.object2d.Point2i;
 
 /** This class defines the methods of a solver of
  * influence conflicts.
@@ -118,6 +117,14 @@ public abstract class InfluenceSolver<T extends TurtleBody> {
 			Collection<T> bodies,
 			ActionApplier actionApplier);
 
+	/** Release the resources of the solver.
+	 * The solver may still be used after this call.
+	 * The default implementation does nothing.
+	 */
+	public void close() {
+		//
+	}
+
 	/** Transform the given influence into an action and apply it with
 	 * the given applier.
 	 *
@@ -259,9 +266,8 @@ public abstract class InfluenceSolver<T extends TurtleBody> {
 	 */
 	protected ValidationResult validatePosition(Point2f position) {
 		GridModel g = getGridModel();
-		//TODO: adapat to tree
-		//return g.validatePosition(isWrapped(), false, position);
-		return null;
+		assert (g != null);
+		return g.validatePosition(isWrapped(), false, position);
 	}
 
 }
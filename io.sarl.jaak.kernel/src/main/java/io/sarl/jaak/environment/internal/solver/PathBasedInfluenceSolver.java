@@ -30,13 +30,10 @@ import io.sarl.jaak.environment.internal.model.AbstractJaakEnvironmentInfluenceS
 import io.sarl.jaak.environment.internal.model.RealTurtleBody;
 import io.sarl.jaak.util.Bresenham;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 import org.arakhne.afc.math.continous.object2d.Point2f;
 import org.arakhne.afc.math.continous.object2d.Vector2f;
@@ -48,6 +45,9 @@ import org.arakhne.afc.math.discrete.object2d.Point2i;
  * <li>avoid motion influences to collide on target position, paths are not treated;</li>
  * <li>does not validate the other influences.</li>
  * </ul>
+ * <p>
+ * The cells traversed by the paths are stored in a {@link PathConflictMap},
+ * and the paths in arrays. They are reused from a step to the other.
  *
  * @author $Author: sgalland$
  * @version $FullVersion$
@@ -56,83 +56,102 @@ import org.arakhne.afc.math.discrete.object2d.Point2i;
  */
 public class PathBasedInfluenceSolver extends AbstractJaakEnvironmentInfluenceSolver {
 
-	private static final Comparator<Point2f> POINT_COMPARATOR = new Comparator<Point2f>() {
-		@Override
-		public int compare(Point2f o1, Point2f o2) {
-			//TODO: adapt to float ?
-			int cmp = o1.x() - o2.x();
-			if (cmp != 0) {
-				return cmp;
+	private static final int INITIAL_PATH_CAPACITY = 64;
+
+	private final PathConflictMap conflictingCells = new PathConflictMap();
+	private MotionInfluence[] pathInfluences = new MotionInfluence[INITIAL_PATH_CAPACITY];
+	private int[] pathFirstElements = new int[INITIAL_PATH_CAPACITY];
+	private int pathCount;
+	private int[] pathBuffer = new int[INITIAL_PATH_CAPACITY];
+
+	private int addPath(MotionInfluence influence) {
+		int path = this.pathCount++;
+		if (path >= this.pathInfluences.length) {
+			int capacity = this.pathInfluences.length * 2;
+			this.pathInfluences = Arrays.copyOf(this.pathInfluences, capacity);
+			this.pathFirstElements = Arrays.copyOf(this.pathFirstElements, capacity);
+		}
+		this.pathInfluences[path] = influence;
+		this.pathFirstElements[path] = PathConflictMap.NONE;
+		return path;
+	}
+
+	/** Compute the cells traversed by the given motion influence.
+	 * <p>
+	 * The coordinates of the cells are stored in the buffer replied by
+	 * {@link #getPathBuffer()}: <code>{x0, y0, x1, y1, ...}</code>.
+	 *
+	 * @param mi is the motion influence.
+	 * @return the number of cells in the path.
+	 */
+	int tracePath(MotionInfluence mi) {
+		JaakObject movedObject = mi.getMovedObject();
+		assert (movedObject != null);
+
+		Point2f position = movedObject.getPosition();
+		assert (position != null);
+
+		// Compute target position
+		Point2f newPosition = new Point2f(
+				Math.round(position.getX() + mi.getLinearMotionX()),
+				Math.round(position.getY() + mi.getLinearMotionY()));
+
+		Iterator<Point2f> iterator = Bresenham.line(
+				position.x(), position.y(),
+				newPosition.x(), newPosition.y());
+		Point2f p;
+		int count = 0;
+
+		while (iterator.hasNext()) {
+			p = iterator.next();
+
+			if (validatePosition(p) == ValidationResult.WRAPPED) {
+				// Wrapped, recompute path from the new position
+				ValidationResult r = validatePosition(newPosition);
+				assert (r == ValidationResult.WRAPPED);
+				iterator = Bresenham.line(
+						p.x(), p.y(),
+						newPosition.x(), newPosition.y());
+				// Consume the first point
+				assert (iterator != null && iterator.hasNext());
+				p = iterator.next();
 			}
-			return o1.y() - o2.y();
+
+			if (count * 2 >= this.pathBuffer.length) {
+				this.pathBuffer = Arrays.copyOf(this.pathBuffer, this.pathBuffer.length * 2);
+			}
+			this.pathBuffer[count * 2] = p.x();
+			this.pathBuffer[count * 2 + 1] = p.y();
+			++count;
 		}
-	};
+		return count;
+	}
+
+	/** Replies the buffer filled by {@link #tracePath(MotionInfluence)}.
+	 *
+	 * @return the buffer of coordinates.
+	 */
+	int[] getPathBuffer() {
+		return this.pathBuffer;
+	}
 
 	private void detectMotionConflictsAndApplyNonMotionInfluence(
-			Collection<Path> paths,
-			Map<Point2f, List<PathElement>> conflictingCells,
 			Influence influence,
 			ActionApplier actionApplier) {
-		Point2f position;
-
 		if (influence instanceof MotionInfluence) {
 			MotionInfluence mi = (MotionInfluence) influence;
+			int count = tracePath(mi);
+			int pathElement;
+			int previousElement = PathConflictMap.NONE;
+			int path = addPath(mi);
 
-			JaakObject movedObject = mi.getMovedObject();
-			assert (movedObject != null);
-
-			position = movedObject.getPosition();
-			assert (position != null);
-
-			// Compute target position
-			Point2f newPosition = new Point2f(
-					Math.round(position.getX() + mi.getLinearMotionX()),
-					Math.round(position.getY() + mi.getLinearMotionY()));
-
-			Iterator<Point2f> iterator = Bresenham.line(
-					position.x(), position.y(),
-					newPosition.x(), newPosition.y());
-			Point2f p;
-			PathElement pathElement;
-			List<PathElement> conflictingElements;
-			PathElement previousElement = null;
-			Path path = new Path(mi);
-
-			paths.add(path);
-
-			while (iterator.hasNext()) {
-				p = iterator.next();
-
-				if (validatePosition(p) == ValidationResult.WRAPPED) {
-					// Wrapped, recompute path from the new position
-					ValidationResult r = validatePosition(newPosition);
-					assert (r == ValidationResult.WRAPPED);
-					iterator = Bresenham.line(
-							p.x(), p.y(),
-							newPosition.x(), newPosition.y());
-					// Consume the first point
-					assert (iterator != null && iterator.hasNext());
-					p = iterator.next();
-				}
-
-				pathElement = new PathElement(p, path);
-
-				if (previousElement != null) {
-					previousElement.next = pathElement;
-				}
+			for (int i = 0; i < count; ++i) {
+				pathElement = this.conflictingCells.addElement(
+						this.pathBuffer[i * 2], this.pathBuffer[i * 2 + 1], previousElement);
 
-				conflictingElements = conflictingCells.get(p);
-				if (conflictingElements == null) {
-					// no conflict, right now
-					conflictingElements = new LinkedList<>();
-					conflictingCells.put(p, conflictingElements);
-				} else {
-					if (conflictingElements.size() == 1) {
-						conflictingElements.get(0).inConflict = true;
-					}
-					pathElement.inConflict = true;
+				if (previousElement == PathConflictMap.NONE) {
+					this.pathFirstElements[path] = pathElement;
 				}
-				conflictingElements.add(pathElement);
 
 				previousElement = pathElement;
 			}
@@ -154,14 +173,14 @@ public class PathBasedInfluenceSolver extends AbstractJaakEnvironmentInfluenceSo
 		GridModel grid = getGridModel();
 		assert (grid != null);
 
-		Collection<Path> paths = new LinkedList<>();
-		Map<Point2f, List<PathElement>> conflictingCells = new TreeMap<>(POINT_COMPARATOR);
+		this.conflictingCells.clear();
+		this.pathCount = 0;
 
 		// Appling no-motion influences and localizing the motion influence targets
 		// from the endogenous engine
 		if (endogenousInfluences != null) {
 			for (Influence influence : endogenousInfluences) {
-				detectMotionConflictsAndApplyNonMotionInfluence(paths, conflictingCells, influence, actionApplier);
+				detectMotionConflictsAndApplyNonMotionInfluence(influence, actionApplier);
 			}
 		}
 
@@ -176,150 +195,99 @@ public class PathBasedInfluenceSolver extends AbstractJaakEnvironmentInfluenceSo
 				if (mi == null) {
 					mi = new MotionInfluence(body);
 				}
-				detectMotionConflictsAndApplyNonMotionInfluence(paths, conflictingCells, mi, actionApplier);
+				detectMotionConflictsAndApplyNonMotionInfluence(mi, actionApplier);
 				influences = body.consumeOtherInfluences();
 				if (influences != null) {
 					for (Influence influence : influences) {
-						detectMotionConflictsAndApplyNonMotionInfluence(paths, conflictingCells, influence, actionApplier);
+						detectMotionConflictsAndApplyNonMotionInfluence(influence, actionApplier);
 					}
 				}
 			}
 		}
 
 		// Fixing motion influences and apply the fixed motion influences
-		PathElement pathElement;
 		MotionInfluence motionInfluence;
 		MotionInfluenceStatus motionInfluenceStatus;
-		TurtleBody body;
-		Point2f bodyPosition;
-		Vector2f motion = new Vector2f();
-		for (Path path : paths) {
-			motionInfluence = path.influence;
-			// search for the last path element
-			pathElement = path.getLastTraversableElementInPath(conflictingCells);
-			if (pathElement != null) {
-				body = (TurtleBody) motionInfluence.getEmitter();
-				assert (body != null);
-				bodyPosition = body.getPosition();
-				motion.set(motionInfluence.getLinearMotion());
-				motionInfluence.setLinearMotion(
-						pathElement.position.getX() - bodyPosition.getX(),
-						pathElement.position.getY() - bodyPosition.getY());
-				if (motion.lengthSquared() <= motionInfluence.getLinearMotion().lengthSquared()) {
-					motionInfluenceStatus = MotionInfluenceStatus.COMPLETE_MOTION;
-				} else {
-					motionInfluenceStatus = MotionInfluenceStatus.PARTIAL_MOTION;
-				}
-			} else {
-				// Apply the rotation even if linear motion was discarted
-				motionInfluence.setLinearMotion(0, 0);
-				motionInfluenceStatus = MotionInfluenceStatus.NO_MOTION;
-			}
+		for (int path = 0; path < this.pathCount; ++path) {
+			motionInfluence = this.pathInfluences[path];
+			motionInfluenceStatus = fixMotionInfluence(
+					this.conflictingCells, this.pathFirstElements[path], motionInfluence);
 			applyInfluence(actionApplier, motionInfluence, motionInfluenceStatus);
 		}
+
+		// Release the influences for the garbage collector
+		Arrays.fill(this.pathInfluences, 0, this.pathCount, null);
+		this.pathCount = 0;
 	}
 
-	/**
-	 * @author $Author: sgalland$
-	 * @version $FullVersion$
-	 * @mavengroupid $GroupId$
-	 * @mavenartifactid $ArtifactId$
+	/** Change the linear motion of the given influence to the last
+	 * traversable element of its path.
+	 *
+	 * @param conflictingCells is the map of the path elements.
+	 * @param firstElement is the first element of the path of the influence.
+	 * @param motionInfluence is the influence to fix.
+	 * @return the status of the fixed motion.
 	 */
-	private static class Path {
-
-		/** Influence. */
-		final MotionInfluence influence;
-		/** First element in path. */
-		PathElement firstElement;
-
-		/**
-		 * @param mi
-		 */
-		public Path(MotionInfluence mi) {
-			this.influence = mi;
-		}
-
-		private static void unmarkConflicts(Map<Point2f, List<PathElement>> conflictingCells, PathElement element) {
-			PathElement current = element;
-			List<PathElement> list;
-			while (current != null) {
-				if (current.inConflict) {
-					list = conflictingCells.get(current.position);
-					if (list != null) {
-						if (list.size() <= 2) {
-							for (PathElement e : list) {
-								e.inConflict = false;
-							}
-						} else {
-							current.inConflict = false;
-							list.remove(current);
-						}
-					}
-				}
-				current = current.next;
+	static MotionInfluenceStatus fixMotionInfluence(PathConflictMap conflictingCells, int firstElement,
+			MotionInfluence motionInfluence) {
+		// search for the last path element
+		int pathElement = getLastTraversableElementInPath(conflictingCells, firstElement);
+		if (pathElement != PathConflictMap.NONE) {
+			TurtleBody body = (TurtleBody) motionInfluence.getEmitter();
+			assert (body != null);
+			Point2f bodyPosition = body.getPosition();
+			Vector2f motion = new Vector2f(motionInfluence.getLinearMotion());
+			motionInfluence.setLinearMotion(
+					conflictingCells.getX(pathElement) - bodyPosition.getX(),
+					conflictingCells.getY(pathElement) - bodyPosition.getY());
+			if (motion.lengthSquared() <= motionInfluence.getLinearMotion().lengthSquared()) {
+				return MotionInfluenceStatus.COMPLETE_MOTION;
 			}
+			return MotionInfluenceStatus.PARTIAL_MOTION;
 		}
+		// Apply the rotation even if linear motion was discarted
+		motionInfluence.setLinearMotion(0, 0);
+		return MotionInfluenceStatus.NO_MOTION;
+	}
 
-		public PathElement getLastTraversableElementInPath(Map<Point2f, List<PathElement>> conflictingCells) {
-			assert (this.firstElement != null);
-			PathElement lastTraversable = null;
-			PathElement current = this.firstElement;
-			while (current != null && !current.inConflict) {
-				lastTraversable = current;
-				current = current.next;
-			}
-
-			// Unmark conflicts on the following elements
-			if (lastTraversable != null && lastTraversable.next != null) {
-				unmarkConflicts(conflictingCells, lastTraversable.next);
-			}
-
-			if (lastTraversable == null) {
-				// conflict on the first cell of the path
-				// Search for a new candidate later on the path
-				// which will permit to move a little beat.
-				current = this.firstElement.next;
-				lastTraversable = this.firstElement;
-				while (current != null && !current.inConflict) {
-					lastTraversable = current;
-					current = current.next;
-				}
-				if (lastTraversable == this.firstElement) {
-					lastTraversable = null;
-				}
-			}
+	/** Replies the last element of the path which could be reached
+	 * without conflict, and unmark the conflicts on the following elements.
+	 *
+	 * @param conflictingCells is the map of the path elements.
+	 * @param firstElement is the first element of the path.
+	 * @return the last traversable element, or {@link PathConflictMap#NONE}.
+	 */
+	static int getLastTraversableElementInPath(PathConflictMap conflictingCells, int firstElement) {
+		assert (firstElement != PathConflictMap.NONE);
+		int lastTraversable = PathConflictMap.NONE;
+		int current = firstElement;
+		while (current != PathConflictMap.NONE && !conflictingCells.isInConflict(current)) {
+			lastTraversable = current;
+			current = conflictingCells.getNext(current);
+		}
 
-			return lastTraversable;
+		// Unmark conflicts on the following elements
+		if (lastTraversable != PathConflictMap.NONE
+				&& conflictingCells.getNext(lastTraversable) != PathConflictMap.NONE) {
+			conflictingCells.unmarkConflicts(conflictingCells.getNext(lastTraversable));
 		}
-	}
 
-	/**
-	 * @author $Author: sgalland$
-	 * @version $FullVersion$
-	 * @mavengroupid $GroupId$
-	 * @mavenartifactid $ArtifactId$
-	 */
-	private static class PathElement {
-
-		/** Path. */
-		final Point2f position;
-		/** Next element in path. */
-		PathElement next;
-		/** Indicates if this element is not traversable. */
-		boolean inConflict;
-
-		/**
-		 * @param position
-		 * @param path
-		 */
-		public PathElement(Point2f position, Path path) {
-			this.position = position;
-			this.next = null;
-			if (path.firstElement == null) {
-				path.firstElement = this;
+		if (lastTraversable == PathConflictMap.NONE) {
+			// conflict on the first cell of the path
+			// Search for a new candidate later on the path
+			// which will permit to move a little beat.
+			current = conflictingCells.getNext(firstElement);
+			lastTraversable = firstElement;
+			while (current != PathConflictMap.NONE && !conflictingCells.isInConflict(current)) {
+				lastTraversable = current;
+				current = conflictingCells.getNext(current);
+			}
+			if (lastTraversable == firstElement) {
+				lastTraversable = PathConflictMap.NONE;
 			}
 		}
 
+		return lastTraversable;
 	}
 
 }
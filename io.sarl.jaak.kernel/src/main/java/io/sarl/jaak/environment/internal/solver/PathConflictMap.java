@@ -0,0 +1,304 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.solver;
+
+import java.util.Arrays;
+
+/** This class defines the map of the cells traversed by
+ * the paths of the motion influences.
+ * <p>
+ * The cells are stored in an open-addressing hash table
+ * keyed by the packed coordinates <code>(x &lt;&lt; 32) | y</code>.
+ * The path elements are stored in primitive arrays, linked
+ * by their indexes along their path and inside their cell.
+ * All the arrays are kept from a simulation step to the other:
+ * {@link #clear()} only invalidates their content.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+final class PathConflictMap {
+
+	/** Value of an index which is not referencing an element.
+	 */
+	public static final int NONE = -1;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private static final long INT_MASK = 0xFFFFFFFFL;
+
+	// Hash table: slot -> cell
+	private long[] slotKeys;
+	private int[] slotCells;
+	private int[] slotStamps;
+	private int slotBits;
+	private int stamp = 1;
+
+	// Cells: list of the elements in the cell
+	private int[] cellHeads = new int[INITIAL_CAPACITY];
+	private int[] cellTails = new int[INITIAL_CAPACITY];
+	private int[] cellSizes = new int[INITIAL_CAPACITY];
+	private int cellCount;
+
+	// Elements of the paths
+	private int[] elementX = new int[INITIAL_CAPACITY];
+	private int[] elementY = new int[INITIAL_CAPACITY];
+	private int[] elementCells = new int[INITIAL_CAPACITY];
+	private int[] elementNexts = new int[INITIAL_CAPACITY];
+	private int[] elementNextsInCell = new int[INITIAL_CAPACITY];
+	private boolean[] elementConflicts = new boolean[INITIAL_CAPACITY];
+	private int elementCount;
+
+	/**
+	 */
+	public PathConflictMap() {
+		allocateSlots(Integer.numberOfTrailingZeros(INITIAL_CAPACITY) + 1);
+	}
+
+	private void allocateSlots(int bits) {
+		this.slotBits = bits;
+		this.slotKeys = new long[1 << bits];
+		this.slotCells = new int[1 << bits];
+		this.slotStamps = new int[1 << bits];
+	}
+
+	/** Remove all the cells and the path elements.
+	 */
+	public void clear() {
+		this.cellCount = 0;
+		this.elementCount = 0;
+		++this.stamp;
+		if (this.stamp == 0) {
+			// The stamps have overflowed: reset them
+			Arrays.fill(this.slotStamps, 0);
+			this.stamp = 1;
+		}
+	}
+
+	/** Replies the number of path elements.
+	 *
+	 * @return the number of path elements.
+	 */
+	public int size() {
+		return this.elementCount;
+	}
+
+	private static long key(int x, int y) {
+		return ((long) x << Integer.SIZE) | (y & INT_MASK);
+	}
+
+	private int slot(long key) {
+		return (int) ((key * HASH_MULTIPLIER) >>> (Long.SIZE - this.slotBits));
+	}
+
+	/** Replies the index of the cell at the given position; create it if not existing.
+	 *
+	 * @param x is the coordinate of the cell.
+	 * @param y is the coordinate of the cell.
+	 * @return the index of the cell.
+	 */
+	private int getOrCreateCell(int x, int y) {
+		long k = key(x, y);
+		int mask = (1 << this.slotBits) - 1;
+		int s = slot(k);
+		while (this.slotStamps[s] == this.stamp) {
+			if (this.slotKeys[s] == k) {
+				return this.slotCells[s];
+			}
+			s = (s + 1) & mask;
+		}
+		int cell = this.cellCount++;
+		if (cell >= this.cellHeads.length) {
+			int capacity = this.cellHeads.length * 2;
+			this.cellHeads = Arrays.copyOf(this.cellHeads, capacity);
+			this.cellTails = Arrays.copyOf(this.cellTails, capacity);
+			this.cellSizes = Arrays.copyOf(this.cellSizes, capacity);
+		}
+		this.cellHeads[cell] = NONE;
+		this.cellTails[cell] = NONE;
+		this.cellSizes[cell] = 0;
+		this.slotKeys[s] = k;
+		this.slotCells[s] = cell;
+		this.slotStamps[s] = this.stamp;
+		if (this.cellCount * 2 > mask) {
+			rehash();
+		}
+		return cell;
+	}
+
+	private void rehash() {
+		long[] keys = this.slotKeys;
+		int[] cells = this.slotCells;
+		int[] stamps = this.slotStamps;
+		int current = this.stamp;
+		allocateSlots(this.slotBits + 1);
+		this.stamp = 1;
+		int mask = (1 << this.slotBits) - 1;
+		int s;
+		for (int i = 0; i < keys.length; ++i) {
+			if (stamps[i] == current) {
+				s = slot(keys[i]);
+				while (this.slotStamps[s] == this.stamp) {
+					s = (s + 1) & mask;
+				}
+				this.slotKeys[s] = keys[i];
+				this.slotCells[s] = cells[i];
+				this.slotStamps[s] = this.stamp;
+			}
+		}
+	}
+
+	/** Add a path element at the given position.
+	 * <p>
+	 * If other elements are already in the cell, the new element
+	 * and the elements in the cell are marked as in conflict.
+	 *
+	 * @param x is the coordinate of the element.
+	 * @param y is the coordinate of the element.
+	 * @param previous is the index of the previous element in the path, or {@link #NONE}.
+	 * @return the index of the new element.
+	 */
+	public int addElement(int x, int y, int previous) {
+		int cell = getOrCreateCell(x, y);
+		int element = this.elementCount++;
+		if (element >= this.elementX.length) {
+			int capacity = this.elementX.length * 2;
+			this.elementX = Arrays.copyOf(this.elementX, capacity);
+			this.elementY = Arrays.copyOf(this.elementY, capacity);
+			this.elementCells = Arrays.copyOf(this.elementCells, capacity);
+			this.elementNexts = Arrays.copyOf(this.elementNexts, capacity);
+			this.elementNextsInCell = Arrays.copyOf(this.elementNextsInCell, capacity);
+			this.elementConflicts = Arrays.copyOf(this.elementConflicts, capacity);
+		}
+		this.elementX[element] = x;
+		this.elementY[element] = y;
+		this.elementCells[element] = cell;
+		this.elementNexts[element] = NONE;
+		this.elementNextsInCell[element] = NONE;
+		this.elementConflicts[element] = false;
+		if (previous != NONE) {
+			this.elementNexts[previous] = element;
+		}
+		int head = this.cellHeads[cell];
+		if (head == NONE) {
+			// no conflict, right now
+			this.cellHeads[cell] = element;
+		} else {
+			if (this.cellSizes[cell] == 1) {
+				this.elementConflicts[head] = true;
+			}
+			this.elementConflicts[element] = true;
+			this.elementNextsInCell[this.cellTails[cell]] = element;
+		}
+		this.cellTails[cell] = element;
+		++this.cellSizes[cell];
+		return element;
+	}
+
+	/** Replies the x coordinate of the given element.
+	 *
+	 * @param element is the index of the element.
+	 * @return the coordinate.
+	 */
+	public int getX(int element) {
+		return this.elementX[element];
+	}
+
+	/** Replies the y coordinate of the given element.
+	 *
+	 * @param element is the index of the element.
+	 * @return the coordinate.
+	 */
+	public int getY(int element) {
+		return this.elementY[element];
+	}
+
+	/** Replies the next element in the path of the given element.
+	 *
+	 * @param element is the index of the element.
+	 * @return the index of the next element, or {@link #NONE}.
+	 */
+	public int getNext(int element) {
+		return this.elementNexts[element];
+	}
+
+	/** Replies if the given element is not traversable.
+	 *
+	 * @param element is the index of the element.
+	 * @return <code>true</code> if the element is in conflict.
+	 */
+	public boolean isInConflict(int element) {
+		return this.elementConflicts[element];
+	}
+
+	/** Unmark the conflicts from the given element to the end of its path.
+	 * <p>
+	 * When a cell contains two elements or less, all its elements are
+	 * unmarked. Otherwise, the element is unmarked and removed from its cell.
+	 *
+	 * @param element is the index of the first element to unmark.
+	 */
+	public void unmarkConflicts(int element) {
+		int current = element;
+		int cell;
+		while (current != NONE) {
+			if (this.elementConflicts[current]) {
+				cell = this.elementCells[current];
+				if (this.cellSizes[cell] <= 2) {
+					for (int e = this.cellHeads[cell]; e != NONE; e = this.elementNextsInCell[e]) {
+						this.elementConflicts[e] = false;
+					}
+				} else {
+					this.elementConflicts[current] = false;
+					removeFromCell(cell, current);
+				}
+			}
+			current = this.elementNexts[current];
+		}
+	}
+
+	private void removeFromCell(int cell, int element) {
+		int previous = NONE;
+		int e = this.cellHeads[cell];
+		while (e != NONE && e != element) {
+			previous = e;
+			e = this.elementNextsInCell[e];
+		}
+		if (e != NONE) {
+			if (previous == NONE) {
+				this.cellHeads[cell] = this.elementNextsInCell[e];
+			} else {
+				this.elementNextsInCell[previous] = this.elementNextsInCell[e];
+			}
+			if (this.cellTails[cell] == e) {
+				this.cellTails[cell] = previous;
+			}
+			this.elementNextsInCell[e] = NONE;
+			--this.cellSizes[cell];
+		}
+	}
+
+}
@@ -0,0 +1,399 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.solver;
+
+import io.sarl.jaak.environment.external.influence.Influence;
+import io.sarl.jaak.environment.external.influence.MotionInfluence;
+import io.sarl.jaak.environment.external.influence.MotionInfluenceStatus;
+import io.sarl.jaak.environment.internal.GridModel;
+import io.sarl.jaak.environment.internal.model.RealTurtleBody;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** This class defines an influence solver which is solving the
+ * conflicts of the regions of the grid in parallel.
+ * <p>
+ * The grid is split in square regions. The paths of the motion influences
+ * which are entirely inside a region are solved with the other paths of
+ * the same region, in parallel with the other regions. The paths which are
+ * crossing a region border, and the paths of the regions they are crossing,
+ * are solved together in a single sequential group. Because two groups have
+ * no cell in common, the motion influences have the same status as with
+ * {@link PathBasedInfluenceSolver}.
+ * <p>
+ * The non-motion influences are applied sequentially, before the motion
+ * influences, in the same order as with {@link PathBasedInfluenceSolver}.
+ * The grid given as {@link ActionApplier} must support concurrent updates
+ * of cells in different regions. The pool created by the solver
+ * is released by {@link #close()}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class RegionPartitionedInfluenceSolver extends PathBasedInfluenceSolver {
+
+	/** Default number of bits to shift a coordinate to obtain the coordinate of its region.
+	 * The regions are 64 cells wide.
+	 */
+	public static final int DEFAULT_REGION_SHIFT = 6;
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	private final int regionShift;
+	private volatile ForkJoinPool pool;
+	private boolean isPoolOwned;
+	private final ThreadLocal<PathConflictMap> conflictMaps = new ThreadLocal<PathConflictMap>() {
+		@Override
+		protected PathConflictMap initialValue() {
+			return new PathConflictMap();
+		}
+	};
+
+	// Paths of the current step
+	private MotionInfluence[] pathInfluences = new MotionInfluence[INITIAL_CAPACITY];
+	private int[] pathStarts = new int[INITIAL_CAPACITY + 1];
+	private int[] pathRegions = new int[INITIAL_CAPACITY];
+	private int pathCount;
+	private int[] coordinates = new int[INITIAL_CAPACITY];
+	private int coordinateCount;
+
+	/**
+	 */
+	public RegionPartitionedInfluenceSolver() {
+		this(DEFAULT_REGION_SHIFT);
+	}
+
+	/**
+	 * @param regionShift is the number of bits to shift a coordinate
+	 * to obtain the coordinate of its region.
+	 */
+	public RegionPartitionedInfluenceSolver(int regionShift) {
+		assert (regionShift >= 0 && regionShift < Integer.SIZE - 1);
+		this.regionShift = regionShift;
+	}
+
+	/** Change the pool of threads which is used to solve the regions in parallel.
+	 * The given pool is not shut down by the solver.
+	 *
+	 * @param pool is the pool to use, or <code>null</code> to use
+	 * a pool created by the solver.
+	 */
+	public synchronized void setPool(ForkJoinPool pool) {
+		shutdownPool();
+		this.pool = pool;
+	}
+
+	private synchronized ForkJoinPool getPool() {
+		ForkJoinPool p = this.pool;
+		if (p == null) {
+			p = new ForkJoinPool();
+			this.pool = p;
+			this.isPoolOwned = true;
+		}
+		return p;
+	}
+
+	private void shutdownPool() {
+		if (this.isPoolOwned) {
+			this.pool.shutdown();
+			this.isPoolOwned = false;
+		}
+		this.pool = null;
+	}
+
+	/** {@inheritDoc}
+	 * <p>
+	 * The pool of threads which was created by the solver is shut down.
+	 * A pool given to {@link #setPool(ForkJoinPool)} is not shut down.
+	 */
+	@Override
+	public synchronized void close() {
+		shutdownPool();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void solve(
+			Collection<? extends Influence> endogenousInfluences,
+			Collection<RealTurtleBody> bodies,
+			ActionApplier actionApplier) {
+
+		GridModel grid = getGridModel();
+		assert (grid != null);
+
+		this.pathCount = 0;
+		this.coordinateCount = 0;
+		this.pathStarts[0] = 0;
+
+		int columns = ((grid.getWidth() - 1) >> this.regionShift) + 1;
+		int rows = ((grid.getHeight() - 1) >> this.regionShift) + 1;
+
+		// Appling no-motion influences and localizing the motion influence targets
+		// from the endogenous engine
+		if (endogenousInfluences != null) {
+			for (Influence influence : endogenousInfluences) {
+				collectInfluence(influence, actionApplier, grid, columns);
+			}
+		}
+
+		// Appling no-motion influences and localizing the motion influence targets
+		// from the bodies
+		if (bodies != null) {
+			MotionInfluence mi;
+			List<? extends Influence> influences;
+
+			for (RealTurtleBody body : bodies) {
+				mi = body.consumeMotionInfluence();
+				if (mi == null) {
+					mi = new MotionInfluence(body);
+				}
+				collectInfluence(mi, actionApplier, grid, columns);
+				influences = body.consumeOtherInfluences();
+				if (influences != null) {
+					for (Influence influence : influences) {
+						collectInfluence(influence, actionApplier, grid, columns);
+					}
+				}
+			}
+		}
+
+		if (this.pathCount > 0) {
+			// Build the groups of paths: the first group contains the paths crossing
+			// the region borders and the paths of the regions they are crossing;
+			// the other groups contain the paths of a single region.
+			int regionCount = columns * rows;
+			int[] groupOfRegion = new int[regionCount];
+			markCrossedRegions(grid, columns, groupOfRegion);
+			int[] order = new int[this.pathCount];
+			int[] groupBounds = buildGroups(groupOfRegion, order);
+			int groupCount = groupBounds.length - 1;
+
+			GroupTask task = new GroupTask(order, groupBounds, 0, groupCount, actionApplier);
+			if (groupCount <= 1) {
+				task.compute();
+			} else {
+				getPool().invoke(task);
+			}
+
+			// Release the influences for the garbage collector
+			Arrays.fill(this.pathInfluences, 0, this.pathCount, null);
+			this.pathCount = 0;
+		}
+	}
+
+	private void collectInfluence(Influence influence, ActionApplier actionApplier, GridModel grid, int columns) {
+		if (influence instanceof MotionInfluence) {
+			MotionInfluence mi = (MotionInfluence) influence;
+			int count = tracePath(mi);
+			int[] buffer = getPathBuffer();
+			int path = this.pathCount++;
+			if (path >= this.pathInfluences.length) {
+				int capacity = this.pathInfluences.length * 2;
+				this.pathInfluences = Arrays.copyOf(this.pathInfluences, capacity);
+				this.pathRegions = Arrays.copyOf(this.pathRegions, capacity);
+				this.pathStarts = Arrays.copyOf(this.pathStarts, capacity + 1);
+			}
+			int size = this.coordinateCount + count * 2;
+			if (size > this.coordinates.length) {
+				this.coordinates = Arrays.copyOf(this.coordinates, Math.max(size, this.coordinates.length * 2));
+			}
+			System.arraycopy(buffer, 0, this.coordinates, this.coordinateCount, count * 2);
+			this.coordinateCount = size;
+			this.pathInfluences[path] = mi;
+			this.pathStarts[path + 1] = size;
+
+			int region = regionOf(grid, columns, buffer[0], buffer[1]);
+			for (int i = 1; region >= 0 && i < count; ++i) {
+				if (regionOf(grid, columns, buffer[i * 2], buffer[i * 2 + 1]) != region) {
+					region = -1;
+				}
+			}
+			this.pathRegions[path] = region;
+		} else {
+			applyInfluence(actionApplier, influence, null);
+		}
+	}
+
+	private int regionOf(GridModel grid, int columns, int x, int y) {
+		if (x < 0 || y < 0 || x >= grid.getWidth() || y >= grid.getHeight()) {
+			return -1;
+		}
+		return (y >> this.regionShift) * columns + (x >> this.regionShift);
+	}
+
+	/** Mark with <code>-1</code> the regions which are crossed by the paths
+	 * crossing a region border.
+	 *
+	 * @param grid is the grid.
+	 * @param columns is the number of columns of regions.
+	 * @param groupOfRegion is the array to fill.
+	 */
+	private void markCrossedRegions(GridModel grid, int columns, int[] groupOfRegion) {
+		int region;
+		for (int path = 0; path < this.pathCount; ++path) {
+			if (this.pathRegions[path] < 0) {
+				for (int i = this.pathStarts[path]; i < this.pathStarts[path + 1]; i += 2) {
+					region = regionOf(grid, columns, this.coordinates[i], this.coordinates[i + 1]);
+					if (region >= 0) {
+						groupOfRegion[region] = -1;
+					}
+				}
+			}
+		}
+	}
+
+	/** Sort the paths by group, in the order of their emission inside each group.
+	 *
+	 * @param groupOfRegion indicates with <code>-1</code> the regions in the first group.
+	 * It is filled with the group of each region.
+	 * @param order is the array to fill with the indexes of the paths.
+	 * @return the bounds of the groups in <var>order</var>.
+	 */
+	private int[] buildGroups(int[] groupOfRegion, int[] order) {
+		// Count the paths per group
+		int groupCount = 1;
+		int[] counts = new int[this.pathCount + 1];
+		int region;
+		int group;
+		for (int path = 0; path < this.pathCount; ++path) {
+			region = this.pathRegions[path];
+			if (region < 0 || groupOfRegion[region] < 0) {
+				group = 0;
+			} else {
+				group = groupOfRegion[region];
+				if (group == 0) {
+					group = groupCount++;
+					groupOfRegion[region] = group;
+				}
+			}
+			++counts[group];
+		}
+		int[] bounds = new int[groupCount + 1];
+		for (int g = 0; g < groupCount; ++g) {
+			bounds[g + 1] = bounds[g] + counts[g];
+		}
+		// Stable counting sort
+		int[] next = Arrays.copyOf(bounds, groupCount);
+		for (int path = 0; path < this.pathCount; ++path) {
+			region = this.pathRegions[path];
+			if (region < 0 || groupOfRegion[region] < 0) {
+				group = 0;
+			} else {
+				group = groupOfRegion[region];
+			}
+			order[next[group]++] = path;
+		}
+		return bounds;
+	}
+
+	/** Solve the conflicts of the paths of a group, and apply the motion influences.
+	 *
+	 * @param order is the sorted indexes of the paths.
+	 * @param start is the index of the first path of the group in <var>order</var>.
+	 * @param end is the index after the last path of the group in <var>order</var>.
+	 * @param actionApplier is the object which may receive actions.
+	 */
+	void solveGroup(int[] order, int start, int end, ActionApplier actionApplier) {
+		PathConflictMap conflictingCells = this.conflictMaps.get();
+		conflictingCells.clear();
+		int[] firstElements = new int[end - start];
+		int path;
+		int previousElement;
+		for (int i = start; i < end; ++i) {
+			path = order[i];
+			previousElement = PathConflictMap.NONE;
+			for (int c = this.pathStarts[path]; c < this.pathStarts[path + 1]; c += 2) {
+				previousElement = conflictingCells.addElement(
+						this.coordinates[c], this.coordinates[c + 1], previousElement);
+				if (c == this.pathStarts[path]) {
+					firstElements[i - start] = previousElement;
+				}
+			}
+		}
+		MotionInfluence motionInfluence;
+		MotionInfluenceStatus motionInfluenceStatus;
+		for (int i = start; i < end; ++i) {
+			motionInfluence = this.pathInfluences[order[i]];
+			motionInfluenceStatus = fixMotionInfluence(conflictingCells, firstElements[i - start], motionInfluence);
+			applyInfluence(actionApplier, motionInfluence, motionInfluenceStatus);
+		}
+	}
+
+	/** This class defines the solving of a range of groups of paths.
+	 * The range is split in two halves while it contains more than one group.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class GroupTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 2784306311512095482L;
+
+		private final int[] order;
+		private final int[] groupBounds;
+		private final int startGroup;
+		private final int endGroup;
+		private final ActionApplier actionApplier;
+
+		/**
+		 * @param order is the sorted indexes of the paths.
+		 * @param groupBounds is the bounds of the groups in <var>order</var>.
+		 * @param startGroup is the first group to solve.
+		 * @param endGroup is the index after the last group to solve.
+		 * @param actionApplier is the object which may receive actions.
+		 */
+		public GroupTask(int[] order, int[] groupBounds, int startGroup, int endGroup, ActionApplier actionApplier) {
+			this.order = order;
+			this.groupBounds = groupBounds;
+			this.startGroup = startGroup;
+			this.endGroup = endGroup;
+			this.actionApplier = actionApplier;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void compute() {
+			if (this.endGroup - this.startGroup <= 1) {
+				for (int g = this.startGroup; g < this.endGroup; ++g) {
+					solveGroup(this.order, this.groupBounds[g], this.groupBounds[g + 1], this.actionApplier);
+				}
+			} else {
+				int middle = (this.startGroup + this.endGroup) >>> 1;
+				invokeAll(
+						new GroupTask(this.order, this.groupBounds, this.startGroup, middle, this.actionApplier),
+						new GroupTask(this.order, this.groupBounds, middle, this.endGroup, this.actionApplier));
+			}
+		}
+
+	}
+
+}
@@ -19,7 +19,7 @@
  */
 package io.sarl.jaak.environment.internal.spawner;
 
-import io.sarl.jaak.util.RandomNumber;
+import io.sarl.jaak.environment.external.body.TurtleBodyFactory;
 
 import org.arakhne.afc.math.continous.object2d.Point2f;
 import org.arakhne.afc.math.continous.object2d.Rectangle2f;
@@ -65,11 +65,18 @@ public abstract class JaakAreaSpawner extends JaakSpawner {
 				&& desiredPosition.y() <= this.y + this.h) {
 			return new Point2f(desiredPosition);
 		}
-		float dx = RandomNumber.nextFloat()*this.w;
-		float dy = RandomNumber.nextFloat()*this.h;
+		float dx = getRandom().nextFloat()*this.w;
+		float dy = getRandom().nextFloat()*this.h;
 		return new Point2f(this.x + dx, this.y + dy);
 	}
 
+	/** {@inheritDoc}
+	 */
+	@Override
+	protected Point2f computeFreeSpawningPosition(TurtleBodyFactory factory) {
+		return factory.getFreeRandomPosition(this.x, this.y, this.w, this.h, getRandom());
+	}
+
 	/** {@inheritDoc}
 	 */
 	@Override
@@ -24,6 +24,8 @@ import io.sarl.jaak.environment.external.body.TurtleBody;
 import io.sarl.jaak.environment.external.body.TurtleBodyFactory;
 import io.sarl.jaak.environment.external.frustum.TurtleFrustum;
 import io.sarl.jaak.environment.external.time.TimeManager;
+import io.sarl.jaak.util.RandomNumber;
+import io.sarl.jaak.util.RandomStream;
 
 import java.io.Serializable;
 import java.util.UUID;
@@ -45,12 +47,39 @@ public abstract class JaakSpawner implements BodySpawner {
 	 */
 	public static final int FREE_POSITION_COMPUTATION_RETRIES = 10;
 
+	private RandomStream random;
+
 	/**
 	 */
 	public JaakSpawner() {
 		//
 	}
 
+	/** Change the index of the random stream dedicated to this spawner.
+	 * The kernel gives to each spawner its position in its list of spawners,
+	 * so that the streams depend only on the master seed of {@link RandomNumber}
+	 * and on the simulation, not on the spawners created before in the JVM.
+	 *
+	 * @param index is the index of the spawner in the kernel.
+	 */
+	public synchronized void setRandomIndex(long index) {
+		this.random = RandomNumber.getStream(JaakSpawner.class.getName(), index);
+	}
+
+	/** Replies the random stream dedicated to this spawner.
+	 * The stream depends on the master seed of {@link RandomNumber}
+	 * and on the {@link #setRandomIndex(long) index} of the spawner.
+	 * If no index was given, the stream depends on the type of the spawner.
+	 *
+	 * @return the random stream.
+	 */
+	protected synchronized RandomStream getRandom() {
+		if (this.random == null) {
+			this.random = RandomNumber.getStream(getClass().getName());
+		}
+		return this.random;
+	}
+
 	/** Spawn only a turtle body in environment and bind it with the
 	 * turtle with the given identifier.
 	 * <p>
@@ -126,6 +155,22 @@ public abstract class JaakSpawner implements BodySpawner {
 	 */
 	protected abstract Point2f computeCurrentSpawningPosition(Point2f desiredPosition);
 
+	/** Replies a free position where to spawn a turtle, selected by
+	 * the given factory among its free cells.
+	 * <p>
+	 * This function is invoked when the position replied by
+	 * {@link #computeCurrentSpawningPosition(Point2f)} for the desired
+	 * position is not free. By default, it replies <code>null</code>,
+	 * and the spawning positions are randomly computed
+	 * {@link #FREE_POSITION_COMPUTATION_RETRIES} times.
+	 *
+	 * @param factory is the factory which is knowing the free cells.
+	 * @return a free position, or <code>null</code> if none.
+	 */
+	protected Point2f computeFreeSpawningPosition(TurtleBodyFactory factory) {
+		return null;
+	}
+
 	/** Provide implementation for a body factory dedicated to spawners.
 	 *
 	 * @author $Author: sgalland$
@@ -155,21 +200,35 @@ public abstract class JaakSpawner implements BodySpawner {
 			return this.factory.isFreeCell(position);
 		}
 
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Point2f getFreeRandomPosition(float x, float y, float width, float height, RandomStream random) {
+			return this.factory.getFreeRandomPosition(x, y, width, height, random);
+		}
+
 		/** Compute a free position.
 		 *
 		 * @param desiredPosition is the desired position given by the factory invoker.
 		 * @return a free position
 		 */
 		public Point2f computeValidPosition(Point2f desiredPosition) {
-			Point2f dp = desiredPosition;
-			Point2f p;
-			for (int i = 0; i < FREE_POSITION_COMPUTATION_RETRIES; ++i) {
-				p = computeCurrentSpawningPosition(dp);
+			Point2f p = computeCurrentSpawningPosition(desiredPosition);
+			assert (p != null);
+			if (isFreeCell(p)) {
+				return p;
+			}
+			p = computeFreeSpawningPosition(this.factory);
+			if (p != null) {
+				return p;
+			}
+			for (int i = 1; i < FREE_POSITION_COMPUTATION_RETRIES; ++i) {
+				p = computeCurrentSpawningPosition(null);
 				assert (p != null);
 				if (isFreeCell(p)) {
 					return p;
 				}
-				dp = null;
 			}
 			return null;
 		}
@@ -21,8 +21,8 @@ package io.sarl.jaak.environment.internal.spawner;
 
 import io.sarl.jaak.environment.external.EnvironmentArea;
 import io.sarl.jaak.environment.external.body.TurtleBody;
+import io.sarl.jaak.environment.external.body.TurtleBodyFactory;
 import io.sarl.jaak.environment.external.time.TimeManager;
-import io.sarl.jaak.util.RandomNumber;
 
 import java.lang.ref.WeakReference;
 import java.util.UUID;
@@ -65,11 +65,20 @@ public class JaakWorldSpawner extends JaakSpawner {
 				&& desiredPosition.y() <= area.getY() + area.getHeight()) {
 			return new Point2f(desiredPosition);
 		}
-		float dx = RandomNumber.nextFloat()*area.getWidth();
-		float dy = RandomNumber.nextFloat()*area.getHeight();
+		float dx = getRandom().nextFloat()*area.getWidth();
+		float dy = getRandom().nextFloat()*area.getHeight();
 		return new Point2f(area.getX() + dx, area.getY() + dy);
 	}
 
+	/** {@inheritDoc}
+	 */
+	@Override
+	protected Point2f computeFreeSpawningPosition(TurtleBodyFactory factory) {
+		EnvironmentArea area = this.environment.get();
+		assert (area != null);
+		return factory.getFreeRandomPosition(area.getX(), area.getY(), area.getWidth(), area.getHeight(), getRandom());
+	}
+
 	/** {@inheritDoc}
 	 */
 	@Override
@@ -93,7 +102,7 @@ public class JaakWorldSpawner extends JaakSpawner {
 	 */
 	@Override
 	protected float computeSpawnedTurtleOrientation(TimeManager timeManager) {
-		return RandomNumber.nextFloat() * MathConstants.TWO_PI;
+		return getRandom().nextFloat() * MathConstants.TWO_PI;
 	}
 
 	/**
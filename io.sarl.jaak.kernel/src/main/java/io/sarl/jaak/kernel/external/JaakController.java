@@ -19,6 +19,8 @@
  */
 package io.sarl.jaak.kernel.external;
 
+import java.util.Collection;
+import java.util.UUID;
 
 /** This interface defines a controller for the Jaak simulation.
  *
@@ -53,4 +55,12 @@ public interface JaakController {
 	 */
 	void setSimulationStepTimeOut(long timeout);
 
+	/** Replies the bodies which have not finished the current simulation step.
+	 * When a step was ended by its timeout, the bodies which were late
+	 * are replied until the next step starts.
+	 *
+	 * @return the identifiers of the late bodies.
+	 */
+	Collection<UUID> getLateBodies();
+
 }
@@ -24,6 +24,8 @@ import io.sarl.jaak.environment.external.influence.Influence;
 import io.sarl.lang.core.EventListener;
 import io.sarl.lang.core.Space;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 /** Space that is representing the Jaak environment.
@@ -63,6 +65,14 @@ public interface JaakPhysicSpace extends Space {
 	 */
 	void notifyPerception(Perception perception);
 
+	/** Give the perceptions to the agents that are owning the bodies.
+	 * The perceptions are delivered in batches, with one task per
+	 * batch instead of one task per agent.
+	 *
+	 * @param perceptions - the events to give to the agents.
+	 */
+	void notifyPerceptions(Collection<Perception> perceptions);
+
 	/** Emit an influence for the given agent.
 	 *
 	 * @param influenceTime - the time at which the influence is applied.
@@ -70,4 +80,23 @@ public interface JaakPhysicSpace extends Space {
 	 */
 	void influence(float influenceTime, Influence influence);
 
+	/** Notify the environment that the given body has finished its
+	 * simulation step.
+	 *
+	 * @param influenceTime - the time of the simulation step.
+	 * @param bodyId - the identifier of the body.
+	 */
+	void synchronizeBody(float influenceTime, UUID bodyId);
+
+	/** Notify the environment that the given body has finished its
+	 * simulation step, and give the influences emitted by the body
+	 * during this step. The influences are applied in one block
+	 * by the environment.
+	 *
+	 * @param influenceTime - the time of the simulation step.
+	 * @param bodyId - the identifier of the body.
+	 * @param influences - the influences emitted by the body, or <code>null</code>.
+	 */
+	void synchronizeBody(float influenceTime, UUID bodyId, List<Influence> influences);
+
 }
@@ -32,6 +32,12 @@ import java.util.UUID;
  */
 public final class JaakPhysicSpaceConstants {
 
+	/** Name of the system property which is containing the master seed
+	 * of the {@link io.sarl.jaak.util.RandomNumber random streams}.
+	 * When it is set, the runs of a simulation are reproducible.
+	 */
+	public static final String RANDOM_SEED_PROPERTY = "io.sarl.jaak.randomSeed"; //$NON-NLS-1$
+
 	private JaakPhysicSpaceConstants() {
 		//
 	}
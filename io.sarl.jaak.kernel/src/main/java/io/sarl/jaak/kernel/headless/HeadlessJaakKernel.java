@@ -0,0 +1,537 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.kernel.headless;
+
+import io.sarl.jaak.environment.external.body.BodySpawner;
+import io.sarl.jaak.environment.external.body.TurtleBody;
+import io.sarl.jaak.environment.external.body.TurtleBodyFactory;
+import io.sarl.jaak.environment.external.time.TimeManager;
+import io.sarl.jaak.environment.internal.model.JaakEnvironment;
+import io.sarl.jaak.environment.internal.spawner.JaakBodyCreator;
+import io.sarl.jaak.environment.internal.spawner.JaakSpawner;
+import io.sarl.jaak.environment.internal.spawner.JaakWorldSpawner;
+import io.sarl.jaak.kernel.external.JaakEvent;
+import io.sarl.jaak.kernel.external.JaakListener;
+import io.sarl.jaak.kernel.internal.DefaultJaakTimeManager;
+import io.sarl.jaak.util.RandomNumber;
+import io.sarl.jaak.util.RandomStream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** Kernel of Jaak which is running the simulation in the current
+ * thread, without the SARL runtime environment.
+ * <p>
+ * The turtles are not agents: their behaviors are {@link TurtleBehavior}
+ * callbacks which are invoked at each simulation step with their bodies.
+ * The simulation step is the same as the one of the agent-based kernel:
+ * the spawners create the new turtles, the killed turtles are removed,
+ * the perceptions are computed, the behaviors are run, and the
+ * influences are solved by the environment.
+ * <p>
+ * The behaviors are run in the thread that is invoking {@link #step()},
+ * or in a {@link ForkJoinPool} when a pool is given to the kernel and
+ * the number of turtles is greater than the parallel threshold.
+ * The kernel must be stepped by one thread at a time.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class HeadlessJaakKernel {
+
+	/** Default number of turtles above which the behaviors
+	 * are run in parallel. It is also the size of the smallest
+	 * batch of turtles given to a worker thread.
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 1024;
+
+	private static final JaakBodyCreator DEFAULT_BODY_CREATOR = new DefaultBodyCreator();
+
+	private final JaakEnvironment environment;
+	private final TimeManager timeManager;
+	private final TurtleBehaviorFactory behaviorFactory;
+	private final JaakWorldSpawner defaultSpawner;
+	private final List<JaakSpawner> spawners;
+	private final RandomStream random;
+	private final UUID id;
+	private final Map<UUID, TurtleBehavior> behaviors = new TreeMap<>();
+	private final List<UUID> removedTurtles = new LinkedList<>();
+	private final List<JaakListener> listeners = new ArrayList<>();
+	private volatile ForkJoinPool pool;
+	private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	private boolean started;
+
+	/**
+	 * @param environment - the environment to simulate.
+	 * @param behaviorFactory - the factory of the behaviors of the spawned turtles.
+	 * @param spawners - the spawners of turtles. If no spawner is given,
+	 * a spawner on the whole environment is used.
+	 */
+	public HeadlessJaakKernel(JaakEnvironment environment, TurtleBehaviorFactory behaviorFactory,
+			JaakSpawner... spawners) {
+		this(environment, new DefaultJaakTimeManager(), behaviorFactory, spawners);
+	}
+
+	/**
+	 * @param environment - the environment to simulate.
+	 * @param timeManager - the time manager to use.
+	 * @param behaviorFactory - the factory of the behaviors of the spawned turtles.
+	 * @param spawners - the spawners of turtles. If no spawner is given,
+	 * a spawner on the whole environment is used.
+	 */
+	public HeadlessJaakKernel(JaakEnvironment environment, TimeManager timeManager,
+			TurtleBehaviorFactory behaviorFactory, JaakSpawner... spawners) {
+		assert (environment != null);
+		assert (timeManager != null);
+		assert (behaviorFactory != null);
+		this.environment = environment;
+		this.timeManager = timeManager;
+		this.behaviorFactory = behaviorFactory;
+		this.random = RandomNumber.getStream(HeadlessJaakKernel.class.getName());
+		this.id = nextIdentifier();
+		environment.setTimeManager(timeManager);
+		this.defaultSpawner = new JaakWorldSpawner(environment);
+		if (spawners == null || spawners.length == 0) {
+			this.spawners = Collections.<JaakSpawner>singletonList(this.defaultSpawner);
+		} else {
+			this.spawners = Collections.unmodifiableList(Arrays.asList(spawners));
+		}
+		for (int i = 0; i < this.spawners.size(); ++i) {
+			this.spawners.get(i).setRandomIndex(i);
+		}
+		if (this.spawners.get(0) != this.defaultSpawner) {
+			this.defaultSpawner.setRandomIndex(this.spawners.size());
+		}
+	}
+
+	private UUID nextIdentifier() {
+		return new UUID(this.random.nextLong(), this.random.nextLong());
+	}
+
+	/** Replies the simulated environment.
+	 *
+	 * @return the environment.
+	 */
+	public JaakEnvironment getEnvironment() {
+		return this.environment;
+	}
+
+	/** Replies the time manager of the simulation.
+	 *
+	 * @return the time manager.
+	 */
+	public TimeManager getTimeManager() {
+		return this.timeManager;
+	}
+
+	/** Replies the spawners of the simulation.
+	 *
+	 * @return the spawners.
+	 */
+	public List<JaakSpawner> getSpawners() {
+		return this.spawners;
+	}
+
+	/** Replies the behavior of the given turtle.
+	 *
+	 * @param turtle - the identifier of the turtle.
+	 * @return the behavior, or <code>null</code>.
+	 */
+	public TurtleBehavior getBehavior(UUID turtle) {
+		synchronized (this.behaviors) {
+			return this.behaviors.get(turtle);
+		}
+	}
+
+	/** Replies the number of turtles above which the behaviors are run in parallel.
+	 *
+	 * @return the number of turtles.
+	 */
+	public int getParallelThreshold() {
+		return this.parallelThreshold;
+	}
+
+	/** Set the number of turtles above which the behaviors are run in parallel.
+	 * It is also the size of the smallest batch of turtles given to a worker
+	 * thread. A value lower or equal to zero disables the parallel execution.
+	 *
+	 * @param threshold - the number of turtles.
+	 */
+	public void setParallelThreshold(int threshold) {
+		this.parallelThreshold = threshold;
+	}
+
+	/** Set the pool of threads that is running the behaviors in parallel.
+	 *
+	 * @param pool - the pool, or <code>null</code> to run the behaviors
+	 * in the thread of the simulation.
+	 */
+	public void setBehaviorPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/** Add a listener on the simulation.
+	 *
+	 * @param listener - the listener.
+	 */
+	public void addJaakListener(JaakListener listener) {
+		synchronized (this.listeners) {
+			this.listeners.add(listener);
+		}
+	}
+
+	/** Remove a listener on the simulation.
+	 *
+	 * @param listener - the listener.
+	 */
+	public void removeJaakListener(JaakListener listener) {
+		synchronized (this.listeners) {
+			this.listeners.remove(listener);
+		}
+	}
+
+	private JaakListener[] getListeners() {
+		synchronized (this.listeners) {
+			JaakListener[] list = new JaakListener[this.listeners.size()];
+			return this.listeners.toArray(list);
+		}
+	}
+
+	private JaakEvent createEvent() {
+		return new JaakEvent(this,
+				this.environment,
+				Collections.<BodySpawner>unmodifiableCollection(this.spawners),
+				this.timeManager.getCurrentTime(),
+				this.timeManager.getLastStepDuration());
+	}
+
+	/** Notifies the listeners about the start of the simulation.
+	 */
+	protected void fireSimulationStarted() {
+		JaakListener[] list = getListeners();
+		if (list.length > 0) {
+			JaakEvent event = createEvent();
+			for (JaakListener listener : list) {
+				listener.simulationStarted(event);
+			}
+		}
+	}
+
+	/** Notifies the listeners about the end of a simulation step.
+	 */
+	protected void fireEnvironmentChange() {
+		JaakListener[] list = getListeners();
+		if (list.length > 0) {
+			JaakEvent event = createEvent();
+			for (JaakListener listener : list) {
+				listener.environmentStateChanged(event);
+			}
+		}
+	}
+
+	/** Notifies the listeners about the end of the simulation.
+	 */
+	protected void fireSimulationStopped() {
+		JaakListener[] list = getListeners();
+		if (list.length > 0) {
+			JaakEvent event = createEvent();
+			for (JaakListener listener : list) {
+				listener.simulationStopped(event);
+			}
+		}
+	}
+
+	/** Add a turtle in the environment. The body of the turtle
+	 * is created by a spawner randomly selected.
+	 * This function may be invoked from a behavior; the new turtle
+	 * is run from the next simulation step.
+	 *
+	 * @param behavior - the behavior of the turtle.
+	 * @return the body of the turtle, or <code>null</code> if the body
+	 * cannot be created.
+	 */
+	public TurtleBody addTurtle(TurtleBehavior behavior) {
+		return addTurtle(behavior, null);
+	}
+
+	/** Add a turtle in the environment. The body of the turtle
+	 * is created by a spawner randomly selected.
+	 * This function may be invoked from a behavior; the new turtle
+	 * is run from the next simulation step.
+	 *
+	 * @param behavior - the behavior of the turtle.
+	 * @param creator - the creator of the body, or <code>null</code>
+	 * for creating the body at the position given by the spawner.
+	 * @return the body of the turtle, or <code>null</code> if the body
+	 * cannot be created.
+	 */
+	public TurtleBody addTurtle(TurtleBehavior behavior, JaakBodyCreator creator) {
+		assert (behavior != null);
+		synchronized (this.behaviors) {
+			JaakSpawner spawner = this.spawners.get(this.random.nextInt(this.spawners.size()));
+			UUID turtle = nextIdentifier();
+			TurtleBody body = spawner.spawnBodyFor(
+					turtle,
+					this.id,
+					this.environment.getTurtleBodyFactory(),
+					this.timeManager,
+					creator == null ? DEFAULT_BODY_CREATOR : creator);
+			if (body != null) {
+				this.behaviors.put(turtle, behavior);
+			}
+			return body;
+		}
+	}
+
+	/** Remove a turtle from the environment.
+	 * This function may be invoked from a behavior; the body
+	 * is removed at the beginning of the next simulation step.
+	 *
+	 * @param turtle - the identifier of the turtle.
+	 */
+	public void removeTurtle(UUID turtle) {
+		synchronized (this.removedTurtles) {
+			this.removedTurtles.add(turtle);
+		}
+	}
+
+	/** Run the given number of simulation steps.
+	 *
+	 * @param steps - the number of steps.
+	 */
+	public void run(int steps) {
+		for (int i = 0; i < steps; ++i) {
+			step();
+		}
+	}
+
+	/** Run one simulation step.
+	 */
+	public void step() {
+		if (!this.started) {
+			this.started = true;
+			fireSimulationStarted();
+		}
+		runPreTurtles();
+
+		TurtleBody[] bodies;
+		TurtleBehavior[] turtleBehaviors;
+		synchronized (this.behaviors) {
+			BehaviorCollector collector = new BehaviorCollector(this.behaviors);
+			this.environment.apply(collector);
+			bodies = collector.getBodies();
+			turtleBehaviors = collector.getBehaviors();
+		}
+
+		float currentTime = this.timeManager.getCurrentTime();
+		float lastStepDuration = this.timeManager.getLastStepDuration();
+		ForkJoinPool thePool = this.pool;
+		int threshold = this.parallelThreshold;
+		if (thePool == null || threshold <= 0 || bodies.length <= threshold) {
+			for (int i = 0; i < bodies.length; ++i) {
+				turtleBehaviors[i].live(bodies[i], currentTime, lastStepDuration);
+			}
+		} else {
+			thePool.invoke(new BehaviorTask(bodies, turtleBehaviors, currentTime, lastStepDuration,
+					0, bodies.length, threshold));
+		}
+
+		this.environment.runPostTurtles();
+		this.timeManager.increment();
+		fireEnvironmentChange();
+	}
+
+	/** Stop the simulation. The listeners are notified.
+	 */
+	public void stop() {
+		if (this.started) {
+			this.started = false;
+			fireSimulationStopped();
+		}
+	}
+
+	private void runPreTurtles() {
+		TurtleBodyFactory factory = this.environment.getTurtleBodyFactory();
+		synchronized (this.behaviors) {
+			UUID turtle;
+			TurtleBody body;
+			TurtleBehavior behavior;
+			for (JaakSpawner spawner : this.spawners) {
+				turtle = nextIdentifier();
+				body = spawner.spawnBodyFor(turtle, this.id, factory, this.timeManager, null);
+				if (body != null) {
+					behavior = this.behaviorFactory.createBehavior(spawner, body);
+					if (behavior != null) {
+						this.behaviors.put(turtle, behavior);
+					}
+				}
+			}
+			synchronized (this.removedTurtles) {
+				for (UUID removed : this.removedTurtles) {
+					this.environment.removeBodyFor(removed);
+					this.behaviors.remove(removed);
+				}
+				this.removedTurtles.clear();
+			}
+		}
+		this.environment.runPreTurtles();
+	}
+
+	/** Collector of the bodies that have a behavior.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class BehaviorCollector implements JaakEnvironment.Lambda<TurtleBody> {
+
+		private final Map<UUID, TurtleBehavior> behaviors;
+		private final List<TurtleBody> bodies;
+		private final List<TurtleBehavior> bodyBehaviors;
+
+		/**
+		 * @param behaviors - the behaviors of the turtles.
+		 */
+		public BehaviorCollector(Map<UUID, TurtleBehavior> behaviors) {
+			this.behaviors = behaviors;
+			this.bodies = new ArrayList<>(behaviors.size());
+			this.bodyBehaviors = new ArrayList<>(behaviors.size());
+		}
+
+		@Override
+		public void apply(TurtleBody body) {
+			TurtleBehavior behavior = this.behaviors.get(body.getTurtleId());
+			if (behavior != null) {
+				this.bodies.add(body);
+				this.bodyBehaviors.add(behavior);
+			}
+		}
+
+		/** Replies the collected bodies.
+		 *
+		 * @return the bodies.
+		 */
+		public TurtleBody[] getBodies() {
+			TurtleBody[] array = new TurtleBody[this.bodies.size()];
+			return this.bodies.toArray(array);
+		}
+
+		/** Replies the behaviors of the collected bodies.
+		 *
+		 * @return the behaviors, in the order of the bodies.
+		 */
+		public TurtleBehavior[] getBehaviors() {
+			TurtleBehavior[] array = new TurtleBehavior[this.bodyBehaviors.size()];
+			return this.bodyBehaviors.toArray(array);
+		}
+
+	}
+
+	/** Task that is running the behaviors of a batch of turtles.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class BehaviorTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 4826419046284773305L;
+
+		private final TurtleBody[] bodies;
+		private final TurtleBehavior[] behaviors;
+		private final float currentTime;
+		private final float lastStepDuration;
+		private final int start;
+		private final int end;
+		private final int threshold;
+
+		/**
+		 * @param bodies - the bodies of the turtles.
+		 * @param behaviors - the behaviors of the turtles.
+		 * @param currentTime - the current simulation time.
+		 * @param lastStepDuration - the duration of the last simulation step.
+		 * @param start - the index of the first turtle of the batch.
+		 * @param end - the index after the last turtle of the batch.
+		 * @param threshold - the size of the smallest batch.
+		 */
+		public BehaviorTask(TurtleBody[] bodies, TurtleBehavior[] behaviors,
+				float currentTime, float lastStepDuration, int start, int end, int threshold) {
+			this.bodies = bodies;
+			this.behaviors = behaviors;
+			this.currentTime = currentTime;
+			this.lastStepDuration = lastStepDuration;
+			this.start = start;
+			this.end = end;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.end - this.start <= this.threshold) {
+				for (int i = this.start; i < this.end; ++i) {
+					this.behaviors[i].live(this.bodies[i], this.currentTime, this.lastStepDuration);
+				}
+			} else {
+				int middle = (this.start + this.end) >>> 1;
+				invokeAll(
+						new BehaviorTask(this.bodies, this.behaviors, this.currentTime, this.lastStepDuration,
+								this.start, middle, this.threshold),
+						new BehaviorTask(this.bodies, this.behaviors, this.currentTime, this.lastStepDuration,
+								middle, this.end, this.threshold));
+			}
+		}
+
+	}
+
+	/** Creator of bodies at the position given by the spawner.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class DefaultBodyCreator implements JaakBodyCreator {
+
+		/**
+		 */
+		public DefaultBodyCreator() {
+			//
+		}
+
+		@Override
+		public TurtleBody createBody(UUID turtleId, TurtleBodyFactory bodyFactory, TimeManager timeManager) {
+			return bodyFactory.createTurtleBody(turtleId);
+		}
+
+	}
+
+}
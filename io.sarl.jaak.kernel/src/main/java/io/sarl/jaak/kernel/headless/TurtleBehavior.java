@@ -0,0 +1,49 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.kernel.headless;
+
+import io.sarl.jaak.environment.external.body.TurtleBody;
+
+/** Behavior of a turtle which is run by a {@link HeadlessJaakKernel}.
+ * <p>
+ * The behavior is invoked once per simulation step, after the
+ * perceptions of the body were computed. It reads the perceptions
+ * from the body, and it gives its influences by invoking the
+ * actions of the body.
+ * <p>
+ * The behaviors of different turtles may be invoked in parallel;
+ * a behavior must only use its own body.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public interface TurtleBehavior {
+
+	/** Run the behavior of the turtle for the current simulation step.
+	 *
+	 * @param body - the body of the turtle.
+	 * @param currentTime - the current simulation time.
+	 * @param lastStepDuration - the duration of the last simulation step.
+	 */
+	void live(TurtleBody body, float currentTime, float lastStepDuration);
+
+}
@@ -0,0 +1,44 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.kernel.headless;
+
+import io.sarl.jaak.environment.external.body.TurtleBody;
+import io.sarl.jaak.environment.internal.spawner.JaakSpawner;
+
+/** Factory of the behaviors of the turtles which are created
+ * by the spawners of a {@link HeadlessJaakKernel}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public interface TurtleBehaviorFactory {
+
+	/** Create the behavior of a turtle which was spawned.
+	 *
+	 * @param spawner - the spawner that has created the body.
+	 * @param body - the body of the new turtle.
+	 * @return the behavior of the turtle, or <code>null</code> if the
+	 * body must stay without behavior.
+	 */
+	TurtleBehavior createBehavior(JaakSpawner spawner, TurtleBody body);
+
+}
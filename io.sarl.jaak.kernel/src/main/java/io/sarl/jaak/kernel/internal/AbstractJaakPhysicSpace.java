@@ -35,11 +35,18 @@ import io.sarl.lang.util.SynchronizedSet;
 import io.sarl.util.Collections3;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 import com.google.inject.Inject;
 
 /** Implementation of the physic space for Jaak that is dedicated to the turtle's skills.
+ * <p>
+ * The events are delivered to the agents by an {@link EventDispatcher}.
  *
  * @author $Author: sgalland$
  * @version $FullVersion$
@@ -73,6 +80,21 @@ abstract class AbstractJaakPhysicSpace implements JaakPhysicSpace, DistributedSp
 	@Inject
 	private NetworkService network;
 
+	private final EventDispatcher dispatcher = new EventDispatcher(new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			AbstractJaakPhysicSpace.this.executorService.submit(command);
+		}
+	}) {
+		@Override
+		protected void deliveryFailed(EventListener agent, Event event, RuntimeException exception) {
+			AbstractJaakPhysicSpace.this.logger.error(AbstractJaakPhysicSpace.class,
+					"CANNOT_DELIVER_EVENT", agent, event, exception); //$NON-NLS-1$
+		}
+	};
+
+	private final ConcurrentMap<UUID, EventListener> localListeners = new ConcurrentHashMap<>();
+
 	/**
 	 * @param id - the identifier of the space.
 	 * @param factory - the factory to be used for creating distributed data structures.
@@ -110,15 +132,37 @@ abstract class AbstractJaakPhysicSpace implements JaakPhysicSpace, DistributedSp
 	 * @return <code>true</code> if the event was dispatched on the local bus.
 	 */
 	protected boolean putOnEventBus(Event event, UUID scope) {
-		synchronized (this.agents) {
-			for (EventListener agent : this.agents.getListeners()) {
-				if (scope.equals(agent.getID())) {
-					fireAsync(agent, event);
-					return true;
-				}
-			}
-			return false;
+		EventListener agent = this.localListeners.get(scope);
+		if (agent != null) {
+			fireAsync(agent, event);
+			return true;
 		}
+		return false;
+	}
+
+	/** Replies the listeners of the agents on the local event bus,
+	 * indexed by their identifiers.
+	 *
+	 * @return the local listeners.
+	 */
+	protected Map<UUID, EventListener> getLocalListeners() {
+		return Collections.unmodifiableMap(this.localListeners);
+	}
+
+	/** Add the given agent in the index of the local listeners.
+	 *
+	 * @param agent - the agent.
+	 */
+	protected void addLocalListener(EventListener agent) {
+		this.localListeners.put(agent.getID(), agent);
+	}
+
+	/** Remove the given agent from the index of the local listeners.
+	 *
+	 * @param agent - the agent.
+	 */
+	protected void removeLocalListener(EventListener agent) {
+		this.localListeners.remove(agent.getID(), agent);
 	}
 
 	/** Do the emission of the event over the network.
@@ -141,7 +185,20 @@ abstract class AbstractJaakPhysicSpace implements JaakPhysicSpace, DistributedSp
 	 * @param event - the event to send.
 	 */
 	protected void fireAsync(EventListener agent, Event event) {
-		this.executorService.submit(new AsyncRunner(agent, event));
+		this.dispatcher.fireAsync(agent, event);
+	}
+
+	/** Send the events to the listeners asyncronously, in batches.
+	 * The pairs of listeners and events are split in one batch per
+	 * available processor, and the events of a batch are delivered
+	 * by a single task.
+	 *
+	 * @param agents - the listeners to notify.
+	 * @param events - the events to send; the i-th event is sent to the i-th listener.
+	 * @param count - the number of pairs to consider in the arrays.
+	 */
+	protected void fireAsync(EventListener[] agents, Event[] events, int count) {
+		this.dispatcher.fireAsync(agents, events, count);
 	}
 
 	/** Implement a scope matching a single UUID.
@@ -179,36 +236,4 @@ abstract class AbstractJaakPhysicSpace implements JaakPhysicSpace, DistributedSp
 
 	}
 
-	/**
-	 * @author $Author: sgalland$
-	 * @version $FullVersion$
-	 * @mavengroupid $GroupId$
-	 * @mavenartifactid $ArtifactId$
-	 */
-	private static class AsyncRunner implements Runnable {
-
-		private final EventListener agent;
-		private final Event event;
-
-		/**
-		 * @param agent
-		 * @param event
-		 */
-		public AsyncRunner(EventListener agent, Event event) {
-			this.agent = agent;
-			this.event = event;
-		}
-
-		@Override
-		public void run() {
-			this.agent.receiveEvent(this.event);
-		}
-
-		@Override
-		public String toString() {
-			return "[agent=" + this.agent + "; event=" + this.event + "]"; //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
-		}
-
-	}
-
 }
@@ -31,7 +31,6 @@ import java.lang.reflect.Constructor;
 import java.util.UUID;
 
 import org.arakhne.afc.math.continous.object2d.Point2f;
-import org.arakhne.afc.math.discrete.object2d.Point2i;
 
 /** Creator of bodies for the SARL agents.
  *
@@ -57,7 +56,7 @@ class AgentBodyCreator implements JaakBodyCreator {
 	 */
 	public boolean isPositionForced(JaakEnvironment environment) {
 		Point2f p = new Point2f(this.parameters.x, this.parameters.y);
-		return (environment.isFree(p.x(), p.y()));
+		return (environment.isFree(p.getX(), p.getY()));
 	}
 
 	/** Change the creation parameters.
@@ -77,7 +76,7 @@ class AgentBodyCreator implements JaakBodyCreator {
 			TurtleFrustum f = createFrustum();
 			if (f != null) {
 				return bodyFactory.createTurtleBody(turtleId,
-						new Point2i(this.parameters.x, this.parameters.y),
+						new Point2f(this.parameters.x, this.parameters.y),
 						f);
 			}
 		}
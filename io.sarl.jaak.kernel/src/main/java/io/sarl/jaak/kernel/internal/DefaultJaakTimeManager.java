@@ -21,16 +21,22 @@ package io.sarl.jaak.kernel.internal;
 
 import io.sarl.jaak.environment.external.time.TimeManager;
 
+import java.io.Serializable;
 import java.util.concurrent.TimeUnit;
 
 /** Time manager for Jaak environment.
+ * <p>
+ * The time manager is serializable, so that it is saved in the
+ * checkpoints of the environment.
  *
  * @author $Author: sgalland$
  * @version $FullVersion$
  * @mavengroupid $GroupId$
  * @mavenartifactid $ArtifactId$
  */
-class DefaultJaakTimeManager implements TimeManager {
+public class DefaultJaakTimeManager implements TimeManager, Serializable {
+
+	private static final long serialVersionUID = -3217609485032117856L;
 
 	/** Define the default duration of a simulation step.
 	 */
@@ -0,0 +1,163 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.kernel.internal;
+
+import io.sarl.lang.core.Event;
+import io.sarl.lang.core.EventListener;
+
+import java.util.concurrent.Executor;
+
+/** Deliver the events to the agents asynchronously: one task per event,
+ * or one task per batch of events when they are sent in a single call.
+ * <p>
+ * This dispatcher is used by the physic spaces. It does not depend on the
+ * services of the platform, so that it may be run on any executor.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public abstract class EventDispatcher {
+
+	private final Executor executor;
+
+	/**
+	 * @param executor - the executor which is running the delivery tasks.
+	 */
+	public EventDispatcher(Executor executor) {
+		assert (executor != null);
+		this.executor = executor;
+	}
+
+	/** Invoked when an agent has failed to receive an event
+	 * in a batch.
+	 *
+	 * @param agent - the agent.
+	 * @param event - the event.
+	 * @param exception - the cause of the failure.
+	 */
+	protected abstract void deliveryFailed(EventListener agent, Event event, RuntimeException exception);
+
+	/** Send the event to the given listener asyncronously.
+	 *
+	 * @param agent - the listener to notify.
+	 * @param event - the event to send.
+	 */
+	public void fireAsync(EventListener agent, Event event) {
+		this.executor.execute(new AsyncRunner(agent, event));
+	}
+
+	/** Send the events to the listeners asyncronously, in batches.
+	 * The pairs of listeners and events are split in one batch per
+	 * available processor, and the events of a batch are delivered
+	 * by a single task.
+	 *
+	 * @param agents - the listeners to notify.
+	 * @param events - the events to send; the i-th event is sent to the i-th listener.
+	 * @param count - the number of pairs to consider in the arrays.
+	 */
+	public void fireAsync(EventListener[] agents, Event[] events, int count) {
+		if (count > 0) {
+			int batches = Math.min(count, Runtime.getRuntime().availableProcessors());
+			int batchSize = (count + batches - 1) / batches;
+			for (int start = 0; start < count; start += batchSize) {
+				this.executor.execute(new BatchRunner(agents, events, start, Math.min(count, start + batchSize)));
+			}
+		}
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class BatchRunner implements Runnable {
+
+		private final EventListener[] agents;
+		private final Event[] events;
+		private final int start;
+		private final int end;
+
+		/**
+		 * @param agents
+		 * @param events
+		 * @param start
+		 * @param end
+		 */
+		public BatchRunner(EventListener[] agents, Event[] events, int start, int end) {
+			this.agents = agents;
+			this.events = events;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public void run() {
+			for (int i = this.start; i < this.end; ++i) {
+				try {
+					this.agents[i].receiveEvent(this.events[i]);
+				} catch (RuntimeException e) {
+					deliveryFailed(this.agents[i], this.events[i], e);
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "[batch=" + this.start + ".." + this.end + "]"; //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
+		}
+
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class AsyncRunner implements Runnable {
+
+		private final EventListener agent;
+		private final Event event;
+
+		/**
+		 * @param agent
+		 * @param event
+		 */
+		public AsyncRunner(EventListener agent, Event event) {
+			this.agent = agent;
+			this.event = event;
+		}
+
+		@Override
+		public void run() {
+			this.agent.receiveEvent(this.event);
+		}
+
+		@Override
+		public String toString() {
+			return "[agent=" + this.agent + "; event=" + this.event + "]"; //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
+		}
+
+	}
+
+}
@@ -27,6 +27,9 @@ import io.sarl.lang.core.Address;
 import io.sarl.lang.core.EventSpace;
 
 import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
 
 
 /** Standard implementation of a JaakController.
@@ -45,6 +48,7 @@ class JaakKernelController implements JaakController {
 	private WeakReference<EventSpace> space;
 	private WeakReference<TimeManager> timeManager;
 	private Address address;
+	private StepBarrier stepBarrier;
 	private long simulationStepTimeout = DEFAULT_SIMULATION_STEP_TIMEOUT;
 
 	/**
@@ -74,11 +78,14 @@ class JaakKernelController implements JaakController {
 	 * @param space the space.
 	 * @param address the address.
 	 * @param timeManager the time manager.
+	 * @param stepBarrier the barrier of the simulation steps.
 	 */
-	synchronized void initialize(EventSpace space, Address address, TimeManager timeManager) {
+	synchronized void initialize(EventSpace space, Address address, TimeManager timeManager,
+			StepBarrier stepBarrier) {
 		this.space = (space == null) ? null : new WeakReference<>(space);
 		this.timeManager = (timeManager == null) ? null : new WeakReference<>(timeManager);
 		this.address = address;
+		this.stepBarrier = stepBarrier;
 		this.state = State.NEVER_STARTED;
 	}
 
@@ -166,6 +173,18 @@ class JaakKernelController implements JaakController {
 		}
 	}
 
+	@Override
+	public Collection<UUID> getLateBodies() {
+		StepBarrier barrier;
+		synchronized (this) {
+			barrier = this.stepBarrier;
+		}
+		if (barrier == null) {
+			return Collections.emptyList();
+		}
+		return barrier.getLateBodies();
+	}
+
 	/**
 	 * @author $Author: sgalland$
 	 * @version $FullVersion$
@@ -28,6 +28,9 @@ import io.sarl.lang.core.EventListener;
 import io.sarl.lang.core.Scope;
 import io.sarl.lang.core.SpaceID;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /** Implementation of the physic space for Jaak Kernel.
@@ -74,6 +77,28 @@ class JaakPhysicSpaceKernelImpl extends JaakPhysicSpaceTurtleImpl {
 		}
 	}
 
+	@Override
+	public void notifyPerceptions(Collection<Perception> perceptions) {
+		Map<UUID, EventListener> listeners = getLocalListeners();
+		EventListener[] agents = new EventListener[perceptions.size()];
+		Event[] events = new Event[agents.length];
+		int count = 0;
+		EventListener agent;
+		UUID id;
+		for (Perception perception : perceptions) {
+			id = perception.body.getTurtleId();
+			agent = listeners.get(id);
+			if (agent != null) {
+				agents[count] = agent;
+				events[count] = perception;
+				++count;
+			} else {
+				putOnNetwork(perception, id);
+			}
+		}
+		fireAsync(agents, events, count);
+	}
+
 	@Override
 	public void influence(float influenceTime, Influence influence) {
 		Event event;
@@ -90,6 +115,18 @@ class JaakPhysicSpaceKernelImpl extends JaakPhysicSpaceTurtleImpl {
 		}
 	}
 
+	@Override
+	public void synchronizeBody(float influenceTime, UUID bodyId, List<Influence> influences) {
+		if (this.environmentAgent != null) {
+			// Local delivery: the batch is not serialized
+			Event event = new SynchronizeBody(influenceTime, 0, influences);
+			event.setSource(new Address(getID(), bodyId));
+			fireAsync(this.environmentAgent, event);
+		} else {
+			super.synchronizeBody(influenceTime, bodyId, influences);
+		}
+	}
+
 	@Override
 	public void eventReceived(SpaceID space, Scope<?> scope, Event event) {
 		if (scope instanceof UUIDScope) {
@@ -22,11 +22,14 @@ package io.sarl.jaak.kernel.internal;
 import io.janusproject.services.distributeddata.DistributedDataStructureService;
 import io.sarl.jaak.environment.external.Perception;
 import io.sarl.jaak.environment.external.influence.Influence;
+import io.sarl.lang.core.Address;
 import io.sarl.lang.core.Event;
 import io.sarl.lang.core.EventListener;
 import io.sarl.lang.core.Scope;
 import io.sarl.lang.core.SpaceID;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 /** Implementation of the physic space for Jaak that is dedicated to the turtle's skills.
@@ -56,6 +59,7 @@ class JaakPhysicSpaceTurtleImpl extends AbstractJaakPhysicSpace {
 		synchronized (this.agents) {
 			this.agents.registerParticipant(binder.getID(), binder);
 		}
+		addLocalListener(binder);
 	}
 
 	@Override
@@ -63,6 +67,7 @@ class JaakPhysicSpaceTurtleImpl extends AbstractJaakPhysicSpace {
 		synchronized (this.agents) {
 			this.agents.unregisterParticipant(binder);
 		}
+		removeLocalListener(binder);
 	}
 
 	@Override
@@ -70,12 +75,36 @@ class JaakPhysicSpaceTurtleImpl extends AbstractJaakPhysicSpace {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public void notifyPerceptions(Collection<Perception> perceptions) {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public void influence(float influenceTime, Influence influence) {
 		AgentInfluence event = new AgentInfluence(influenceTime, 0, influence);
 		putOnNetwork(event, getCreatorID());
 	}
 
+	@Override
+	public void synchronizeBody(float influenceTime, UUID bodyId) {
+		synchronizeBody(influenceTime, bodyId, null);
+	}
+
+	/** {@inheritDoc}
+	 * <p>
+	 * The influences are put in the {@link SynchronizeBody} event
+	 * which is sent over the network, so that the batch is sent in
+	 * one message; each influence keeps its compact serialized form,
+	 * and its emitter is restored from the source of the event.
+	 */
+	@Override
+	public void synchronizeBody(float influenceTime, UUID bodyId, List<Influence> influences) {
+		SynchronizeBody event = new SynchronizeBody(influenceTime, 0, influences);
+		event.setSource(new Address(getID(), bodyId));
+		putOnNetwork(event, getCreatorID());
+	}
+
 	@Override
 	public void eventReceived(SpaceID space, Scope<?> scope, Event event) {
 		if (scope instanceof UUIDScope) {
@@ -21,9 +21,12 @@ package io.sarl.jaak.kernel.internal;
 
 import io.sarl.jaak.environment.external.Perception;
 import io.sarl.jaak.environment.external.body.TurtleObject;
+import io.sarl.jaak.environment.external.influence.Influence;
 import io.sarl.lang.core.Event;
 import io.sarl.lang.core.EventListener;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /** Object that may be used to link a skill to a JaakPhysicSpace.
@@ -39,6 +42,7 @@ public class SkillBinder implements EventListener {
 	private TurtleObject body;
 	private float currentTime;
 	private float currentStepSize;
+	private List<Influence> influences;
 
 	/**
 	 * @param owner - the owner of the skill.
@@ -79,6 +83,31 @@ public class SkillBinder implements EventListener {
 		return this.currentStepSize;
 	}
 
+	/** Add an influence in the batch of influences of the current
+	 * simulation step. The batch is sent to the environment when
+	 * the body is synchronized.
+	 *
+	 * @param influence - the influence.
+	 * @see #consumeInfluences()
+	 */
+	public synchronized void addInfluence(Influence influence) {
+		assert (influence != null);
+		if (this.influences == null) {
+			this.influences = new ArrayList<>();
+		}
+		this.influences.add(influence);
+	}
+
+	/** Replies and forget the influences of the current simulation step.
+	 *
+	 * @return the influences, or <code>null</code> if none.
+	 */
+	public synchronized List<Influence> consumeInfluences() {
+		List<Influence> list = this.influences;
+		this.influences = null;
+		return list;
+	}
+
 	@Override
 	public UUID getID() {
 		return this.owner.getID();
@@ -88,6 +117,10 @@ public class SkillBinder implements EventListener {
 	public void receiveEvent(Event event) {
 		assert (event instanceof Perception);
 		Perception perception = (Perception) event;
+		synchronized (this) {
+			// The influences of the previous steps are too late to be applied
+			this.influences = null;
+		}
 		this.currentTime = perception.currentTime;
 		this.currentStepSize = perception.lastStepDuration;
 		this.body = perception.body;
@@ -0,0 +1,191 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.kernel.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/** This class defines the barrier which is closing a simulation step
+ * when all the expected bodies have synchronized.
+ * <p>
+ * A step is identified by its simulation time. The barrier is opened
+ * for a step, receives the identifiers of the bodies which are expected
+ * to synchronize, and is sealed when all the bodies are known. Then,
+ * the arrival of the last expected body, the removal of the last
+ * missing body, or the timeout of the step completes the barrier.
+ * Exactly one of these calls replies <code>true</code> for a step, so that
+ * the simulator is waked up once. The arrivals of unexpected bodies, the
+ * arrivals without body identifier, the duplicated arrivals and the
+ * arrivals for a previous step are ignored.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+class StepBarrier {
+
+	private final Set<UUID> expected = new HashSet<>();
+	private final Set<UUID> arrived = new HashSet<>();
+	private float stepTime = Float.NEGATIVE_INFINITY;
+	private boolean sealed;
+	private boolean complete = true;
+
+	/**
+	 */
+	public StepBarrier() {
+		//
+	}
+
+	/** Open the barrier for the step at the given time.
+	 * The bodies which were late in the previous step are forgotten.
+	 *
+	 * @param time is the simulation time of the step.
+	 */
+	public synchronized void open(float time) {
+		this.stepTime = time;
+		this.expected.clear();
+		this.arrived.clear();
+		this.sealed = false;
+		this.complete = false;
+	}
+
+	/** Add a body which is expected to synchronize in the current step.
+	 *
+	 * @param body is the identifier of the body.
+	 */
+	public synchronized void expect(UUID body) {
+		if (!this.sealed) {
+			this.expected.add(body);
+		}
+	}
+
+	/** Indicates that all the expected bodies are known.
+	 *
+	 * @return <code>true</code> if this call completes the step.
+	 */
+	public synchronized boolean seal() {
+		if (this.complete) {
+			return false;
+		}
+		this.sealed = true;
+		return checkCompletion();
+	}
+
+	/** Notify the synchronization of a body.
+	 *
+	 * @param time is the simulation time given by the body.
+	 * @param body is the identifier of the body, or <code>null</code> if unknown.
+	 * @return <code>true</code> if this call completes the step.
+	 */
+	public synchronized boolean arrive(float time, UUID body) {
+		if (this.complete || time < this.stepTime || body == null
+			|| !this.expected.contains(body) || !this.arrived.add(body)) {
+			return false;
+		}
+		return checkCompletion();
+	}
+
+	/** Notify that a body will not synchronize anymore.
+	 *
+	 * @param body is the identifier of the body.
+	 * @return <code>true</code> if this call completes the step.
+	 */
+	public synchronized boolean remove(UUID body) {
+		if (this.complete) {
+			return false;
+		}
+		if (this.sealed) {
+			if (this.expected.remove(body)) {
+				this.arrived.remove(body);
+				return checkCompletion();
+			}
+		} else {
+			this.expected.remove(body);
+			this.arrived.remove(body);
+		}
+		return false;
+	}
+
+	/** Complete the step at the given time, whatever the bodies which
+	 * have not synchronized.
+	 *
+	 * @param time is the simulation time of the step.
+	 * @return <code>true</code> if this call completes the step, <code>false</code>
+	 * if the step was already completed.
+	 */
+	public synchronized boolean close(float time) {
+		if (this.complete || time != this.stepTime) {
+			return false;
+		}
+		this.complete = true;
+		return true;
+	}
+
+	/** Replies the simulation time of the current step.
+	 *
+	 * @return the time of the current step.
+	 */
+	public synchronized float getStepTime() {
+		return this.stepTime;
+	}
+
+	/** Replies if the current step is completed.
+	 *
+	 * @return <code>true</code> if the step is completed.
+	 */
+	public synchronized boolean isComplete() {
+		return this.complete;
+	}
+
+	/** Replies the bodies which have not synchronized in the current step.
+	 * After a step completed by {@link #close(float)}, the late bodies
+	 * of this step are replied until the next step is opened.
+	 *
+	 * @return the identifiers of the late bodies.
+	 */
+	public synchronized Collection<UUID> getLateBodies() {
+		if (this.arrived.size() == this.expected.size()) {
+			return Collections.emptyList();
+		}
+		Collection<UUID> late = new ArrayList<>();
+		for (UUID body : this.expected) {
+			if (!this.arrived.contains(body)) {
+				late.add(body);
+			}
+		}
+		return late;
+	}
+
+	private boolean checkCompletion() {
+		if (this.sealed && this.arrived.size() >= this.expected.size()) {
+			this.complete = true;
+			return true;
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.util;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/** Compact binary reader for the Jaak objects which are sent over the network.
+ * <p>
+ * This reader is used from the <code>readObject</code> functions of the
+ * serializable objects, for reading the data written by a {@link CompactOutput}.
+ * <p>
+ * The table of the shared values belongs to the reader, as for the writer.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see CompactOutput
+ */
+public final class CompactInput {
+
+	private final ObjectInput input;
+
+	private List<Object> interned;
+
+	/**
+	 * @param input - the stream to read from.
+	 */
+	public CompactInput(ObjectInput input) {
+		assert (input != null);
+		this.input = input;
+	}
+
+	/** Replies the underlying stream.
+	 *
+	 * @return the stream.
+	 */
+	public ObjectInput getInput() {
+		return this.input;
+	}
+
+	/** Read a positive integer with a variable length.
+	 *
+	 * @return the value.
+	 * @throws IOException
+	 * @see CompactOutput#writeVarInt(int)
+	 */
+	public int readVarInt() throws IOException {
+		int value = 0;
+		int b;
+		for (int shift = 0; shift < 32; shift += 7) {
+			b = this.input.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new StreamCorruptedException();
+	}
+
+	/** Read a signed integer with a variable length.
+	 *
+	 * @return the value.
+	 * @throws IOException
+	 * @see CompactOutput#writeSignedVarInt(int)
+	 */
+	public int readSignedVarInt() throws IOException {
+		int v = readVarInt();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	/** Read an identifier.
+	 *
+	 * @return the identifier.
+	 * @throws IOException
+	 * @see CompactOutput#writeUUID(UUID)
+	 */
+	public UUID readUUID() throws IOException {
+		long most = this.input.readLong();
+		long least = this.input.readLong();
+		return new UUID(most, least);
+	}
+
+	/** Read a coordinate which was written relatively to the given reference.
+	 *
+	 * @param reference - the reference coordinate, the same as the one given
+	 * to {@link CompactOutput#writeCoordinate(float, float)}.
+	 * @return the coordinate.
+	 * @throws IOException
+	 */
+	public float readCoordinate(float reference) throws IOException {
+		int v = readVarInt();
+		if (v == CompactOutput.RAW_COORDINATE) {
+			return this.input.readFloat();
+		}
+		v >>>= 1;
+		return reference + ((v >>> 1) ^ -(v & 1));
+	}
+
+	/** Read a value which was written with {@link CompactOutput#writeInterned(Object)}.
+	 *
+	 * @return the value, may be <code>null</code>.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public Object readInterned() throws IOException, ClassNotFoundException {
+		int id = readVarInt();
+		if (id == CompactOutput.NULL_VALUE) {
+			return null;
+		}
+		if (this.interned == null) {
+			this.interned = new ArrayList<>();
+		}
+		if (id == CompactOutput.NEW_VALUE) {
+			Object value = this.input.readObject();
+			this.interned.add(value);
+			return value;
+		}
+		id -= 2;
+		if (id < 0 || id >= this.interned.size()) {
+			throw new StreamCorruptedException();
+		}
+		return this.interned.get(id);
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.util;
+
+import java.io.IOException;
+import java.io.ObjectOutput;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/** Compact binary writer for the Jaak objects which are sent over the network.
+ * <p>
+ * This writer is used from the <code>writeObject</code> functions of the
+ * serializable objects. The integers are written as variable-length
+ * integers, the coordinates are written as deltas from a reference
+ * coordinate, and the values which are shared by several records
+ * (semantics, types...) are written once and then referenced by an identifier.
+ * The data must be read with a {@link CompactInput}.
+ * <p>
+ * The table of the shared values belongs to the writer: the top-level
+ * writer, e.g. a body or a frame of the journal, creates its own
+ * {@link CompactOutput} and the table is dropped with it. The matching
+ * reader must be created at the same place.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see CompactInput
+ */
+public final class CompactOutput {
+
+	/** Marker of the <code>null</code> value in the interned values.
+	 */
+	static final int NULL_VALUE = 0;
+
+	/** Marker of a value which is written for the first time.
+	 */
+	static final int NEW_VALUE = 1;
+
+	/** Marker of a coordinate which is not written as an integer delta.
+	 */
+	static final int RAW_COORDINATE = 1;
+
+	private final ObjectOutput output;
+
+	private Map<Object, Integer> interned;
+
+	/**
+	 * @param output - the stream to write into.
+	 */
+	public CompactOutput(ObjectOutput output) {
+		assert (output != null);
+		this.output = output;
+	}
+
+	/** Replies the underlying stream.
+	 *
+	 * @return the stream.
+	 */
+	public ObjectOutput getOutput() {
+		return this.output;
+	}
+
+	/** Write a positive integer with a variable length,
+	 * from 1 byte for the values lower than 128 to 5 bytes.
+	 *
+	 * @param value - the value to write.
+	 * @throws IOException
+	 */
+	public void writeVarInt(int value) throws IOException {
+		int v = value;
+		while ((v & ~0x7F) != 0) {
+			this.output.writeByte((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		this.output.writeByte(v);
+	}
+
+	/** Write a signed integer with a variable length. The values
+	 * near zero, positive or negative, are using the smallest number of bytes.
+	 *
+	 * @param value - the value to write.
+	 * @throws IOException
+	 */
+	public void writeSignedVarInt(int value) throws IOException {
+		writeVarInt((value << 1) ^ (value >> 31));
+	}
+
+	/** Write an identifier.
+	 *
+	 * @param id - the identifier to write.
+	 * @throws IOException
+	 */
+	public void writeUUID(UUID id) throws IOException {
+		this.output.writeLong(id.getMostSignificantBits());
+		this.output.writeLong(id.getLeastSignificantBits());
+	}
+
+	/** Write a coordinate relatively to a reference coordinate.
+	 * When the coordinate is at an integer distance from the reference,
+	 * as for the cells of the grid, the distance is written as a
+	 * variable-length integer. Otherwise the coordinate is written
+	 * as a float.
+	 *
+	 * @param reference - the reference coordinate, that must be given
+	 * to {@link CompactInput#readCoordinate(float)}.
+	 * @param value - the coordinate to write.
+	 * @throws IOException
+	 */
+	public void writeCoordinate(float reference, float value) throws IOException {
+		float delta = value - reference;
+		if (Math.abs(delta) < (1 << 29)) {
+			int d = (int) delta;
+			if (d == delta && Float.floatToIntBits(reference + d) == Float.floatToIntBits(value)) {
+				writeVarInt(((d << 1) ^ (d >> 31)) << 1);
+				return;
+			}
+		}
+		writeVarInt(RAW_COORDINATE);
+		this.output.writeFloat(value);
+	}
+
+	/** Write a value which is expected to be shared by several records
+	 * written by this writer. The value is written the first time it is
+	 * given; then only its identifier is written.
+	 * The values are compared with the <code>==</code> operator.
+	 *
+	 * @param value - the value to write, may be <code>null</code>.
+	 * @throws IOException
+	 */
+	public void writeInterned(Object value) throws IOException {
+		if (value == null) {
+			writeVarInt(NULL_VALUE);
+		} else {
+			if (this.interned == null) {
+				this.interned = new IdentityHashMap<>();
+			}
+			Integer id = this.interned.get(value);
+			if (id == null) {
+				this.interned.put(value, this.interned.size());
+				writeVarInt(NEW_VALUE);
+				this.output.writeObject(value);
+			} else {
+				writeVarInt(id.intValue() + 2);
+			}
+		}
+	}
+
+}
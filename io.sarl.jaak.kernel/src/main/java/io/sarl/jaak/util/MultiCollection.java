@@ -19,6 +19,10 @@
  */
 package io.sarl.jaak.util;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -31,6 +35,9 @@ import java.util.NoSuchElementException;
  * This collection is not thread-safe.
  * <p>
  * This collection is read-only.
+ * <p>
+ * When this collection is serialized, the elements of the collections
+ * are written in a row, and they are read in a single collection.
  *
  * FIXME: Replace by the AFC or Guava equivalent.
  *
@@ -41,9 +48,11 @@ import java.util.NoSuchElementException;
  * @mavenartifactid $ArtifactId$
  */
 public class MultiCollection<E>
-implements Collection<E> {
+implements Collection<E>, Serializable {
+
+	private static final long serialVersionUID = -2792402963574155264L;
 
-	private final List<Collection<? extends E>> collections = new ArrayList<>();
+	private transient List<Collection<? extends E>> collections = new ArrayList<>();
 
 	/**
 	 */
@@ -51,6 +60,26 @@ implements Collection<E> {
 		//
 	}
 
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		stream.defaultWriteObject();
+		new CompactOutput(stream).writeVarInt(size());
+		for (E element : this) {
+			stream.writeObject(element);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+		int size = new CompactInput(stream).readVarInt();
+		List<E> elements = new ArrayList<>(size);
+		for (int i = 0; i < size; ++i) {
+			elements.add((E) stream.readObject());
+		}
+		this.collections = new ArrayList<>();
+		addCollection(elements);
+	}
+
 	/** Add a collection inside this multicollection.
 	 *
 	 * @param collection - the collection to add.
@@ -19,24 +19,108 @@
  */
 package io.sarl.jaak.util;
 
-import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Central random number generator.
+ * <p>
+ * All the random streams are derived from a master seed. The streams
+ * replied by {@link #getStream(UUID)} and {@link #getStream(String, long)}
+ * depend only on the master seed and on their key: one stream per turtle,
+ * per spawner or per engine phase gives bit-reproducible runs, even when
+ * the agents are executed in parallel.
+ * <p>
+ * The static <code>nextXXX</code> functions are using one stream
+ * per thread. They are not contending, but their values depend on
+ * the scheduling of the threads.
  *
  * @author $Author: sgalland$
  * @version $FullVersion$
  * @mavengroupid $GroupId$
  * @mavenartifactid $ArtifactId$
+ * @see RandomStream
  */
 public final class RandomNumber {
 
-	private static final Random RANDOM = new Random();
+	private static final long NAME_OFFSET = 0xcbf29ce484222325L;
+
+	private static final long NAME_PRIME = 0x100000001b3L;
+
+	private static volatile long masterSeed = RandomStream.mix64(System.nanoTime());
+
+	private static final AtomicLong THREAD_COUNT = new AtomicLong();
+
+	private static final ThreadLocal<ThreadStream> STREAMS = new ThreadLocal<>();
 
 	private RandomNumber() {
 		//
 	}
 
+	/** Change the master seed. The streams which are created after
+	 * this call are derived from the given seed.
+	 *
+	 * @param seed - the master seed.
+	 */
+	public static void setSeed(long seed) {
+		masterSeed = seed;
+	}
+
+	/** Replies the master seed.
+	 *
+	 * @return the master seed.
+	 */
+	public static long getSeed() {
+		return masterSeed;
+	}
+
+	/** Replies a new random stream dedicated to the given turtle.
+	 *
+	 * @param turtle - the identifier of the turtle.
+	 * @return the stream.
+	 */
+	public static RandomStream getStream(UUID turtle) {
+		long seed = RandomStream.mix64(masterSeed ^ turtle.getMostSignificantBits());
+		return new RandomStream(RandomStream.mix64(seed ^ turtle.getLeastSignificantBits()));
+	}
+
+	/** Replies a new random stream dedicated to the given component,
+	 * e.g. an engine phase.
+	 *
+	 * @param name - the name of the component.
+	 * @return the stream.
+	 */
+	public static RandomStream getStream(String name) {
+		return getStream(name, 0);
+	}
+
+	/** Replies a new random stream dedicated to the given instance
+	 * of a component, e.g. a spawner.
+	 *
+	 * @param name - the name of the component.
+	 * @param index - the index of the instance of the component.
+	 * @return the stream.
+	 */
+	public static RandomStream getStream(String name, long index) {
+		long hash = NAME_OFFSET;
+		for (int i = 0; i < name.length(); ++i) {
+			hash = (hash ^ name.charAt(i)) * NAME_PRIME;
+		}
+		long seed = RandomStream.mix64(masterSeed ^ hash);
+		return new RandomStream(RandomStream.mix64(seed ^ index));
+	}
+
+	private static RandomStream getThreadStream() {
+		ThreadStream stream = STREAMS.get();
+		long seed = masterSeed;
+		if (stream == null || stream.masterSeed != seed) {
+			stream = new ThreadStream(seed,
+					getStream(Thread.class.getName(), THREAD_COUNT.getAndIncrement()));
+			STREAMS.set(stream);
+		}
+		return stream.stream;
+	}
+
 	/** Replies the next randomly selected integer number.
 	 * All 2<sup>32</sup> possible int values are produced with
 	 * (approximately) equal probability.
@@ -44,7 +128,7 @@ public final class RandomNumber {
 	 * @return a random integer.
 	 */
 	public static int nextInt() {
-		return RANDOM.nextInt();
+		return getThreadStream().nextInt();
 	}
 
 	/** Replies the next randomly selected integer number between
@@ -56,7 +140,7 @@ public final class RandomNumber {
 	 * @return a random integer.
 	 */
 	public static int nextInt(int n) {
-		return RANDOM.nextInt(n);
+		return getThreadStream().nextInt(n);
 	}
 
 	/** Replies the next randomly selected floating-point number between
@@ -67,7 +151,7 @@ public final class RandomNumber {
 	 * @return a random float.
 	 */
 	public static float nextFloat() {
-		return RANDOM.nextFloat();
+		return getThreadStream().nextFloat();
 	}
 
 	/** Replies the next randomly selected floating-point number between
@@ -78,7 +162,7 @@ public final class RandomNumber {
 	 * @return a random float.
 	 */
 	public static double nextDouble() {
-		return RANDOM.nextDouble();
+		return getThreadStream().nextDouble();
 	}
 
 	/** Replies the next randomly selected boolean value.
@@ -88,7 +172,35 @@ public final class RandomNumber {
 	 * @return a random integer.
 	 */
 	public static boolean nextBoolean() {
-		return RANDOM.nextBoolean();
+		return getThreadStream().nextBoolean();
+	}
+
+	/** Random stream of a thread.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ThreadStream {
+
+		/** Master seed from which the stream was derived.
+		 */
+		final long masterSeed;
+
+		/** The stream.
+		 */
+		final RandomStream stream;
+
+		/**
+		 * @param masterSeed
+		 * @param stream
+		 */
+		public ThreadStream(long masterSeed, RandomStream stream) {
+			this.masterSeed = masterSeed;
+			this.stream = stream;
+		}
+
 	}
 
 }
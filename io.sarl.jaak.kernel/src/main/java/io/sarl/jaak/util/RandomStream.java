@@ -0,0 +1,142 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.util;
+
+/**
+ * Stream of pseudo-random numbers.
+ * <p>
+ * The stream is based on the SplitMix64 generator: its state is a single
+ * <code>long</code>, and {@link #split()} is creating a statistically
+ * independent stream. A stream is not thread-safe, and it is not shared:
+ * each agent, spawner or engine phase is using its own stream,
+ * which is obtained from {@link RandomNumber}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see RandomNumber
+ */
+public final class RandomStream {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private static final float FLOAT_UNIT = 0x1.0p-24f;
+
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+	private long seed;
+
+	/**
+	 * @param seed - the seed of the stream.
+	 */
+	public RandomStream(long seed) {
+		this.seed = seed;
+	}
+
+	/** Mix the bits of the given value.
+	 *
+	 * @param value - the value to mix.
+	 * @return the mixed value.
+	 */
+	static long mix64(long value) {
+		long z = value;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/** Replies a new stream which is independent of this stream.
+	 * This stream is advanced by one step.
+	 *
+	 * @return the new stream.
+	 */
+	public RandomStream split() {
+		return new RandomStream(mix64(nextLong()));
+	}
+
+	/** Replies the next randomly selected long number.
+	 *
+	 * @return a random long.
+	 */
+	public long nextLong() {
+		this.seed += GOLDEN_GAMMA;
+		return mix64(this.seed);
+	}
+
+	/** Replies the next randomly selected integer number.
+	 * All 2<sup>32</sup> possible int values are produced with
+	 * (approximately) equal probability.
+	 *
+	 * @return a random integer.
+	 */
+	public int nextInt() {
+		return (int) (nextLong() >>> 32);
+	}
+
+	/** Replies the next randomly selected integer number between
+	 * 0 (inclusive) and n (exclusive).
+	 * All n possible int values are produced with equal probability.
+	 *
+	 * @param n - the maximal value for the random integer.
+	 * @return a random integer.
+	 */
+	public int nextInt(int n) {
+		if (n <= 0) {
+			throw new IllegalArgumentException();
+		}
+		int r = nextInt() >>> 1;
+		int m = n - 1;
+		if ((n & m) == 0) {
+			return (int) ((n * (long) r) >> 31);
+		}
+		for (int u = r; u - (r = u % n) + m < 0; u = nextInt() >>> 1) {
+			//
+		}
+		return r;
+	}
+
+	/** Replies the next randomly selected floating-point number between
+	 * 0 (inclusive) and 1 (exclusive).
+	 *
+	 * @return a random float.
+	 */
+	public float nextFloat() {
+		return (nextLong() >>> 40) * FLOAT_UNIT;
+	}
+
+	/** Replies the next randomly selected floating-point number between
+	 * 0 (inclusive) and 1 (exclusive).
+	 *
+	 * @return a random double.
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	/** Replies the next randomly selected boolean value.
+	 *
+	 * @return a random boolean.
+	 */
+	public boolean nextBoolean() {
+		return nextLong() < 0;
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.external.influence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import io.sarl.jaak.environment.external.body.TurtleObject;
+import io.sarl.jaak.environment.external.perception.EnvironmentalObject;
+import io.sarl.jaak.environment.external.perception.Obstacle;
+import io.sarl.jaak.environment.external.perception.StandardObjectManipulator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.UUID;
+
+import org.arakhne.afc.math.continous.object2d.Vector2f;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests of the serialization of the influences.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class InfluenceTest {
+
+	private UUID id;
+
+	private TurtleObject emitter;
+
+	private Obstacle obstacle;
+
+	/**
+	 */
+	@Before
+	public void setUp() {
+		this.id = UUID.randomUUID();
+		this.emitter = mock(TurtleObject.class);
+		when(this.emitter.getTurtleId()).thenReturn(this.id);
+		this.obstacle = new Obstacle();
+		new StandardObjectManipulator().setPosition(this.obstacle, 4, 5);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Influence> T copy(T influence) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(buffer)) {
+			stream.writeObject(influence);
+		}
+		try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+			return (T) stream.readObject();
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@Test
+	public void emitter() throws IOException, ClassNotFoundException {
+		PickUpInfluence influence = copy(new PickUpInfluence(this.emitter, this.obstacle));
+		assertNull(influence.getEmitter());
+		assertEquals(this.id, influence.getEmitterId());
+		influence.setEmitter(this.emitter);
+		assertSame(this.emitter, influence.getEmitter());
+		assertEquals(this.id, influence.getEmitterId());
+	}
+
+	/**
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@Test
+	public void noEmitter() throws IOException, ClassNotFoundException {
+		SemanticChangeInfluence influence = copy(new SemanticChangeInfluence("ANT")); //$NON-NLS-1$
+		assertNull(influence.getEmitterId());
+		assertEquals("ANT", influence.getSemantic()); //$NON-NLS-1$
+	}
+
+	/**
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@Test
+	public void motion() throws IOException, ClassNotFoundException {
+		MotionInfluence influence = copy(new MotionInfluence(this.emitter, new Vector2f(1f, -2f), .5f));
+		assertEquals(this.id, influence.getEmitterId());
+		assertEquals(1f, influence.getLinearMotionX(), 0f);
+		assertEquals(-2f, influence.getLinearMotionY(), 0f);
+		assertEquals(.5f, influence.getAngularMotion(), 0f);
+		// The moved object is the emitter, which is not serialized
+		assertNull(influence.getMovedObject());
+		influence.setEmitter(this.emitter);
+		assertSame(this.emitter, influence.getMovedObject());
+	}
+
+	/**
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@Test
+	public void objectMotion() throws IOException, ClassNotFoundException {
+		MotionInfluence influence = copy(new MotionInfluence(null, this.obstacle, new Vector2f(3f, 0f)));
+		assertTrue(influence.getMovedObject() instanceof Obstacle);
+		EnvironmentalObject object = (EnvironmentalObject) influence.getMovedObject();
+		assertEquals(4f, object.getPosition().getX(), 0f);
+		assertEquals(5f, object.getPosition().getY(), 0f);
+		assertEquals(3f, influence.getLinearMotionX(), 0f);
+	}
+
+	/**
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@Test
+	public void dropDown() throws IOException, ClassNotFoundException {
+		DropDownInfluence influence = copy(new DropDownInfluence(this.emitter, this.obstacle));
+		assertEquals(this.id, influence.getEmitterId());
+		assertEquals(Obstacle.OBSTACLE_SEMANTIC, influence.getDropOffObject().getSemantic());
+		assertEquals(4f, influence.getDropOffObject().getPosition().getX(), 0f);
+		assertEquals(5f, influence.getDropOffObject().getPosition().getY(), 0f);
+	}
+
+}
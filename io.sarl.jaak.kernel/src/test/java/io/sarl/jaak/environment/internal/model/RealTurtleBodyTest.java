@@ -0,0 +1,202 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import io.sarl.jaak.environment.external.perception.EnvironmentalObject;
+import io.sarl.jaak.environment.external.perception.FloatSubstance;
+import io.sarl.jaak.environment.external.perception.Obstacle;
+import io.sarl.jaak.environment.external.perception.PerceivedTurtle;
+import io.sarl.jaak.environment.external.perception.StandardObjectManipulator;
+import io.sarl.jaak.environment.external.perception.Substance;
+import io.sarl.jaak.util.MultiCollection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.UUID;
+
+import org.arakhne.afc.math.continous.object2d.Point2f;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests of the serialization of {@link RealTurtleBody}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class RealTurtleBodyTest {
+
+	private static final String SEMANTIC = "ANT"; //$NON-NLS-1$
+
+	private static final String FOOD = "FOOD"; //$NON-NLS-1$
+
+	private StandardObjectManipulator manipulator;
+
+	private RealTurtleBody body1;
+
+	private RealTurtleBody body2;
+
+	/**
+	 */
+	@Before
+	public void setUp() {
+		this.manipulator = new StandardObjectManipulator();
+		this.body1 = createBody(10, 20, new Point2f(12f, 19f), 11, 20);
+		this.body2 = createBody(30, 40, new Point2f(29.5f, 40f), 30, 41);
+	}
+
+	private RealTurtleBody createBody(int x, int y, Point2f perceived, int objectX, int objectY) {
+		RealTurtleBody body = new RealTurtleBody(UUID.randomUUID(), null, 0f, SEMANTIC);
+		body.setPhysicalState(x, y, 0f, 1f);
+		PerceivedTurtle turtle = new PerceivedTurtle(UUID.randomUUID(),
+				new Point2f(x, y), perceived, 2f, .5f, SEMANTIC);
+		Obstacle obstacle = new Obstacle();
+		this.manipulator.setPosition(obstacle, objectX, objectY);
+		Food food = new Food(6f);
+		this.manipulator.setPosition(food, x, y);
+		MultiCollection<EnvironmentalObject> objects = new MultiCollection<>();
+		objects.addCollection(Collections.singleton(obstacle));
+		objects.addCollection(Collections.singleton(food));
+		body.setPerceptions(Arrays.asList(turtle), objects);
+		return body;
+	}
+
+	private static void assertPosition(float x, float y, Point2f position) {
+		assertEquals(x, position.getX(), 0f);
+		assertEquals(y, position.getY(), 0f);
+	}
+
+	private static void assertBody(RealTurtleBody expected, RealTurtleBody actual) {
+		assertEquals(expected.getTurtleId(), actual.getTurtleId());
+		assertEquals(expected.getX(), actual.getX(), 0f);
+		assertEquals(expected.getY(), actual.getY(), 0f);
+		assertEquals(SEMANTIC, actual.getSemantic());
+
+		assertEquals(1, actual.getPerceivedTurtles().size());
+		PerceivedTurtle e = expected.getPerceivedTurtles().iterator().next();
+		PerceivedTurtle a = actual.getPerceivedTurtles().iterator().next();
+		assertEquals(e.getIdentity(), a.getIdentity());
+		assertPosition(e.getPosition().getX(), e.getPosition().getY(), a.getPosition());
+		assertEquals(e.getSpeed(), a.getSpeed(), 0f);
+		assertEquals(e.getHeadingAngle(), a.getHeadingAngle(), 0f);
+		assertEquals(SEMANTIC, a.getSemantic());
+
+		assertEquals(2, actual.getPerceivedObjects().size());
+		Iterator<EnvironmentalObject> ei = expected.getPerceivedObjects().iterator();
+		Iterator<EnvironmentalObject> ai = actual.getPerceivedObjects().iterator();
+		EnvironmentalObject eo;
+		EnvironmentalObject ao;
+		while (ei.hasNext()) {
+			eo = ei.next();
+			ao = ai.next();
+			assertSame(eo.getClass(), ao.getClass());
+			assertPosition(eo.getPosition().getX(), eo.getPosition().getY(), ao.getPosition());
+			assertEquals(eo.getSemantic(), ao.getSemantic());
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@Test
+	public void serialization() throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(buffer)) {
+			stream.writeObject(this.body1);
+			stream.writeObject(this.body2);
+		}
+		RealTurtleBody copy1;
+		RealTurtleBody copy2;
+		try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+			copy1 = (RealTurtleBody) stream.readObject();
+			copy2 = (RealTurtleBody) stream.readObject();
+		}
+		assertBody(this.body1, copy1);
+		assertBody(this.body2, copy2);
+		// The semantics are written once for the stream
+		assertSame(copy1.getPerceivedTurtles().iterator().next().getSemantic(),
+				copy2.getPerceivedTurtles().iterator().next().getSemantic());
+		Iterator<EnvironmentalObject> objects = copy2.getPerceivedObjects().iterator();
+		objects.next();
+		EnvironmentalObject food = objects.next();
+		assertTrue(food instanceof Food);
+		assertEquals(6f, ((Food) food).floatValue(), 0f);
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	@Test
+	public void perceivedTurtlesRelativeToBody() throws IOException {
+		ByteArrayOutputStream buffer1 = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(buffer1)) {
+			stream.writeObject(this.body1);
+		}
+		RealTurtleBody far = createBody(30000, 40000, new Point2f(30002f, 39999f), 11, 20);
+		far.setPerceptions(far.getPerceivedTurtles(), this.body1.getPerceivedObjects());
+		ByteArrayOutputStream buffer2 = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(buffer2)) {
+			stream.writeObject(far);
+		}
+		// Only the position of the body depends on its distance to the origin
+		assertEquals(buffer1.size(), buffer2.size());
+	}
+
+	/**
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class Food extends FloatSubstance {
+
+		private static final long serialVersionUID = 2843157794358815291L;
+
+		/**
+		 * @param amount - the amount of food.
+		 */
+		public Food(float amount) {
+			super(amount, FOOD);
+		}
+
+		@Override
+		protected Substance increment(Substance s) {
+			return null;
+		}
+
+		@Override
+		protected Substance decrement(Substance s) {
+			return null;
+		}
+
+	}
+
+}
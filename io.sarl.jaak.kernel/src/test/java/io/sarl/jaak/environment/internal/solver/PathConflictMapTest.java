@@ -0,0 +1,331 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.arakhne.afc.math.continous.object2d.Point2f;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests of {@link PathConflictMap}.
+ * <p>
+ * The conflicts are compared to the ones computed with a map
+ * of linked path elements, as the path-based solver was doing
+ * before the map was introduced.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class PathConflictMapTest {
+
+	private static final int NONE = PathConflictMap.NONE;
+
+	private PathConflictMap map;
+
+	/**
+	 */
+	@Before
+	public void setUp() {
+		this.map = new PathConflictMap();
+	}
+
+	/**
+	 */
+	@Test
+	public void distinctCellsNotInConflict() {
+		// Same bits in the other coordinate, and negative coordinates
+		int e1 = this.map.addElement(0, 1, NONE);
+		int e2 = this.map.addElement(1, 0, NONE);
+		int e3 = this.map.addElement(-1, 0, NONE);
+		int e4 = this.map.addElement(0, -1, NONE);
+		int e5 = this.map.addElement(-1, -1, NONE);
+		assertEquals(5, this.map.size());
+		assertFalse(this.map.isInConflict(e1));
+		assertFalse(this.map.isInConflict(e2));
+		assertFalse(this.map.isInConflict(e3));
+		assertFalse(this.map.isInConflict(e4));
+		assertFalse(this.map.isInConflict(e5));
+		assertEquals(-1, this.map.getX(e5));
+		assertEquals(-1, this.map.getY(e5));
+	}
+
+	/**
+	 */
+	@Test
+	public void collisionInCell() {
+		int e1 = this.map.addElement(3, 4, NONE);
+		assertFalse(this.map.isInConflict(e1));
+		int e2 = this.map.addElement(3, 4, NONE);
+		assertTrue(this.map.isInConflict(e1));
+		assertTrue(this.map.isInConflict(e2));
+		int e3 = this.map.addElement(3, 4, NONE);
+		assertTrue(this.map.isInConflict(e3));
+		int e4 = this.map.addElement(4, 3, NONE);
+		assertFalse(this.map.isInConflict(e4));
+	}
+
+	/**
+	 */
+	@Test
+	public void pathLinks() {
+		int e1 = this.map.addElement(0, 0, NONE);
+		int e2 = this.map.addElement(1, 0, e1);
+		int e3 = this.map.addElement(2, 1, e2);
+		assertEquals(e2, this.map.getNext(e1));
+		assertEquals(e3, this.map.getNext(e2));
+		assertEquals(NONE, this.map.getNext(e3));
+	}
+
+	/**
+	 */
+	@Test
+	public void unmarkCellWithTwoElements() {
+		int e1 = this.map.addElement(5, 5, NONE);
+		int e2 = this.map.addElement(5, 5, NONE);
+		this.map.unmarkConflicts(e2);
+		assertFalse(this.map.isInConflict(e1));
+		assertFalse(this.map.isInConflict(e2));
+	}
+
+	/**
+	 */
+	@Test
+	public void unmarkCellWithThreeElements() {
+		int e1 = this.map.addElement(5, 5, NONE);
+		int e2 = this.map.addElement(5, 5, NONE);
+		int e3 = this.map.addElement(5, 5, NONE);
+		this.map.unmarkConflicts(e3);
+		assertTrue(this.map.isInConflict(e1));
+		assertTrue(this.map.isInConflict(e2));
+		assertFalse(this.map.isInConflict(e3));
+		// Two elements are remaining in the cell
+		this.map.unmarkConflicts(e1);
+		assertFalse(this.map.isInConflict(e1));
+		assertFalse(this.map.isInConflict(e2));
+	}
+
+	/**
+	 */
+	@Test
+	public void growth() {
+		int size = 200;
+		int previous = NONE;
+		int first = NONE;
+		for (int y = -size / 2; y < size / 2; ++y) {
+			for (int x = -size / 2; x < size / 2; ++x) {
+				previous = this.map.addElement(x, y, previous);
+				if (first == NONE) {
+					first = previous;
+				}
+			}
+		}
+		assertEquals(size * size, this.map.size());
+		int element = first;
+		for (int y = -size / 2; y < size / 2; ++y) {
+			for (int x = -size / 2; x < size / 2; ++x) {
+				assertEquals(x, this.map.getX(element));
+				assertEquals(y, this.map.getY(element));
+				assertFalse(this.map.isInConflict(element));
+				element = this.map.getNext(element);
+			}
+		}
+		assertEquals(NONE, element);
+		// All the cells are found after the growth of the table
+		for (int y = -size / 2; y < size / 2; ++y) {
+			for (int x = -size / 2; x < size / 2; ++x) {
+				assertTrue(this.map.isInConflict(this.map.addElement(x, y, NONE)));
+			}
+		}
+	}
+
+	/**
+	 */
+	@Test
+	public void reuseAcrossSteps() {
+		for (int step = 0; step < 1000; ++step) {
+			this.map.clear();
+			assertEquals(0, this.map.size());
+			// Growing the table on some steps only
+			int count = (step % 10 == 0) ? 500 : 10;
+			for (int i = 0; i < count; ++i) {
+				assertFalse(this.map.isInConflict(this.map.addElement(i, step, NONE)));
+			}
+			assertTrue(this.map.isInConflict(this.map.addElement(0, step, NONE)));
+			assertEquals(count + 1, this.map.size());
+		}
+	}
+
+	/**
+	 */
+	@Test
+	public void sameAsTreeMap() {
+		Random random = new Random(5);
+		for (int step = 0; step < 300; ++step) {
+			this.map.clear();
+			Map<Point2f, List<ReferenceElement>> cells = new TreeMap<>(ReferenceElement.POINT_COMPARATOR);
+			int pathCount = 1 + random.nextInt(400);
+			int gridSize = 5 + random.nextInt(30);
+			List<ReferenceElement> referencePaths = new ArrayList<>(pathCount);
+			int[] paths = new int[pathCount];
+			for (int i = 0; i < pathCount; ++i) {
+				int length = 1 + random.nextInt(6);
+				int x = random.nextInt(gridSize);
+				int y = random.nextInt(gridSize);
+				ReferenceElement previousReference = null;
+				int previous = NONE;
+				for (int k = 0; k < length; ++k) {
+					ReferenceElement reference = new ReferenceElement(new Point2f(x, y));
+					if (previousReference == null) {
+						referencePaths.add(reference);
+					} else {
+						previousReference.next = reference;
+					}
+					List<ReferenceElement> list = cells.get(reference.position);
+					if (list == null) {
+						list = new LinkedList<>();
+						cells.put(reference.position, list);
+					} else {
+						if (list.size() == 1) {
+							list.get(0).inConflict = true;
+						}
+						reference.inConflict = true;
+					}
+					list.add(reference);
+					previousReference = reference;
+
+					int element = this.map.addElement(x, y, previous);
+					if (previous == NONE) {
+						paths[i] = element;
+					}
+					previous = element;
+
+					x += random.nextInt(3) - 1;
+					y += random.nextInt(3) - 1;
+				}
+			}
+			for (int i = 0; i < pathCount; ++i) {
+				ReferenceElement expected = ReferenceElement.getLastTraversableElementInPath(
+						cells, referencePaths.get(i));
+				int actual = PathBasedInfluenceSolver.getLastTraversableElementInPath(this.map, paths[i]);
+				if (expected == null) {
+					assertEquals(NONE, actual);
+				} else {
+					assertTrue(actual != NONE);
+					assertEquals(expected.position.x(), this.map.getX(actual));
+					assertEquals(expected.position.y(), this.map.getY(actual));
+				}
+			}
+		}
+	}
+
+	/** Element of a path stored in a map of points, as the path-based
+	 * solver was storing them.
+	 *
+	 * @author $Author: sgalland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ReferenceElement {
+
+		static final Comparator<Point2f> POINT_COMPARATOR = new Comparator<Point2f>() {
+			@Override
+			public int compare(Point2f o1, Point2f o2) {
+				int cmp = o1.x() - o2.x();
+				if (cmp != 0) {
+					return cmp;
+				}
+				return o1.y() - o2.y();
+			}
+		};
+
+		final Point2f position;
+		ReferenceElement next;
+		boolean inConflict;
+
+		/**
+		 * @param position
+		 */
+		public ReferenceElement(Point2f position) {
+			this.position = position;
+		}
+
+		private static void unmarkConflicts(Map<Point2f, List<ReferenceElement>> cells, ReferenceElement element) {
+			ReferenceElement current = element;
+			List<ReferenceElement> list;
+			while (current != null) {
+				if (current.inConflict) {
+					list = cells.get(current.position);
+					if (list != null) {
+						if (list.size() <= 2) {
+							for (ReferenceElement e : list) {
+								e.inConflict = false;
+							}
+						} else {
+							current.inConflict = false;
+							list.remove(current);
+						}
+					}
+				}
+				current = current.next;
+			}
+		}
+
+		public static ReferenceElement getLastTraversableElementInPath(
+				Map<Point2f, List<ReferenceElement>> cells, ReferenceElement firstElement) {
+			ReferenceElement lastTraversable = null;
+			ReferenceElement current = firstElement;
+			while (current != null && !current.inConflict) {
+				lastTraversable = current;
+				current = current.next;
+			}
+			if (lastTraversable != null && lastTraversable.next != null) {
+				unmarkConflicts(cells, lastTraversable.next);
+			}
+			if (lastTraversable == null) {
+				current = firstElement.next;
+				lastTraversable = firstElement;
+				while (current != null && !current.inConflict) {
+					lastTraversable = current;
+					current = current.next;
+				}
+				if (lastTraversable == firstElement) {
+					lastTraversable = null;
+				}
+			}
+			return lastTraversable;
+		}
+
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.environment.internal.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import io.sarl.jaak.environment.external.body.TurtleBody;
+import io.sarl.jaak.environment.external.frustum.TurtleFrustum;
+import io.sarl.jaak.environment.external.influence.MotionInfluenceStatus;
+import io.sarl.jaak.environment.external.perception.Obstacle;
+import io.sarl.jaak.environment.external.time.TimeManager;
+import io.sarl.jaak.environment.internal.model.JaakEnvironment;
+import io.sarl.jaak.environment.internal.model.JaakGridStorage;
+import io.sarl.jaak.environment.internal.model.RealTurtleBody;
+
+import java.io.Serializable;
+import java.util.Random;
+import java.util.UUID;
+
+import org.arakhne.afc.math.continous.object2d.Point2f;
+import org.arakhne.afc.math.continous.object2d.Vector2f;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests of {@link RegionPartitionedInfluenceSolver} against
+ * {@link PathBasedInfluenceSolver}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class RegionPartitionedInfluenceSolverTest {
+
+	private static final int WIDTH = 100;
+
+	private static final int HEIGHT = 70;
+
+	private static final int BODY_COUNT = 1500;
+
+	private static final int OBSTACLE_COUNT = 300;
+
+	private static final int STEP_COUNT = 20;
+
+	private TimeManager timeManager;
+
+	/**
+	 */
+	@Before
+	public void setUp() {
+		this.timeManager = mock(TimeManager.class);
+		when(this.timeManager.getCurrentTime()).thenReturn(1f);
+		when(this.timeManager.getLastStepDuration()).thenReturn(1f);
+	}
+
+	private void assertSameMotions(boolean wrapped) {
+		JaakEnvironment reference = new JaakEnvironment(WIDTH, HEIGHT, this.timeManager, JaakGridStorage.TILES);
+		JaakEnvironment partitioned = new JaakEnvironment(WIDTH, HEIGHT, this.timeManager, JaakGridStorage.TILES);
+		try {
+			reference.setWrapped(wrapped);
+			partitioned.setWrapped(wrapped);
+			reference.setInfluenceSolver(new PathBasedInfluenceSolver());
+			// Small regions, for having many paths crossing the borders
+			partitioned.setInfluenceSolver(new RegionPartitionedInfluenceSolver(3));
+
+			Random random = new Random(1234);
+			int x;
+			int y;
+			for (int i = 0; i < OBSTACLE_COUNT; ++i) {
+				x = random.nextInt(WIDTH);
+				y = random.nextInt(HEIGHT);
+				reference.getActionApplier().putObject(x, y, new Obstacle());
+				partitioned.getActionApplier().putObject(x, y, new Obstacle());
+			}
+
+			RealTurtleBody[] referenceBodies = new RealTurtleBody[BODY_COUNT];
+			RealTurtleBody[] partitionedBodies = new RealTurtleBody[BODY_COUNT];
+			int count = 0;
+			UUID id;
+			Point2f position;
+			TurtleBody body1;
+			TurtleBody body2;
+			for (int i = 0; i < BODY_COUNT; ++i) {
+				id = new UUID(0, i);
+				position = new Point2f(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+				body1 = reference.getTurtleBodyFactory().createTurtleBody(
+						id, position, (Serializable) null, (TurtleFrustum) null);
+				body2 = partitioned.getTurtleBodyFactory().createTurtleBody(
+						id, position, (Serializable) null, (TurtleFrustum) null);
+				assertEquals(body1 == null, body2 == null);
+				if (body1 != null) {
+					referenceBodies[count] = (RealTurtleBody) body1;
+					partitionedBodies[count] = (RealTurtleBody) body2;
+					++count;
+				}
+			}
+
+			Vector2f motion;
+			MotionInfluenceStatus status;
+			for (int step = 0; step < STEP_COUNT; ++step) {
+				for (int i = 0; i < count; ++i) {
+					motion = new Vector2f(random.nextInt(9) - 4, random.nextInt(9) - 4);
+					referenceBodies[i].move(motion, false);
+					partitionedBodies[i].move(motion, false);
+				}
+				reference.runPostTurtles();
+				partitioned.runPostTurtles();
+				for (int i = 0; i < count; ++i) {
+					status = referenceBodies[i].getLastMotionInfluenceStatus();
+					assertNotNull(status);
+					assertEquals(status, partitionedBodies[i].getLastMotionInfluenceStatus());
+					assertEquals(referenceBodies[i].getX(), partitionedBodies[i].getX(), 0f);
+					assertEquals(referenceBodies[i].getY(), partitionedBodies[i].getY(), 0f);
+				}
+			}
+		} finally {
+			reference.close();
+			partitioned.close();
+		}
+	}
+
+	/**
+	 */
+	@Test
+	public void sameMotionsAsPathBased() {
+		assertSameMotions(false);
+	}
+
+	/**
+	 */
+	@Test
+	public void sameMotionsAsPathBasedWrapped() {
+		assertSameMotions(true);
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.kernel.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests of {@link StepBarrier}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class StepBarrierTest {
+
+	private StepBarrier barrier;
+
+	private UUID body1;
+
+	private UUID body2;
+
+	/**
+	 */
+	@Before
+	public void setUp() {
+		this.barrier = new StepBarrier();
+		this.body1 = UUID.randomUUID();
+		this.body2 = UUID.randomUUID();
+		this.barrier.open(1f);
+		this.barrier.expect(this.body1);
+		this.barrier.expect(this.body2);
+	}
+
+	/**
+	 */
+	@Test
+	public void completedByLastArrival() {
+		assertFalse(this.barrier.seal());
+		assertFalse(this.barrier.arrive(1f, this.body1));
+		assertFalse(this.barrier.isComplete());
+		assertTrue(this.barrier.arrive(1f, this.body2));
+		assertTrue(this.barrier.isComplete());
+		assertTrue(this.barrier.getLateBodies().isEmpty());
+	}
+
+	/**
+	 */
+	@Test
+	public void completedBySeal() {
+		assertFalse(this.barrier.arrive(1f, this.body1));
+		assertFalse(this.barrier.arrive(1f, this.body2));
+		assertTrue(this.barrier.seal());
+		assertTrue(this.barrier.isComplete());
+	}
+
+	/**
+	 */
+	@Test
+	public void arrivalWithoutIdIgnored() {
+		this.barrier.seal();
+		assertFalse(this.barrier.arrive(1f, this.body1));
+		assertFalse(this.barrier.arrive(1f, null));
+		assertFalse(this.barrier.arrive(1f, null));
+		assertFalse(this.barrier.isComplete());
+		assertTrue(this.barrier.arrive(1f, this.body2));
+	}
+
+	/**
+	 */
+	@Test
+	public void unexpectedAndDuplicatedArrivalsIgnored() {
+		this.barrier.seal();
+		assertFalse(this.barrier.arrive(1f, UUID.randomUUID()));
+		assertFalse(this.barrier.arrive(1f, this.body1));
+		assertFalse(this.barrier.arrive(1f, this.body1));
+		assertFalse(this.barrier.isComplete());
+		assertTrue(this.barrier.arrive(1f, this.body2));
+	}
+
+	/**
+	 */
+	@Test
+	public void previousStepArrivalIgnored() {
+		this.barrier.seal();
+		assertFalse(this.barrier.arrive(.5f, this.body1));
+		assertFalse(this.barrier.arrive(.5f, this.body2));
+		assertFalse(this.barrier.isComplete());
+		assertEquals(2, this.barrier.getLateBodies().size());
+	}
+
+	/**
+	 */
+	@Test
+	public void completedByRemoval() {
+		this.barrier.seal();
+		assertFalse(this.barrier.arrive(1f, this.body1));
+		assertTrue(this.barrier.remove(this.body2));
+		assertTrue(this.barrier.isComplete());
+		assertFalse(this.barrier.remove(this.body1));
+	}
+
+	/**
+	 */
+	@Test
+	public void removalBeforeSeal() {
+		assertFalse(this.barrier.remove(this.body2));
+		assertFalse(this.barrier.arrive(1f, this.body1));
+		assertTrue(this.barrier.seal());
+	}
+
+	/**
+	 */
+	@Test
+	public void completedOnceByClose() {
+		this.barrier.seal();
+		assertFalse(this.barrier.arrive(1f, this.body1));
+		assertFalse(this.barrier.close(2f));
+		assertTrue(this.barrier.close(1f));
+		assertFalse(this.barrier.close(1f));
+		assertFalse(this.barrier.arrive(1f, this.body2));
+		Collection<UUID> late = this.barrier.getLateBodies();
+		assertEquals(1, late.size());
+		assertTrue(late.contains(this.body2));
+	}
+
+	/**
+	 */
+	@Test
+	public void lateBodiesForgottenByOpen() {
+		this.barrier.seal();
+		this.barrier.close(1f);
+		this.barrier.open(2f);
+		assertTrue(this.barrier.getLateBodies().isEmpty());
+		assertFalse(this.barrier.isComplete());
+		assertEquals(2f, this.barrier.getStepTime(), 0f);
+		assertTrue(this.barrier.seal());
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.UUID;
+
+import org.junit.Test;
+
+/** Tests of {@link CompactOutput} and {@link CompactInput}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class CompactOutputTest {
+
+	private static final int[] VALUES = {
+		0, 1, -1, 63, -64, 64, 127, 128, 300, -300, 16383, 16384,
+		Integer.MAX_VALUE, Integer.MIN_VALUE,
+	};
+
+	private static ObjectInputStream loopback(ByteArrayOutputStream buffer) throws IOException {
+		return new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	@Test
+	public void varInt() throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(buffer)) {
+			CompactOutput output = new CompactOutput(stream);
+			for (int value : VALUES) {
+				output.writeVarInt(value);
+				output.writeSignedVarInt(value);
+			}
+		}
+		try (ObjectInputStream stream = loopback(buffer)) {
+			CompactInput input = new CompactInput(stream);
+			for (int value : VALUES) {
+				assertEquals(value, input.readVarInt());
+				assertEquals(value, input.readSignedVarInt());
+			}
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	@Test
+	public void smallValuesInOneByte() throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(buffer)) {
+			stream.flush();
+			int header = buffer.size();
+			CompactOutput output = new CompactOutput(stream);
+			output.writeVarInt(127);
+			output.writeSignedVarInt(-64);
+			output.writeCoordinate(10f, 40f);
+			stream.flush();
+			// 3 bytes in a block data header of 2 bytes
+			assertEquals(header + 5, buffer.size());
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	@Test
+	public void uuid() throws IOException {
+		UUID id = UUID.randomUUID();
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(buffer)) {
+			new CompactOutput(stream).writeUUID(id);
+		}
+		try (ObjectInputStream stream = loopback(buffer)) {
+			assertEquals(id, new CompactInput(stream).readUUID());
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	@Test
+	public void coordinate() throws IOException {
+		float[] values = {12f, 5f, -3f, 12.5f, Float.NaN, 1e12f, -0f};
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(buffer)) {
+			CompactOutput output = new CompactOutput(stream);
+			for (float value : values) {
+				output.writeCoordinate(12f, value);
+			}
+		}
+		try (ObjectInputStream stream = loopback(buffer)) {
+			CompactInput input = new CompactInput(stream);
+			for (float value : values) {
+				assertEquals(Float.floatToIntBits(value), Float.floatToIntBits(input.readCoordinate(12f)));
+			}
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	@Test
+	public void writersWithoutSharedState() throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(buffer)) {
+			new CompactOutput(stream).writeCoordinate(3f, 4f);
+			new CompactOutput(stream).writeCoordinate(100f, 98.5f);
+		}
+		try (ObjectInputStream stream = loopback(buffer)) {
+			assertEquals(4f, new CompactInput(stream).readCoordinate(3f), 0f);
+			assertEquals(98.5f, new CompactInput(stream).readCoordinate(100f), 0f);
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@Test
+	public void internedPerWriter() throws IOException, ClassNotFoundException {
+		String semantic = "FOOD"; //$NON-NLS-1$
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		int firstSize;
+		try (ObjectOutputStream stream = new ObjectOutputStream(buffer)) {
+			CompactOutput output = new CompactOutput(stream);
+			output.writeInterned(semantic);
+			stream.flush();
+			firstSize = buffer.size();
+			output.writeInterned(semantic);
+			output.writeInterned(null);
+			stream.flush();
+			assertTrue(buffer.size() - firstSize <= 4);
+			// Another writer has its own table
+			new CompactOutput(stream).writeInterned(semantic);
+		}
+		try (ObjectInputStream stream = loopback(buffer)) {
+			CompactInput input = new CompactInput(stream);
+			Object first = input.readInterned();
+			assertEquals(semantic, first);
+			assertSame(first, input.readInterned());
+			assertNull(input.readInterned());
+			assertSame(first, new CompactInput(stream).readInterned());
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * $Id$
+ *
+ * Jaak environment model is an open-source multiagent library.
+ * More details on http://www.sarl.io
+ *
+ * Copyright (C) 2014 Stéphane GALLAND.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.sarl.jaak.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+/** Tests of {@link MultiCollection}.
+ *
+ * @author $Author: sgalland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class MultiCollectionTest {
+
+	@SuppressWarnings("unchecked")
+	private static <E> MultiCollection<E> copy(MultiCollection<E> collection)
+			throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(buffer)) {
+			stream.writeObject(collection);
+		}
+		try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+			return (MultiCollection<E>) stream.readObject();
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@Test
+	public void serialization() throws IOException, ClassNotFoundException {
+		MultiCollection<String> collection = new MultiCollection<>();
+		collection.addCollection(Arrays.asList("a", "b")); //$NON-NLS-1$ //$NON-NLS-2$
+		collection.addCollection(Collections.<String>emptyList());
+		collection.addCollection(Collections.singleton("c")); //$NON-NLS-1$
+		MultiCollection<String> copy = copy(collection);
+		assertEquals(3, copy.size());
+		Iterator<String> iterator = copy.iterator();
+		assertEquals("a", iterator.next()); //$NON-NLS-1$
+		assertEquals("b", iterator.next()); //$NON-NLS-1$
+		assertEquals("c", iterator.next()); //$NON-NLS-1$
+	}
+
+	/**
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@Test
+	public void emptySerialization() throws IOException, ClassNotFoundException {
+		MultiCollection<String> copy = copy(new MultiCollection<String>());
+		assertTrue(copy.isEmpty());
+		assertEquals(0, copy.size());
+	}
+
+}